@@ -0,0 +1,90 @@
+package org.dreamwork.app.bootloader.benchmark;
+
+import org.dreamwork.config.CompactProperties;
+import org.dreamwork.config.EnhancedConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CompactProperties} 与 {@link Properties} 的读取延迟对比，包括直接读取和通过 {@link EnhancedConfiguration} 读取.
+ * 内存占用见 {@link ConfigurationFootprint}
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (value = 1, jvmArgs = "-Xmx4g")
+public class CompactStorageBenchmark {
+    private static final int MASK = 1023;
+
+    @Param ({"10000", "100000", "500000"})
+    public int keys;
+
+    @Param ({"properties", "compact"})
+    public String store;
+
+    Properties props;
+    EnhancedConfiguration conf;
+    /** 存在的普通值、带占位符的值、数字和不存在的键，每种 1024 个 */
+    String[] plain, placeholder, numeric, missing;
+
+    @Setup (Level.Trial)
+    public void setup () {
+        Properties generated = Fixtures.generated (keys);
+        boolean compact = "compact".equals (store);
+        props = compact ? new CompactProperties (generated) : generated;
+        conf = new EnhancedConfiguration (generated, compact);
+
+        plain = new String[MASK + 1];
+        placeholder = new String[MASK + 1];
+        numeric = new String[MASK + 1];
+        missing = new String[MASK + 1];
+        int step = Math.max (1, keys / (MASK + 1));
+        for (int i = 0; i <= MASK; i ++) {
+            int n = (i * step) % keys;
+            // copies, the callers never pass the very instances of the loaded keys
+            plain [i] = new String (Fixtures.generatedKey (n % 64 == 3 ? n - 1 : n));
+            placeholder [i] = new String (Fixtures.generatedKey ((n / 64) * 64 + 3));
+            // the "port" field of the same service
+            numeric [i] = new String (Fixtures.generatedKey ((n / 512) * 512 + 32));
+            missing [i] = Fixtures.generatedKey (n) + ".missing";
+        }
+    }
+
+    @State (Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next () {
+            return (index ++) & MASK;
+        }
+    }
+
+    @Benchmark
+    public String getProperty (Cursor cursor) {
+        return props.getProperty (plain [cursor.next ()]);
+    }
+
+    @Benchmark
+    public String getPropertyMissing (Cursor cursor) {
+        return props.getProperty (missing [cursor.next ()]);
+    }
+
+    @Benchmark
+    public String plainGetString (Cursor cursor) {
+        return conf.getString (plain [cursor.next ()]);
+    }
+
+    @Benchmark
+    public String placeholderGetString (Cursor cursor) {
+        return conf.getString (placeholder [cursor.next ()]);
+    }
+
+    @Benchmark
+    public int getInt (Cursor cursor) {
+        return conf.getInt (numeric [cursor.next ()], -1);
+    }
+}
@@ -0,0 +1,106 @@
+package org.dreamwork.app.bootloader.benchmark;
+
+import org.dreamwork.app.bootloader.BootloaderContext;
+import org.dreamwork.config.CompactProperties;
+import org.dreamwork.config.EnhancedConfiguration;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * 对比 {@link Properties} 和 {@link CompactProperties} 保存同一份配置时占用的堆内存和建立的时间.
+ *
+ * <p>每种存储在同一个 JVM 中依次测量: 生成配置后多次 GC，记录堆的使用量，建立存储并丢弃原始配置，再次 GC 后的增量即为存储占用的内存.
+ * 读取延迟见 {@link CompactStorageBenchmark}.</p>
+ *
+ * <p><code>load()</code> 和 <code>load()/c</code> 两行测量的是整个启动器上下文: 用同样的配置文件完成
+ * {@link BootloaderContext#load(Class, String...)} 后上下文保留的内存，包括根配置、分层配置的来源和配置快照
+ * (<code>--config-cache</code>)，后者带 <code>--compact-config</code>.</p>
+ *
+ * <pre>
+ * java -Xmx4g -cp benchmarks/target/benchmarks.jar org.dreamwork.app.bootloader.benchmark.ConfigurationFootprint [keys ...]
+ * </pre>
+ */
+public final class ConfigurationFootprint {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean ();
+
+    /** 保证被测量的对象在第二次 GC 时仍然可达 */
+    private static volatile Object retained;
+
+    public static void main (String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[] {10_000, 100_000, 500_000} : new int[args.length];
+        for (int i = 0; i < args.length; i ++) {
+            sizes [i] = Integer.parseInt (args [i]);
+        }
+
+        System.out.printf ("%-24s %10s %12s %10s %10s%n", "store", "keys", "heap (KB)", "B/key", "build (ms)");
+        for (int keys : sizes) {
+            measure ("Properties", keys, props -> props);
+            measure ("CompactProperties", keys, CompactProperties::new);
+            measure ("EnhancedConfiguration", keys, EnhancedConfiguration::new);
+            measure ("EnhancedConfiguration/c", keys, props -> new EnhancedConfiguration (props, true));
+            measureLoad ("load()", keys, false);
+            measureLoad ("load()/c", keys, true);
+        }
+    }
+
+    private static void measureLoad (String name, int keys, boolean compact) throws IOException {
+        List<String> list = new ArrayList<> (Arrays.asList (Fixtures.layout (Fixtures.generated (keys), 0)));
+        String cache = list.get (1) + ".cache";
+        list.addAll (Arrays.asList ("--config-cache", cache));
+        if (compact) {
+            list.add ("--compact-config");
+        }
+        String[] args = list.toArray (new String[0]);
+
+        // the first run writes the snapshot, the measured one reads it like a restart does
+        try (BootloaderContext warmUp = new BootloaderContext ("footprint-warmup")) {
+            warmUp.load (null, args);
+        }
+
+        retained = null;
+        long base = usedHeap ();
+        long start = System.nanoTime ();
+        BootloaderContext ctx = new BootloaderContext ("footprint");
+        ctx.load (null, args);
+        long elapsed = System.nanoTime () - start;
+        retained = ctx;
+        long used = usedHeap () - base;
+        retained = null;
+        ctx.close ();
+
+        System.out.printf ("%-24s %10d %12d %10d %10.1f%n", name, keys, used / 1024, used / keys, elapsed / 1e6);
+    }
+
+    private static void measure (String name, int keys, Function<Properties, Object> factory) {
+        // warm up the code paths of the factory, the result is discarded
+        factory.apply (Fixtures.generated (Math.min (keys, 10_000)));
+
+        retained = null;
+        long base = usedHeap ();
+        Properties props = Fixtures.generated (keys);
+        long start = System.nanoTime ();
+        Object store = factory.apply (props);
+        long elapsed = System.nanoTime () - start;
+        props = null;
+        retained = store;
+        long used = usedHeap () - base;
+        retained = null;
+
+        System.out.printf ("%-24s %10d %12d %10d %10.1f%n", name, keys, used / 1024, used / keys, elapsed / 1e6);
+    }
+
+    private static long usedHeap () {
+        // a single collection may leave garbage that is only released by the next one
+        for (int i = 0; i < 5; i ++) {
+            System.gc ();
+        }
+        return MEMORY.getHeapMemoryUsage ().getUsed ();
+    }
+}
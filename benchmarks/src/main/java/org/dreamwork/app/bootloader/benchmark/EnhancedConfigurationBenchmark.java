@@ -0,0 +1,87 @@
+package org.dreamwork.app.bootloader.benchmark;
+
+import org.dreamwork.config.EnhancedConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EnhancedConfiguration} 的读取开销: 普通值、带占位符的值以及类型化的访问器
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.NANOSECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+public class EnhancedConfigurationBenchmark {
+    private static final int MASK = 1023;
+
+    @Param ({"100", "1000", "10000", "100000"})
+    public int keys;
+
+    EnhancedConfiguration conf;
+    /** 各类键，每种 1024 个，按 index & MASK 轮流访问 */
+    String[] plain, placeholder, numeric, bool;
+
+    @Setup (Level.Trial)
+    public void setup () {
+        conf = new EnhancedConfiguration (Fixtures.properties (keys));
+        plain = new String[MASK + 1];
+        placeholder = new String[MASK + 1];
+        numeric = new String[MASK + 1];
+        bool = new String[MASK + 1];
+        int groups = keys / 10;
+        for (int i = 0; i <= MASK; i ++) {
+            int base = (i % groups) * 10;
+            placeholder [i] = Fixtures.key (base);
+            numeric [i] = Fixtures.key (base + 1);
+            bool [i] = Fixtures.key (base + 2);
+            plain [i] = Fixtures.key (base + 3);
+        }
+    }
+
+    @State (Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next () {
+            return (index ++) & MASK;
+        }
+    }
+
+    @Benchmark
+    public String plainGetString (Cursor cursor) {
+        return conf.getString (plain [cursor.next ()]);
+    }
+
+    @Benchmark
+    public String placeholderGetString (Cursor cursor) {
+        return conf.getString (placeholder [cursor.next ()]);
+    }
+
+    /**
+     * 每次读取前修改被引用的键，测量失效后重新解析的开销
+     */
+    @Benchmark
+    public String placeholderAfterWrite (Cursor cursor) {
+        int i = cursor.next ();
+        conf.setRawProperty ("app.name", (i & 1) == 0 ? "benchmark" : "benchmark-" + i);
+        return conf.getString (placeholder [i]);
+    }
+
+    @Benchmark
+    public int getInt (Cursor cursor) {
+        return conf.getInt (numeric [cursor.next ()], -1);
+    }
+
+    @Benchmark
+    public long getLong (Cursor cursor) {
+        return conf.getLong (numeric [cursor.next ()], -1L);
+    }
+
+    @Benchmark
+    public boolean getBoolean (Cursor cursor) {
+        return conf.getBoolean (bool [cursor.next ()], false);
+    }
+}
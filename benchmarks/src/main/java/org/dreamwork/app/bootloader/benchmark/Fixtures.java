@@ -0,0 +1,111 @@
+package org.dreamwork.app.bootloader.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * 生成基准测试使用的合成配置
+ */
+final class Fixtures {
+    private Fixtures () {}
+
+    /**
+     * 生成包含 keys 个键的配置. 其中每 10 个键中有 1 个带 3 个占位符，每 10 个键中有 1 个是数字，1 个是布尔值
+     */
+    static Properties properties (int keys) {
+        Properties props = new Properties ();
+        props.setProperty ("app.name", "benchmark");
+        props.setProperty ("base.dir", "/opt/benchmark");
+        for (int i = 0; i < keys; i ++) {
+            props.setProperty (key (i), value (i));
+        }
+        return props;
+    }
+
+    static String key (int i) {
+        return "module" + (i % 32) + ".group" + (i % 256) + ".key" + i;
+    }
+
+    static String value (int i) {
+        switch (i % 10) {
+            case 0:
+                return "${base.dir}/${app.name}/" + "${" + key (i + 1) + "}";
+            case 1:
+                return String.valueOf (i);
+            case 2:
+                return (i & 1) == 0 ? "true" : "false";
+            default:
+                return "value-" + i;
+        }
+    }
+
+    private static final String[] FIELDS = {
+            "host", "port", "protocol", "path", "timeout.connect", "timeout.read", "retry.max", "retry.backoff",
+            "pool.min", "pool.max", "tls.enabled", "tls.verify", "log.level", "balancer", "weight", "enabled"
+    };
+    private static final String[] VALUES = {
+            "localhost", "8080", "http", "/", "3000", "30000", "3", "500",
+            "1", "16", "true", "false", "INFO", "round-robin", "100", "true"
+    };
+
+    /**
+     * 生成类似部署工具输出的配置: 键有很长的公共前缀，值大量重复. 每 64 个键中有 1 个带占位符
+     */
+    static Properties generated (int keys) {
+        Properties props = new Properties ();
+        props.setProperty ("deploy.base.dir", "/opt/deploy");
+        for (int i = 0; i < keys; i ++) {
+            props.setProperty (generatedKey (i), i % 64 == 3 ? "${deploy.base.dir}/service-" + (i / 512) : VALUES [(i / 32) % 16]);
+        }
+        return props;
+    }
+
+    static String generatedKey (int i) {
+        return "deployment.region-" + (i % 4) + ".cluster-" + ((i / 4) % 8) + ".services.service-" + (i / 512) +
+                ".endpoint." + FIELDS [(i / 32) % 16];
+    }
+
+    /**
+     * 在临时目录中生成 application.conf 和 conf.d/ext-N.conf
+     * @param keys      application.conf 中键的数量
+     * @param extFiles  conf.d 中配置文件的数量
+     * @return 可直接传给 ApplicationBootloader.load 的命令行参数
+     */
+    static String[] layout (int keys, int extFiles) throws IOException {
+        return layout (properties (keys), extFiles);
+    }
+
+    /**
+     * 在临时目录中用给定的配置生成 application.conf 和 conf.d/ext-N.conf
+     * @param config    application.conf 的内容
+     * @param extFiles  conf.d 中配置文件的数量
+     * @return 可直接传给 ApplicationBootloader.load 的命令行参数
+     */
+    static String[] layout (Properties config, int extFiles) throws IOException {
+        Path dir = Files.createTempDirectory ("bootloader-benchmark");
+        Path ext = Files.createDirectories (dir.resolve ("conf.d"));
+        Path conf = dir.resolve ("application.conf");
+
+        store (config, conf);
+        for (int i = 0; i < extFiles; i ++) {
+            store (properties (50), ext.resolve ("ext-" + i + ".conf"));
+        }
+
+        return new String[] {
+                "-c", conf.toAbsolutePath ().toString (),
+                "-e", ext.toAbsolutePath ().toString (),
+                "--log-file", dir.resolve ("logs/application.log").toAbsolutePath ().toString (),
+                "--log-level", "WARN"
+        };
+    }
+
+    private static void store (Properties props, Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter (path, StandardCharsets.UTF_8)) {
+            props.store (writer, null);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.dreamwork.app.bootloader.benchmark;
+
+import org.dreamwork.app.bootloader.ApplicationBootloader;
+import org.dreamwork.config.IConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ApplicationBootloader#getConfiguration(String)} 在不同并发度下命中和未命中缓存的开销.
+ *
+ * <p>未命中的场景在每次调用前都会把配置从缓存中移除，测量的是完整的单飞加载路径，
+ * 包括多个线程竞争同一名称时的等待.</p>
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MICROSECONDS)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+@Fork (1)
+public class GetConfigurationBenchmark {
+    static final int NAMES = 8;
+    static final String[] names = new String[NAMES];
+
+    @Setup (Level.Trial)
+    public void setup () throws Exception {
+        ApplicationBootloader.load (null, Fixtures.layout (100, NAMES));
+        for (int i = 0; i < NAMES; i ++) {
+            names [i] = "ext-" + i;
+            ApplicationBootloader.getConfiguration (names [i]);
+        }
+    }
+
+    @State (Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        String next () {
+            return names [(index ++) & (NAMES - 1)];
+        }
+    }
+
+    @Benchmark @Threads (1)
+    public IConfiguration hit_01 (Cursor cursor) {
+        return ApplicationBootloader.getConfiguration (cursor.next ());
+    }
+
+    @Benchmark @Threads (4)
+    public IConfiguration hit_04 (Cursor cursor) {
+        return ApplicationBootloader.getConfiguration (cursor.next ());
+    }
+
+    @Benchmark @Threads (16)
+    public IConfiguration hit_16 (Cursor cursor) {
+        return ApplicationBootloader.getConfiguration (cursor.next ());
+    }
+
+    @Benchmark @Threads (64)
+    public IConfiguration hit_64 (Cursor cursor) {
+        return ApplicationBootloader.getConfiguration (cursor.next ());
+    }
+
+    @Benchmark @Threads (1)
+    public IConfiguration miss_01 (Cursor cursor) {
+        return miss (cursor);
+    }
+
+    @Benchmark @Threads (4)
+    public IConfiguration miss_04 (Cursor cursor) {
+        return miss (cursor);
+    }
+
+    @Benchmark @Threads (16)
+    public IConfiguration miss_16 (Cursor cursor) {
+        return miss (cursor);
+    }
+
+    @Benchmark @Threads (64)
+    public IConfiguration miss_64 (Cursor cursor) {
+        return miss (cursor);
+    }
+
+    private static IConfiguration miss (Cursor cursor) {
+        String name = cursor.next ();
+        ApplicationBootloader.invalidateConfiguration (name);
+        return ApplicationBootloader.getConfiguration (name);
+    }
+}
@@ -0,0 +1,197 @@
+package org.dreamwork.app.bootloader.benchmark;
+
+import org.dreamwork.app.bootloader.ApplicationEntrance;
+import org.dreamwork.app.bootloader.BootloaderContext;
+import org.dreamwork.app.bootloader.logging.AsyncFileHandler;
+import org.dreamwork.config.IConfiguration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Handler;
+
+/**
+ * 检查虚拟线程模式下启动器是否会占住载体线程 (pinning).
+ *
+ * <p>在虚拟线程上完成启动 (参数解析、日志初始化、配置读取和配置快照)、运行入口、从大量虚拟线程并发读取
+ * 并反复失效扩展配置，再从大量虚拟线程并发写日志，最后关闭上下文 (写入配置快照). 整个过程用 JFR 记录
+ * <code>jdk.VirtualThreadPinned</code> 事件，栈中包含启动器代码的事件均视为失败.</p>
+ *
+ * <p>日志使用异步处理器 (<code>--log-handler async</code>) 和很小的缓冲区，使写日志的虚拟线程经常因缓冲区满而等待.
+ * JDK 21 - 23 中在对象监视器上等待 (<code>synchronized</code>、<code>Object.wait</code>) 同样会占住载体线程，
+ * 却不产生 <code>jdk.VirtualThreadPinned</code> 事件，所以同时记录 <code>jdk.JavaMonitorWait</code> 和
+ * <code>jdk.JavaMonitorEnter</code>，栈中包含日志处理器的事件也视为失败.</p>
+ *
+ * <p>用 JDK 21+ 构建 benchmarks 模块时 (<code>mvn -f benchmarks/pom.xml verify</code>)，
+ * <code>pinning-check</code> profile 会在 verify 阶段自动运行本检查，发现 pinning 时构建失败. 也可以手动运行:</p>
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.dreamwork.app.bootloader.benchmark.PinningCheck
+ * </pre>
+ *
+ * 退出码 0 表示没有发现 pinning，1 表示发现 pinning 或入口不在虚拟线程上运行. 不支持虚拟线程的 JVM 上跳过检查.
+ */
+public final class PinningCheck {
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final String MONITOR_WAIT = "jdk.JavaMonitorWait", MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    private static final String LOGGING = "org.dreamwork.app.bootloader.logging.";
+    private static final int EXT_FILES = 16, REQUESTS = 20_000;
+    /** 写日志的虚拟线程数量，每个线程写的日志数量，以及远小于它们的缓冲区容量 */
+    private static final int LOGGERS = 64, RECORDS = 2_000, LOG_BUFFER = 8;
+
+    /** 入口运行时所在的线程 */
+    private static volatile Thread entranceThread;
+
+    public static class Target {
+        @ApplicationEntrance
+        public static void start (IConfiguration conf) {
+            entranceThread = Thread.currentThread ();
+        }
+    }
+
+    public static void main (String[] args) throws Exception {
+        ExecutorService carrier;
+        try {
+            carrier = (ExecutorService) Executors.class.getMethod ("newVirtualThreadPerTaskExecutor").invoke (null);
+        } catch (NoSuchMethodException ex) {
+            System.out.println ("virtual threads are not supported by java " + System.getProperty ("java.version") + ", skipped");
+            return;
+        }
+
+        List<String> list = new ArrayList<> (Arrays.asList (Fixtures.layout (1000, EXT_FILES)));
+        Path cache = Files.createTempFile ("bootloader-pinning", ".cache");
+        Files.delete (cache);
+        list.addAll (Arrays.asList ("--virtual-threads", "--config-cache", cache.toString (),
+                "--log-handler", "async", "--log-buffer-size", String.valueOf (LOG_BUFFER)));
+        String[] boot = list.toArray (new String[0]);
+
+        Path jfr = Files.createTempFile ("bootloader-pinning", ".jfr");
+        BootloaderContext ctx = new BootloaderContext ("pinning-check");
+        boolean async;
+        try (Recording recording = new Recording ()) {
+            recording.enable (PINNED).withThreshold (Duration.ZERO).withStackTrace ();
+            recording.enable (MONITOR_WAIT).withThreshold (Duration.ZERO).withStackTrace ();
+            recording.enable (MONITOR_ENTER).withThreshold (Duration.ZERO).withStackTrace ();
+            recording.start ();
+
+            carrier.submit (() -> {
+                ctx.run (Target.class, boot);
+                return null;
+            }).get ();
+
+            ExecutorService executor = ctx.getExecutor ();
+            List<Future<?>> futures = new ArrayList<> (REQUESTS);
+            for (int i = 0; i < REQUESTS; i ++) {
+                String name = "ext-" + (i % EXT_FILES);
+                boolean invalidate = i % 97 == 0;
+                futures.add (executor.submit (() -> {
+                    if (invalidate) {
+                        // makes the concurrent callers wait for the reload
+                        ctx.invalidateConfiguration (name);
+                    }
+                    IConfiguration conf = ctx.getConfiguration (name);
+                    return conf == null ? null : conf.getString (Fixtures.key (0));
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get ();
+            }
+
+            // the ring is much smaller than the burst, so the loggers keep waiting for free slots
+            java.util.logging.Logger log = java.util.logging.Logger.getLogger (PinningCheck.class.getName ());
+            futures.clear ();
+            for (int i = 0; i < LOGGERS; i ++) {
+                int id = i;
+                futures.add (executor.submit (() -> {
+                    for (int n = 0; n < RECORDS; n ++) {
+                        log.warning ("logger " + id + " record " + n);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get ();
+            }
+            async = asyncLogging ();
+
+            carrier.submit (ctx::close).get ();
+            recording.stop ();
+            recording.dump (jfr);
+        } finally {
+            carrier.shutdown ();
+        }
+
+        int failures = 0;
+        if (entranceThread == null || !isVirtual (entranceThread)) {
+            System.out.println ("FAILED: the entrance is not invoked on a virtual thread: " + entranceThread);
+            failures ++;
+        }
+        if (!async) {
+            System.out.println ("FAILED: the async log handler is not installed, the logging scenario didn't run");
+            failures ++;
+        }
+        for (RecordedEvent event : RecordingFile.readAllEvents (jfr)) {
+            String type = event.getEventType ().getName ();
+            if (PINNED.equals (type) && from (event.getStackTrace (), "org.dreamwork.")) {
+                System.out.println ("FAILED: carrier pinned for " + event.getDuration ().toNanos () / 1000 + " us");
+                print (event.getStackTrace ());
+                failures ++;
+            } else if ((MONITOR_WAIT.equals (type) || MONITOR_ENTER.equals (type)) && from (event.getStackTrace (), LOGGING)) {
+                System.out.println ("FAILED: " + type + " in the log handler for " + event.getDuration ().toNanos () / 1000 + " us");
+                print (event.getStackTrace ());
+                failures ++;
+            }
+        }
+        Files.deleteIfExists (jfr);
+
+        if (failures == 0) {
+            System.out.println ("OK: no pinning detected in " + REQUESTS + " configuration requests and " +
+                    LOGGERS * RECORDS + " log records");
+        }
+        System.exit (failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * @return 是否有 {@link AsyncFileHandler} 挂在根 logger 上. log4j 存在时启动器不使用 JDK 日志
+     */
+    private static boolean asyncLogging () {
+        for (Handler handler : java.util.logging.Logger.getLogger ("").getHandlers ()) {
+            if (handler instanceof AsyncFileHandler) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean from (RecordedStackTrace trace, String prefix) {
+        if (trace != null) {
+            for (RecordedFrame frame : trace.getFrames ()) {
+                if (frame.getMethod () != null && frame.getMethod ().getType ().getName ().startsWith (prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void print (RecordedStackTrace trace) {
+        for (RecordedFrame frame : trace.getFrames ()) {
+            System.out.println ("    at " + frame.getMethod ().getType ().getName () + "." + frame.getMethod ().getName ()
+                    + " (line " + frame.getLineNumber () + ")");
+        }
+    }
+
+    private static boolean isVirtual (Thread thread) throws ReflectiveOperationException {
+        return (Boolean) Thread.class.getMethod ("isVirtual").invoke (thread);
+    }
+}
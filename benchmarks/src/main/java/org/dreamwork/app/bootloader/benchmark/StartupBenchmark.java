@@ -0,0 +1,34 @@
+package org.dreamwork.app.bootloader.benchmark;
+
+import org.dreamwork.app.bootloader.ApplicationBootloader;
+import org.dreamwork.config.IConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ApplicationBootloader#load(Class, String...)} 端到端的启动开销，
+ * 包括参数定义解析、日志初始化和 application.conf 的解析.
+ */
+@State (Scope.Benchmark)
+@BenchmarkMode (Mode.AverageTime)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 2)
+@Measurement (iterations = 5, time = 2)
+@Fork (1)
+public class StartupBenchmark {
+    @Param ({"100", "1000", "10000", "100000"})
+    public int keys;
+
+    String[] args;
+
+    @Setup (Level.Trial)
+    public void setup () throws Exception {
+        args = Fixtures.layout (keys, 16);
+    }
+
+    @Benchmark
+    public IConfiguration load () {
+        return ApplicationBootloader.load (null, args);
+    }
+}
@@ -0,0 +1,131 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.config.IConfiguration;
+import org.dreamwork.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 生成的绑定器的基类，提供读取和转换属性值的方法. 转换失败时不抛出异常，而是记录错误，
+ * 以便一次报告所有的问题.
+ * @param <T> 绑定的接口
+ */
+public abstract class AbstractConfigBinder<T> implements IConfigBinder<T> {
+    private final Class<T> type;
+    private final String name;
+
+    protected AbstractConfigBinder (Class<T> type, String name) {
+        this.type = type;
+        this.name = name;
+    }
+
+    @Override
+    public Class<T> getType () {
+        return type;
+    }
+
+    @Override
+    public String getName () {
+        return name;
+    }
+
+    /**
+     * @throws IllegalArgumentException 配置不存在 (<code>conf</code> 为 null)，或配置缺少必须的属性、属性的类型错误
+     */
+    @Override
+    public final T bind (IConfiguration conf) {
+        if (conf == null) {
+            // binding against nothing would silently yield the defaults
+            throw new IllegalArgumentException ("can't bind " + type.getName () + ": " +
+                    (name.isEmpty () ? "root configuration" : "configuration [" + name + "]") + " not found");
+        }
+        List<String> errors = new ArrayList<> ();
+        T value = bind (conf, errors);
+        if (!errors.isEmpty ()) {
+            StringBuilder builder = new StringBuilder ("can't bind ");
+            builder.append (type.getName ());
+            if (!name.isEmpty ()) {
+                builder.append (" to configuration [").append (name).append (']');
+            }
+            builder.append (':');
+            for (String error : errors) {
+                builder.append ("\n    ").append (error);
+            }
+            throw new IllegalArgumentException (builder.toString ());
+        }
+        return value;
+    }
+
+    /**
+     * 绑定配置，错误记录在 <code>errors</code> 中
+     * @return 绑定的实例，有错误时返回值将被忽略
+     */
+    protected abstract T bind (IConfiguration conf, List<String> errors);
+
+    /**
+     * 读取属性的原始值
+     * @param required 未配置且没有默认值时是否记录错误
+     * @return 属性值，未配置时返回默认值，均没有时返回 null
+     */
+    protected static String value (IConfiguration conf, String key, String defaultValue, boolean required, List<String> errors) {
+        String text = conf.getString (key);
+        if (StringUtil.isEmpty (text)) {
+            text = defaultValue;
+        }
+        if (text == null && required) {
+            errors.add (key + ": is required");
+        }
+        return text;
+    }
+
+    protected static int toInt (String key, String text, List<String> errors) {
+        try {
+            return Integer.parseInt (text.trim ());
+        } catch (NumberFormatException ex) {
+            errors.add (key + ": '" + text + "' is not an int");
+            return 0;
+        }
+    }
+
+    protected static long toLong (String key, String text, List<String> errors) {
+        try {
+            return Long.parseLong (text.trim ());
+        } catch (NumberFormatException ex) {
+            errors.add (key + ": '" + text + "' is not a long");
+            return 0L;
+        }
+    }
+
+    protected static double toDouble (String key, String text, List<String> errors) {
+        try {
+            return Double.parseDouble (text.trim ());
+        } catch (NumberFormatException ex) {
+            errors.add (key + ": '" + text + "' is not a double");
+            return 0D;
+        }
+    }
+
+    protected static boolean toBoolean (String key, String text, List<String> errors) {
+        String s = text.trim ();
+        if ("true".equalsIgnoreCase (s)) {
+            return true;
+        }
+        if (!"false".equalsIgnoreCase (s)) {
+            errors.add (key + ": '" + text + "' is not a boolean");
+        }
+        return false;
+    }
+
+    protected static <E extends Enum<E>> E toEnum (String key, String text, Class<E> type, List<String> errors) {
+        String s = text.trim ();
+        for (E e : type.getEnumConstants ()) {
+            if (e.name ().equalsIgnoreCase (s)) {
+                return e;
+            }
+        }
+        errors.add (key + ": '" + text + "' is not one of " + Arrays.toString (type.getEnumConstants ()));
+        return null;
+    }
+}
@@ -1,680 +1,193 @@
 package org.dreamwork.app.bootloader;
 
-import com.google.gson.Gson;
-import org.dreamwork.cli.Argument;
-import org.dreamwork.cli.ArgumentParser;
-import org.dreamwork.config.EnhancedConfiguration;
 import org.dreamwork.config.IConfiguration;
-import org.dreamwork.config.PropertyConfiguration;
-import org.dreamwork.util.FileInfo;
-import org.dreamwork.util.IOUtil;
-import org.dreamwork.util.StringUtil;
 import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.*;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
-import java.text.SimpleDateFormat;
-import java.util.*;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
-
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 启动器的静态门面，所有方法都委托给默认的 {@link BootloaderContext}.
+ *
+ * <p>需要在同一个 JVM 中启动多个应用时，使用 {@link #newContext(String)} 创建独立的上下文.</p>
+ */
 @SuppressWarnings ("all")
 public class ApplicationBootloader {
-    private static final Map<String, IConfiguration> context = new HashMap<> ();
-    private static final Map<String, Lock> locks = new HashMap<> ();
-    private static final Map<String, List<Object>> waiters = new HashMap<> ();
-
-    private static ArgumentParser parser = null;
-
-    private static Logger logger;
+    public static final String MBEAN_NAME = "org.dreamwork.app.bootloader:type=ApplicationBootloader";
 
-    private static Class<?> type;
-    private static Object[] args;
+    private static final BootloaderContext context = new BootloaderContext (BootloaderContext.DEFAULT_NAME, true);
 
-    public static boolean isArgPresent (String option) {
-        return parser.isArgPresent (option);
+    /**
+     * @return 静态方法使用的默认上下文
+     */
+    public static BootloaderContext getDefaultContext () {
+        return context;
     }
 
-    public static boolean isArgPresent (char option) {
-        return parser.isArgPresent (option);
+    /**
+     * 创建一个独立于默认上下文的启动器上下文
+     * @param name 上下文名称
+     * @return 新的上下文
+     */
+    public static BootloaderContext newContext (String name) {
+        return new BootloaderContext (name);
     }
 
-    public static IConfiguration getRootConfiguration () {
-        return context.get ("root");
+    /**
+     * 获取由启动器管理的执行器，虚拟线程模式下每个任务在一个新的虚拟线程上执行
+     * @see BootloaderContext#getExecutor()
+     */
+    public static ExecutorService getExecutor () {
+        return context.getExecutor ();
     }
 
-    public static IConfiguration getConfiguration (String name) {
-        synchronized (context) {
-            if (context.containsKey (name)) {
-                return context.get (name);
-            }
-        }
-
-        Lock locker;
-        synchronized (locks) {
-            if (locks.containsKey (name)) {
-                locker = locks.get (name);
-            } else {
-                locker = new ReentrantLock ();
-                locks.put (name, locker);
-            }
-        }
-
-        String label = Thread.currentThread ().getName ();
-        do {
-            System.out.printf ("[%s] acquiring a lock associated to %s%n", label, name);
-            if (locker.tryLock ()) break;
-            System.out.printf ("[%s] the locker is locked, wait for a moment%n", label);
-            Object o;
-            synchronized (waiters) {
-                List<Object> list = waiters.computeIfAbsent (name, key -> new ArrayList<> ());
-                list.add (o = new byte[0]);
-            }
-            synchronized (o) {
-                try {
-                    o.wait ();
-                } catch (InterruptedException e) {
-                    e.printStackTrace ();
-                }
-            }
-        } while (true);
-
-        try {
-            // now, we got a active lock
-            System.out.printf ("[%s] wo got a valid lock%n", label);
-            synchronized (context) {
-                // check the cache again, 'cause while we are waiting for the lock,
-                // another thread might have loaded the configuration and stored it in the cache.
-                if (context.containsKey (name)) {
-                    return context.get (name);
-                }
-            }
-
-            loadExtProperties (context.get ("root"), name);
-            return context.get (name);
-        } finally {
-            // release the lock
-            locker.unlock ();
-            System.out.printf ("[%s] release the lock!%n", label);
-            // release the waiting locker
-            Object o = null;
-            synchronized (waiters) {
-                List<Object> list = waiters.get (name);
-                if (list != null && !list.isEmpty ()) {
-                    o = list.get (0);
-                    list.remove (0);
-                }
-            }
-            if (o != null) synchronized (o){
-                o.notifyAll ();
-            }
-        }
+    /**
+     * @return 应用是否已就绪
+     * @see BootloaderContext#isReady()
+     */
+    public static boolean isReady () {
+        return context.isReady ();
     }
 
-    public static IConfiguration load (Class<?> type, String... args) {
-        ApplicationBootloader.type = type;
-        ApplicationBootloader.args = args;
-        ClassLoader loader = ApplicationBootloader.class.getClassLoader ();
-
-        Map<String, Argument> map = new HashMap<> ();
-        Gson g = new Gson ();
-
-        load (loader, g, map, "application-bootloader.json");
-        IBootable ib;
-        if (type != null) {
-            if (type.isAnnotationPresent (IBootable.class)) {
-                ib = type.getAnnotation (IBootable.class);
-                String argDef = ib.argumentDef ();
-                if (StringUtil.isEmpty (argDef)) {
-                    argDef = StringUtil.camelDecode (type.getName (), '-') + ".json";
-                }
-
-                load (loader, g, map, argDef);
-            }
-        }
-
-        if (!map.isEmpty ()) {
-            parser = new ArgumentParser (new ArrayList<> (map.values ()));
-        }
-
-        if (parser == null) {
-            System.err.println ("can't initial command line parser");
-            System.exit (-1);
-            return null;
-        }
-
-        parser.parse (args);
-
-        if (parser.isArgPresent ('h')) {
-            parser.showHelp ();
-            System.exit (0);
-        }
-
-        try {
-            initLogger (loader, parser);
-        } catch (IOException ex) {
-            throw new RuntimeException (ex);
-        }
-
-        Logger logger = LoggerFactory.getLogger (ApplicationBootloader.class);
-        try {
-            Properties props = parseConfig (parser, logger);
-            EnhancedConfiguration configuration = new EnhancedConfiguration (props);
-            // patch extra config dir
-            setDefaultValue (parser, configuration, "ext.conf.dir", 'e');
-            // patch jmx enable settings
-            setDefaultValue (parser, configuration, "jmx.enabled", 'X');
-
-            Collection<Argument> ca = parser.getAllArguments ();
-            for (Argument a : ca) {
-                if (!StringUtil.isEmpty (a.propKey)) {
-                    if (!StringUtil.isEmpty (a.shortOption))
-                        setDefaultValue (parser, configuration, a.propKey, a.shortOption.charAt (0));
-                    else if (!StringUtil.isEmpty (a.longOption))
-                        setDefaultValue (parser, configuration, a.propKey, a.longOption);
-                }
-            }
-
-/*
-            // 所有配置文件解析完成，合并 System.getProperties 的属性
-            Properties sys = System.getProperties ();
-            for (String key : sys.stringPropertyNames ()) {
-                configuration.setRawProperty (key, sys.getProperty (key));
-            }
-
-*/
-            context.putIfAbsent ("root", configuration);
-        } catch (Exception ex) {
-            logger.warn (ex.getMessage (), ex);
-            throw new RuntimeException (ex);
-        }
-
-        if (logger.isTraceEnabled ()) {
-            logger.trace ("configurations load complete, trying to start application");
-        }
-
-        List<Argument> arguments = parser.getAllArguments ().stream()
-                .filter (a -> a.required)
-                .collect(Collectors.toList());
-        PropertyConfiguration conf = (PropertyConfiguration) getRootConfiguration ();
-        for (Argument a : arguments) {
-            boolean found = false;
-            String message = "the mandatory option: ";
-            if (!StringUtil.isEmpty (a.propKey)) {
-                if (!conf.contains (a.propKey)) {
-                    if (!StringUtil.isEmpty (a.longOption)) {
-                        message += "--" + a.longOption;
-                        found = true;
-                    } else if (!StringUtil.isEmpty (a.shortOption)) {
-                        message += "-" + a.shortOption;
-                        found = true;
-                    }
-                }
-            } else {
-                if (!StringUtil.isEmpty (a.longOption)) {
-                    if (!parser.isArgPresent (a.longOption)) {
-                        message += "--" + a.longOption;
-                        found = true;
-                    }
-                } else if (!StringUtil.isEmpty (a.shortOption)) {
-                    if (!parser.isArgPresent (a.shortOption)) {
-                        message += "-" + a.shortOption;
-                        found = true;
-                    }
-                }
-            }
-            if (found) {
-                message += " is not provided";
-                System.err.println (message);
-                parser.showHelp ();
-            }
-        }
-
-        return getRootConfiguration ();
+    /**
+     * 注册就绪监听器，应用已就绪时立即回调. 入口阻塞时需调用 {@link #signalReady()}
+     * @param listener 监听器
+     * @see BootloaderContext#addReadinessListener(IReadinessListener)
+     */
+    public static void addReadinessListener (IReadinessListener listener) {
+        context.addReadinessListener (listener);
     }
 
-    public static void run (Class<?> type, String... args) throws InvocationTargetException {
-        load (type, args);
-        run ();
+    /**
+     * 由阻塞的入口在应用启动完成后调用，执行预热并宣告就绪
+     * @see BootloaderContext#signalReady()
+     */
+    public static void signalReady () throws InvocationTargetException {
+        context.signalReady ();
     }
 
-    public static void run () throws InvocationTargetException {
-        if (null != type) {
-            Method[] methods = type.getMethods ();
-            Method method = null;
-            for (Method m : methods) {
-                if (m.isAnnotationPresent (ApplicationEntrance.class)) {
-                    method = m;
-                    break;
-                }
-            }
-
-            boolean has_args = false;
-            if (method == null) {
-                try {
-                    method = type.getMethod ("start", IConfiguration.class);
-
-                    if (method != null) {
-                        try {
-                            if (method.getModifiers () == Modifier.STATIC) {
-                                method.invoke (null, getRootConfiguration ());
-                            } else {
-                                Object o = type.newInstance ();
-                                method.invoke (o, getRootConfiguration ());
-                            }
-                        } catch (Exception ex) {
-                            logger.warn (ex.getMessage (), ex);
-                            throw new InvocationTargetException (ex);
-                        }
-
-                        return;
-                    }
-                } catch (NoSuchMethodException ex) {
-//                    logger.warn (ex.getMessage (), ex);
-                    if (logger.isTraceEnabled ()) {
-                        logger.trace ("{} has no method named [start] take one argument::{}", type, IConfiguration.class);
-                    }
-                }
-            }
-
-            if (method == null) {
-                try {
-                    method = type.getMethod ("start", String[].class);
-                    has_args = true;
-                } catch (NoSuchMethodException ex) {
-//                    ex.printStackTrace ();
-                    if (logger.isTraceEnabled ()) {
-                        logger.trace ("{} has no method named [start] take parameters::String[]", type);
-                    }
-                }
-            }
-
-            if (method == null) {
-                try {
-                    method = type.getMethod ("start");
-                } catch (NoSuchMethodException ex) {
-//                    ex.printStackTrace ();
-                    if (logger.isTraceEnabled ()) {
-                        logger.trace ("{} has no method named [start] without parameter", type);
-                    }
-                }
-            }
-
-            if (method != null) {
-                try {
-                    if (method.getModifiers () == Modifier.STATIC) {
-                        if (has_args) {
-                            method.invoke (null, new Object[] {args});
-                        } else {
-                            method.invoke (null);
-                        }
-                    } else {
-                        Object o = type.newInstance ();
-                        if (has_args) {
-                            method.invoke (o, new Object[] {args});
-                        } else {
-                            method.invoke (o);
-                        }
-                    }
-                } catch (Exception ex) {
-                    throw new RuntimeException (ex);
-                }
-            } else {
-                logger.error ("Can't find application entrance within type {}", type);
-            }
-        } else {
-            logger.error ("Can't find entrance type!!");
-            throw new IllegalArgumentException ("Can't find entrance type!!");
-        }
+    public static boolean isArgPresent (String option) {
+        return context.isArgPresent (option);
     }
 
-    private static void initLogger (ClassLoader loader, ArgumentParser parser) throws IOException {
-        String logLevel, logFile;
-        if (parser.isArgPresent ('v')) {
-            logLevel = "TRACE";
-        } else if (parser.isArgPresent ("log-level")) {
-            logLevel = parser.getValue ("log-level");
-        } else {
-            logLevel = parser.getDefaultValue ("log-level");
-        }
-
-        logFile = parser.getValue ("log-file");
-        if (StringUtil.isEmpty (logFile)) {
-            logFile = parser.getDefaultValue ("log-file");
-        }
-        File file = new File (logFile);
-        File parent = file.getParentFile ();
-        if (!parent.exists () && !parent.mkdirs ()) {
-            throw new IOException ("Can't create dir: " + parent.getCanonicalPath ());
-        }
-
-        if ("TRACE".equalsIgnoreCase (logLevel)) {
-            System.out.printf ("## log file: %s ##%n", file.getCanonicalFile ());
-        }
-
-        String className = "org.apache.log4j.PropertyConfigurator";
-        boolean log4j = false;
-        try {
-            Class.forName (className);
-            log4j = true;
-        } catch (ClassNotFoundException ex) {
-            // log4j not exists.
-        }
-
-        if (log4j)
-            initLog4J (loader, logLevel, logFile);
-        else
-            initJdkLogger (loader, logLevel, logFile);
+    public static boolean isArgPresent (char option) {
+        return context.isArgPresent (option);
     }
 
-    private static void initJdkLogger (ClassLoader loader, String logLevel, String logFile) throws IOException {
-        Map<String, String> mapping = new HashMap<> ();
-        mapping.put ("trace", "FINEST");
-        mapping.put ("debug", "FINER");
-        mapping.put ("info", "INFO");
-        mapping.put ("warn", "WARNING");
-        mapping.put ("error", "SEVERE");
-
-        String level = mapping.get (logLevel.toLowerCase ());
-        String filePattern = FileInfo.getFileNameWithoutExtension (logFile);
-        String path = FileInfo.getFolder (logFile);
-
-        Properties props = new Properties ();
-        try (InputStream in = loader.getResourceAsStream ("internal-jdk-logging.properties")) {
-            props.load (in);
-        }
-
-        boolean trace = "trace".equalsIgnoreCase (logLevel);
-        if (trace) {
-            System.out.printf ("### setting log level to %s ###%n", logLevel);
-        }
-
-        props.setProperty ("java.util.logging.FileHandler.pattern", path + '/' + filePattern + "%u.log");
-        if ("trace".equalsIgnoreCase (logLevel)) {
-
-            System.out.printf ("### log file -> %s ###%n", new File (path + '/' + filePattern + "%u.log").getCanonicalPath ());
-
-            props.setProperty ("java.util.logging.FileHandler.level", "FINEST");
-            props.setProperty ("java.util.logging.ConsoleHandler.level", "FINEST");
-            props.setProperty (".level", "FINEST");
-        } else {
-            props.setProperty ("java.util.logging.FileHandler.level", level);
-            props.setProperty ("java.util.logging.ConsoleHandler.level", level);
-            props.setProperty (".level", level);
-        }
-
-        String tmpDir = System.getProperty ("java.io.tmpdir");
-        String uuid   = StringUtil.uuid ();
-        File file = new File (tmpDir, "jdk-logging-" + uuid + ".properties");
-        try (OutputStream out = new FileOutputStream (file)) {
-            OutputStreamWriter writer = new OutputStreamWriter (out, StandardCharsets.UTF_8);
-            props.store (writer, uuid);
-            out.flush ();
-        }
-        System.setProperty ("java.util.logging.config.file", file.getCanonicalPath ());
-        Logger logger = LoggerFactory.getLogger (ApplicationBootloader.class);
-        logger.info ("JDK Logging load complete");
-        file.deleteOnExit ();
+    public static IConfiguration getRootConfiguration () {
+        return context.getRootConfiguration ();
     }
 
-    private static void initLog4J (ClassLoader loader, String logLevel, String logFile) throws IOException {
-        try (InputStream in = loader.getResourceAsStream ("internal-log4j.properties")) {
-            Properties props = new Properties ();
-            props.load (in);
-
-            System.out.println ("### setting log level to " + logLevel + " ###");
-            if ("trace".equalsIgnoreCase (logLevel)) {
-                props.setProperty ("log4j.rootLogger", "INFO, stdout, FILE");
-                props.setProperty ("log4j.appender.FILE.File", logFile);
-                props.setProperty ("log4j.appender.FILE.Threshold", logLevel);
-                props.setProperty ("log4j.logger.org.dreamwork", "trace");
-            } else {
-                props.setProperty ("log4j.rootLogger", logLevel + ", stdout, FILE");
-                props.setProperty ("log4j.appender.FILE.File", logFile);
-                props.setProperty ("log4j.appender.FILE.Threshold", logLevel);
-            }
-
-            if (parser.isArgPresent ("trace-prefix")) {
-                String prefixes = parser.getValue ("trace-prefix");
-                if (!StringUtil.isEmpty (prefixes)) {
-                    String[] parts = prefixes.trim ().split (File.pathSeparator);
-                    for (String prefix : parts) {
-                        if ("trace".equalsIgnoreCase (logLevel)) {
-                            System.out.printf ("#### setting %s log level to trace ####%n", prefix);
-                        }
-                        props.setProperty ("log4j.logger." + prefix, "trace");
-                    }
-                }
-            }
-
-            if ("trace".equalsIgnoreCase (logLevel)) {
-                System.out.println ("trying to configure log4j ...");
-            }
-            try {
-                Class<?> type = Class.forName ("org.apache.log4j.PropertyConfigurator");
-                Method m = type.getMethod ("configure", Properties.class);
-                m.invoke (null, props);
-
-                Logger logger = LoggerFactory.getLogger (ApplicationBootloader.class);
-                logger.info ("Log4J load complete");
-            } catch (Exception ex) {
-                System.err.println ("can't configure log4j");
-                ex.printStackTrace ();
-            }
-        }
+    /**
+     * @see BootloaderContext#getConfigurationLayers()
+     */
+    public static ConfigurationLayers getConfigurationLayers () {
+        return context.getConfigurationLayers ();
     }
 
-    private static Properties parseConfig (ArgumentParser parser, Logger logger) throws IOException {
-        if (logger.isTraceEnabled ()) {
-            logger.trace ("parsing config file ...");
-        }
-        String config_file = null;
-        if (parser.isArgPresent ('c')) {
-            config_file = parser.getValue ('c');
-        }
-        if (StringUtil.isEmpty (config_file)) {
-            config_file = parser.getDefaultValue ('c');
-        }
-
-        config_file = config_file.trim ();
-        if (logger.isTraceEnabled ()) {
-            logger.trace ("config file: {}", config_file);
-        }
-        File file;
-        if (config_file.startsWith ("file:/") || config_file.startsWith ("/")) {
-            file = new File (config_file);
-        } else {
-            file = new File (".", config_file);
-        }
-
-        Properties props = new Properties ();
-        if (!file.exists ()) {
-            logger.warn ("can't find config file: {}", config_file);
-            logger.warn ("using default config.");
-        } else {
-            try (InputStream in = new FileInputStream (file)) {
-                props.load (in);
-            }
+    /**
+     * 获取最近一次启动过程的时间线，包括 <code>load()</code> 的各个阶段及 <code>run()</code> 中入口的查找和调用
+     * @return 启动时间线
+     */
+    public static BootTimeline getBootTimeline () {
+        return context.getBootTimeline ();
+    }
 
-            if (logger.isTraceEnabled ()) {
-                prettyPrint (props, logger);
-            }
-        }
-        return props;
+    /**
+     * 获取当前所有已加载配置的不可变快照
+     * @return 配置快照
+     */
+    public static ConfigurationSnapshot getSnapshot () {
+        return context.getSnapshot ();
     }
 
-    private static void load (ClassLoader loader, Gson g, Map<String, Argument> map, String name) {
-        try (InputStream in = loader.getResourceAsStream (name)) {
-            if (in != null) {
-                String content = new String (IOUtil.read (in), StandardCharsets.UTF_8);
-                List<Argument> list = g.fromJson (content, Argument.AS_LIST);
-                list.forEach (item -> {
-                    String key = item.shortOption;
-                    if (StringUtil.isEmpty (key)) {
-                        key = item.longOption;
-                    }
-                    if (!StringUtil.isEmpty (key)) {
-                        map.put (key, item);
-                    }
-                });
-            }
-        } catch (Exception ex) {
-            throw new RuntimeException (ex);
-        }
+    /**
+     * 注册扩展配置变更监听器. 只有在监视模式下才会收到通知.
+     * @param listener 监听器
+     */
+    public static void addConfigurationListener (IConfigurationListener listener) {
+        context.addConfigurationListener (listener);
     }
 
-    public static void prettyPrint (Properties props, Logger logger) {
-        logger.trace ("### global configuration ###");
-        int length = 0;
-        List<String> list = new ArrayList<> ();
-        for (String key : props.stringPropertyNames ()) {
-            list.add (key);
-            if (key.length () > length) {
-                length = key.length ();
-            }
-        }
-        list.sort (String::compareTo);
-        for (String key : list) {
-            StringBuilder builder = new StringBuilder (key);
-            if (key.length () < length) {
-                int d = length - key.length ();
-                for (int i = 0; i < d; i ++) {
-                    builder.append (' ');
-                }
-            }
-            builder.append (" : ").append (props.getProperty (key));
-            logger.trace (builder.toString ());
-        }
-        logger.trace ("############################");
+    public static void removeConfigurationListener (IConfigurationListener listener) {
+        context.removeConfigurationListener (listener);
     }
 
-    private static void setDefaultValue (ArgumentParser parser, PropertyConfiguration configuration, String key, char argument) {
-        if (parser.isArgPresent (argument)) {
-            configuration.setRawProperty (key, parser.getValue (argument));
-        }
-        if (!configuration.contains (key)) {
-            configuration.setRawProperty (key, parser.getDefaultValue (argument));
-        }
+    /**
+     * 从缓存中移除指定名称的扩展配置，下一次 {@link #getConfiguration(String)} 将重新从磁盘加载
+     * @param name 配置名称
+     */
+    public static void invalidateConfiguration (String name) {
+        context.invalidateConfiguration (name);
     }
 
-    private static void setDefaultValue (ArgumentParser parser, PropertyConfiguration configuration, String key, String argument) {
-        if (parser.isArgPresent (argument)) {
-            configuration.setRawProperty (key, parser.getValue (argument));
-        }
-        if (!configuration.contains (key)) {
-            configuration.setRawProperty (key, parser.getDefaultValue (argument));
-        }
+    /**
+     * 获取指定名称的扩展配置，即 <code>${ext.conf.dir}/&lt;name&gt;.conf</code>.
+     * @param name 配置名称
+     * @return 配置，若配置文件不存在返回 null
+     * @see BootloaderContext#getConfiguration(String)
+     */
+    public static IConfiguration getConfiguration (String name) {
+        return context.getConfiguration (name);
     }
 
-    private static void loadExtProperties (IConfiguration conf, String name) {
-        String ext_dir = conf.getString ("ext.conf.dir");
-        Path path = Paths.get (ext_dir, name + ".conf");
-        if (Files.exists (path)) {
-            try (InputStream in = Files.newInputStream (path, StandardOpenOption.READ)) {
-                Properties props = new Properties ();
-                props.load (in);
-                context.putIfAbsent (name, new PropertyConfiguration (props));
-            } catch (IOException ex) {
-                ex.printStackTrace ();
-            }
-        }
+    /**
+     * 获取指定名称的扩展配置，最多等待指定的时间
+     * @param name    配置名称
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 配置，若配置文件不存在返回 null
+     * @throws InterruptedException 等待时被中断
+     * @throws TimeoutException     在指定的时间内没有加载完成
+     * @see BootloaderContext#getConfiguration(String, long, TimeUnit)
+     */
+    public static IConfiguration getConfiguration (String name, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        return context.getConfiguration (name, timeout, unit);
     }
 
-    private static final class Worker implements Runnable {
-        final String name;
-        final int counter;
-        final Map<String, Lock> locks;
-        final Map<String, List<Worker>> waiters;
-        final Object LOCKER = new byte[0];
-        CountDownLatch latch;
+    /**
+     * 异步获取指定名称的扩展配置
+     * @param name 配置名称
+     * @return 配置的 future，配置文件不存在时结果为 null
+     * @see BootloaderContext#getConfigurationAsync(String)
+     */
+    public static CompletableFuture<IConfiguration> getConfigurationAsync (String name) {
+        return context.getConfigurationAsync (name);
+    }
 
-        Worker (Map<String, Lock> locks, Map<String, List<Worker>> waiters, String name, int counter) {
-            this.waiters = waiters;
-            this.locks   = locks;
-            this.name    = name;
-            this.counter = counter;
-        }
-        @Override
-        public void run () {
-            Lock locker;
-            SimpleDateFormat sdf = new SimpleDateFormat ("yyyy-MM-dd HH:mm:ss");
-            System.out.printf ("[%s][%s.%d] counter = %d%n", sdf.format (System.currentTimeMillis ()), name, counter, counter);
-            synchronized (locks) {
-                if (locks.containsKey (name)) {
-                    locker = locks.get (name);
-                    System.out.printf ("[%s][%s.%d] lock exists%n",sdf.format (System.currentTimeMillis ()), name, counter);
-                } else {
-                    locker = new ReentrantLock ();
-                    locks.put (name, locker);
-                    System.out.printf ("[%s][%s.%d] first round%n",sdf.format (System.currentTimeMillis ()), name, counter);
-                }
-            }
+    /**
+     * @return 配置键的访问统计报告，未开启统计时返回 null
+     * @see BootloaderContext#getConfigurationProfile()
+     */
+    public static String getConfigurationProfile () {
+        return context.getConfigurationProfile ();
+    }
 
-            boolean printed = false;
-            do {
-                System.out.printf ("[%s][%s.%d] acquiring a lock...%n", sdf.format (System.currentTimeMillis ()), name, counter);
-                if (!locker.tryLock ()) {
-                    System.out.printf ("[%s][%s.%d] the locker is locked. wait for a moment ...%n", sdf.format (System.currentTimeMillis ()), name, counter);
-                    synchronized (waiters) {
-                        List<Worker> list = waiters.computeIfAbsent (name, key -> new ArrayList<> ());
-                        list.add (this);
-                    }
-                    try {
-                        await ();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace ();
-                    }
-                } else {
-                    break;
-                }
-            } while (true);
+    /**
+     * 获取 {@link ConfigBinding} 接口的绑定实例
+     * @see BootloaderContext#bind(Class)
+     */
+    public static <T> T bind (Class<T> type) {
+        return context.bind (type);
+    }
 
-            // now the lock is locked
-            System.out.printf ("[%s][%s.%d] got the locker!%n", sdf.format (System.currentTimeMillis ()), name, counter);
-            try {
-                int time = (int) (Math.random () * 5) + 1;
-                System.out.printf ("[%s][%s.%d] will waiting for %d seconds.%n", sdf.format (System.currentTimeMillis ()), name, counter, time);
-                try {
-                    Thread.sleep (time * 1000);
-                } catch (Exception ex) {
-                    ex.printStackTrace ();
-                }
-            } finally {
-                locker.unlock ();
-                Worker worker = null;
-                synchronized (waiters) {
-                    List<Worker> list = waiters.get (name);
-                    if (list != null && !list.isEmpty ()) {
-                        worker = list.get (0);
-                        list.remove (0);
-                    }
-                }
-                if (worker != null) {
-                    worker.signal ();
-                }
-                System.out.printf ("[%s][%s.%d] unlocked%n", sdf.format (System.currentTimeMillis ()), name, counter);
+    public static IConfiguration load (Class<?> type, String... args) {
+        return context.load (type, args);
+    }
 
-                latch.countDown ();
-            }
-        }
+    public static void run (Class<?> type, String... args) throws InvocationTargetException {
+        context.run (type, args);
+    }
 
-        private void await () throws InterruptedException {
-            synchronized (LOCKER) {
-                LOCKER.wait ();
-            }
-        }
+    public static void run () throws InvocationTargetException {
+        context.run ();
+    }
 
-        private void signal () {
-            synchronized (LOCKER) {
-                LOCKER.notifyAll ();
-            }
-        }
+    public static void prettyPrint (Properties props, Logger logger) {
+        BootloaderContext.prettyPrint (props, logger);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package org.dreamwork.app.bootloader;
+
+import com.google.gson.Gson;
+import org.dreamwork.cli.Argument;
+import org.dreamwork.util.IOUtil;
+import org.dreamwork.util.StringUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读取 json 格式的命令行参数定义. 运行时和编译期的注解处理器共用同一套规则.
+ *
+ * <p>启动器内置的参数定义在构建启动器时编译成 {@link #BUILTIN_TABLE}，应用的参数定义编译成各自的
+ * {@link IArgumentTable}. 运行时仅在找不到编译好的参数表时才读取 json，Gson 的加载被限制在这个类中.</p>
+ */
+public final class ArgumentDefinitions {
+    /** 启动器内置的参数定义 */
+    public static final String BUILTIN = "application-bootloader.json";
+    /** 构建启动器时由 {@link #BUILTIN} 生成的参数表 */
+    static final String BUILTIN_TABLE = "org.dreamwork.app.bootloader.BuiltinArguments" + IArgumentTable.SUFFIX;
+
+    private ArgumentDefinitions () {}
+
+    /**
+     * 获取 {@link IBootable} 类型的参数定义资源名称
+     * @param className 类型的二进制名称
+     * @param argumentDef {@link IBootable#argumentDef()}
+     * @return 资源名称
+     */
+    public static String resourceName (String className, String argumentDef) {
+        if (StringUtil.isEmpty (argumentDef)) {
+            return StringUtil.camelDecode (className, '-') + ".json";
+        }
+        return argumentDef;
+    }
+
+    public static List<Argument> parse (String content) {
+        return new Gson ().fromJson (content, Argument.AS_LIST);
+    }
+
+    /**
+     * 将参数合并到 map 中. 键是短选项，没有短选项时是长选项，后加入的定义覆盖先前的
+     */
+    public static void merge (Map<String, Argument> map, List<Argument> list) {
+        if (list == null) {
+            return;
+        }
+        list.forEach (item -> {
+            String key = item.shortOption;
+            if (StringUtil.isEmpty (key)) {
+                key = item.longOption;
+            }
+            if (!StringUtil.isEmpty (key)) {
+                map.put (key, item);
+            }
+        });
+    }
+
+    static void load (ClassLoader loader, Map<String, Argument> map, String name) {
+        try (InputStream in = loader.getResourceAsStream (name)) {
+            if (in != null) {
+                merge (map, parse (new String (IOUtil.read (in), StandardCharsets.UTF_8)));
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException (ex);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.dreamwork.app.bootloader;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 启动过程中各阶段的纳秒级时间线.
+ *
+ * <p>用法:</p>
+ * <pre>
+ * try (BootTimeline.Phase phase = timeline.begin ("config")) {
+ *     ...
+ * }
+ * </pre>
+ * 所有时间都是相对于时间线创建时刻 (即 <code>load()</code> 被调用时) 的偏移量.
+ *
+ * <p>预热阶段 ({@link #WARMUP} 及以 <code>warmup.</code> 开头的阶段) 不计入启动耗时，单独由 {@link #getWarmUp()} 报告.</p>
+ */
+public final class BootTimeline {
+    /** 预热阶段的名称 */
+    public static final String WARMUP = "warmup";
+
+    private final long origin = System.nanoTime ();
+    private final long timestamp = System.currentTimeMillis ();
+    private final List<Phase> phases = new CopyOnWriteArrayList<> ();
+
+    BootTimeline () {}
+
+    /**
+     * 开始一个阶段
+     * @param name 阶段名称
+     * @return 阶段，调用 {@link Phase#close()} 结束
+     */
+    public Phase begin (String name) {
+        Phase phase = new Phase (name, System.nanoTime () - origin);
+        phases.add (phase);
+        return phase;
+    }
+
+    /**
+     * @return 时间线开始的时刻，epoch 毫秒
+     */
+    public long getTimestamp () {
+        return timestamp;
+    }
+
+    /**
+     * @return 按开始时间排序的所有阶段
+     */
+    public List<Phase> getPhases () {
+        List<Phase> list = new ArrayList<> (phases);
+        list.sort ((a, b) -> Long.compare (a.start, b.start));
+        return Collections.unmodifiableList (list);
+    }
+
+    /**
+     * @return 所有阶段，按开始的顺序，不复制
+     */
+    List<Phase> phases () {
+        return phases;
+    }
+
+    /**
+     * 查找指定名称的阶段
+     * @param name 阶段名称
+     * @return 阶段，若不存在返回 null
+     */
+    public Phase getPhase (String name) {
+        for (Phase phase : phases) {
+            if (phase.name.equals (name)) {
+                return phase;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 从时间线开始到最后一个已结束的非预热阶段的纳秒数
+     */
+    public long getElapsed () {
+        long end = 0;
+        for (Phase phase : phases) {
+            if (phase.end > end && !isWarmUp (phase.name)) {
+                end = phase.end;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return 预热的纳秒数，没有预热时为 0
+     */
+    public long getWarmUp () {
+        Phase phase = getPhase (WARMUP);
+        return phase == null ? 0 : phase.getDuration ();
+    }
+
+    private static boolean isWarmUp (String name) {
+        return name.equals (WARMUP) || name.startsWith (WARMUP + ".");
+    }
+
+    void print (PrintStream out) {
+        List<Phase> list = getPhases ();
+        int length = 0;
+        for (Phase phase : list) {
+            length = Math.max (length, phase.name.length ());
+        }
+        out.println ("### boot timeline ###");
+        for (Phase phase : list) {
+            StringBuilder builder = new StringBuilder (phase.name);
+            while (builder.length () < length) {
+                builder.append (' ');
+            }
+            builder.append (String.format (" : +%10.3f ms %10.3f ms", phase.start / 1e6, phase.getDuration () / 1e6));
+            if (!phase.isClosed ()) {
+                builder.append (" (running)");
+            }
+            out.println (builder);
+        }
+        out.printf ("total: %.3f ms%n", getElapsed () / 1e6);
+        if (getPhase (WARMUP) != null) {
+            out.printf ("warm-up: %.3f ms%n", getWarmUp () / 1e6);
+        }
+        out.println ("#####################");
+    }
+
+    /**
+     * 以 json 格式写入文件
+     * @param path 目标文件
+     * @throws IOException io exception
+     */
+    void write (Path path) throws IOException {
+        Path parent = path.toAbsolutePath ().getParent ();
+        if (parent != null) {
+            Files.createDirectories (parent);
+        }
+        try (Writer writer = Files.newBufferedWriter (path, StandardCharsets.UTF_8)) {
+            writer.write ("{\"timestamp\":" + timestamp + ",\"total_ns\":" + getElapsed () + ",\"warmup_ns\":" + getWarmUp () + ",\"phases\":[");
+            boolean first = true;
+            for (Phase phase : getPhases ()) {
+                if (!first) {
+                    writer.write (',');
+                }
+                first = false;
+                writer.write ("{\"name\":\"" + phase.name.replace ("\\", "\\\\").replace ("\"", "\\\"") +
+                        "\",\"start_ns\":" + phase.start +
+                        ",\"duration_ns\":" + phase.getDuration () +
+                        ",\"closed\":" + phase.isClosed () + "}");
+            }
+            writer.write ("]}");
+            writer.write (System.lineSeparator ());
+        }
+    }
+
+    /**
+     * 启动过程中的一个阶段
+     */
+    public final class Phase implements AutoCloseable {
+        private final String name;
+        private final long start;
+        private volatile long end = -1;
+
+        private Phase (String name, long start) {
+            this.name = name;
+            this.start = start;
+        }
+
+        public String getName () {
+            return name;
+        }
+
+        /**
+         * @return 相对于时间线开始时刻的纳秒偏移
+         */
+        public long getStart () {
+            return start;
+        }
+
+        /**
+         * @return 阶段持续的纳秒数，若阶段尚未结束，返回到目前为止的耗时
+         */
+        public long getDuration () {
+            long e = end;
+            return (e < 0 ? System.nanoTime () - origin : e) - start;
+        }
+
+        public boolean isClosed () {
+            return end >= 0;
+        }
+
+        @Override
+        public void close () {
+            if (end < 0) {
+                end = System.nanoTime () - origin;
+            }
+        }
+    }
+}
@@ -0,0 +1,1939 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.app.bootloader.logging.AsyncFileHandler;
+import org.dreamwork.cli.Argument;
+import org.dreamwork.cli.ArgumentParser;
+import org.dreamwork.config.CompactProperties;
+import org.dreamwork.config.EnhancedConfiguration;
+import org.dreamwork.config.IConfiguration;
+import org.dreamwork.config.KeyAccessProfiler;
+import org.dreamwork.config.ProfiledConfiguration;
+import org.dreamwork.config.PropertyConfiguration;
+import org.dreamwork.util.FileInfo;
+import org.dreamwork.util.StringUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.stream.Collectors;
+
+/**
+ * 启动器上下文. 一个上下文对应一个启动的应用，持有该应用的命令行参数、配置缓存、监视器和启动时间线.
+ *
+ * <p>{@link ApplicationBootloader} 的静态方法是默认上下文的门面，单应用的使用方式不变.
+ * 需要在同一个 JVM 中运行多个应用（或并行运行多个启动测试）时，每个应用使用自己的上下文:</p>
+ * <pre>
+ * try (BootloaderContext ctx = new BootloaderContext ("orders")) {
+ *     ctx.run (OrderService.class, "-c", "../conf/orders.conf");
+ * }
+ * </pre>
+ *
+ * <p>日志系统在 JVM 中是全局的: 默认上下文总是按自己的参数配置日志，
+ * 其他上下文只有在日志尚未被任何上下文配置时才会配置它.</p>
+ *
+ * <p>只有默认上下文会退出 JVM (<code>-h</code>、命令行解析器无法创建、<code>--cds-train</code>).
+ * 其他上下文在这些情况下从 {@link #load(Class, String...)} 抛出 {@link IllegalArgumentException}
+ * 或 {@link IllegalStateException}，不影响同一 JVM 中的其他应用.</p>
+ *
+ * <p>虚拟线程模式 (<code>--virtual-threads</code> 或 <code>virtual.threads.enabled = true</code>, 需要 JDK 21)
+ * 下入口在虚拟线程上执行，{@link #getExecutor()} 返回每个任务一个虚拟线程的执行器.
+ * 启动器中所有可能阻塞的路径 (配置的读取和等待、日志的初始化) 都不在对象监视器内阻塞，不会占住载体线程.</p>
+ */
+@SuppressWarnings ("all")
+public final class BootloaderContext implements AutoCloseable {
+    /** 默认上下文的名称 */
+    public static final String DEFAULT_NAME = "default";
+
+    /** 日志系统是否已被某个上下文配置 */
+    private static final AtomicBoolean loggingConfigured = new AtomicBoolean ();
+    /** 选择了异步日志时的文件处理器，和日志系统一样是 JVM 全局的 */
+    private static volatile AsyncFileHandler asyncLogHandler;
+
+    private final String name;
+    /** 是否是 {@link ApplicationBootloader} 使用的默认上下文 */
+    private final boolean primary;
+
+    private final ConcurrentMap<String, IConfiguration> context = new ConcurrentHashMap<> ();
+    /** 正在加载中的扩展配置，同一名称的并发调用者共享同一个 future */
+    private final SingleFlight<IConfiguration> loading = new SingleFlight<> ();
+    /** 已加载配置的版本号，每次加载、重新加载或移除配置时递增 */
+    private final AtomicLong configVersion = new AtomicLong ();
+    /** 最近一次构建的配置快照，在 {@link #getSnapshot()} 时按需构建 */
+    private final AtomicReference<ConfigurationSnapshot> snapshot = new AtomicReference<> (ConfigurationSnapshot.EMPTY);
+    private final List<IConfigurationListener> listeners = new CopyOnWriteArrayList<> ();
+    private ExtConfigurationWatcher watcher;
+    /** 扩展配置目录中存在的配置，不存在的配置不会进入加载流程 */
+    private volatile ExtConfigurationIndex extIndex;
+    private volatile BootTimeline timeline = new BootTimeline ();
+    private final ConfigurationMetrics metrics = new ConfigurationMetrics ();
+    /** 类型化的配置绑定 */
+    private final ConcurrentMap<Class<?>, Binding<?>> bindings = new ConcurrentHashMap<> ();
+    /** --config-cache 指定的配置快照 */
+    private volatile ConfigurationCache configCache;
+    private Thread configCacheHook;
+    /** 已注册的 mbean 名称 */
+    private ObjectName mbean;
+    /** Prometheus 指标端点 */
+    private volatile MetricsEndpoint metricsEndpoint;
+    /** 启动时合并的分层配置 */
+    private volatile ConfigurationLayers layers;
+    /** 配置键的访问统计，未开启时为 null */
+    private volatile KeyAccessProfiler profiler;
+    private Thread profilerHook;
+    /** 配置是否保存在 {@link CompactProperties} 中 */
+    private volatile boolean compactConfig;
+
+    private ArgumentParser parser = null;
+
+    private Logger logger;
+
+    private Class<?> type;
+    private String[] args;
+    /** load() 期间在后台预解析的入口 */
+    private volatile CompletableFuture<Entrance> pendingEntrance;
+    /** 是否运行在虚拟线程模式下 */
+    private volatile boolean virtualThreads;
+    /** 提供给应用的执行器，首次使用时创建 */
+    private final AtomicReference<ExecutorService> executor = new AtomicReference<> ();
+    /** 入口返回 (或调用 {@link #signalReady()}) 且预热完成后完成 */
+    private volatile CompletableFuture<BootTimeline> readiness = new CompletableFuture<> ();
+    /** 本次启动是否已开始预热和宣告就绪，保证只进行一次 */
+    private final AtomicBoolean readySignalled = new AtomicBoolean ();
+    /** 已写入的就绪标记文件 */
+    private volatile Path readyFile;
+
+    /**
+     * 创建一个独立的启动器上下文
+     * @param name 上下文名称，用于区分 mbean 和线程
+     */
+    public BootloaderContext (String name) {
+        this (name, false);
+    }
+
+    BootloaderContext (String name, boolean primary) {
+        if (StringUtil.isEmpty (name)) {
+            throw new IllegalArgumentException ("name of the context is empty");
+        }
+        this.name = name;
+        this.primary = primary;
+    }
+
+    public String getName () {
+        return name;
+    }
+
+    /**
+     * @return 是否运行在虚拟线程模式下
+     */
+    public boolean isVirtualThreads () {
+        return virtualThreads;
+    }
+
+    /**
+     * 获取由启动器管理的执行器，上下文关闭时关闭.
+     *
+     * <p>虚拟线程模式下每个任务在一个新的虚拟线程上执行，否则是一个由守护线程组成的可伸缩线程池.</p>
+     *
+     * @return 执行器
+     */
+    public ExecutorService getExecutor () {
+        ExecutorService service = executor.get ();
+        if (service == null) {
+            ExecutorService created = virtualThreads ? VirtualThreads.newExecutor ("bootloader-" + name + "-worker-") : workerPool (name);
+            if (executor.compareAndSet (null, created)) {
+                service = created;
+            } else {
+                created.shutdown ();
+                service = executor.get ();
+            }
+        }
+        return service;
+    }
+
+    /**
+     * @return 应用是否已就绪，即入口已返回 (或已调用 {@link #signalReady()}) 且所有 {@link WarmUp} 方法已执行完成
+     */
+    public boolean isReady () {
+        return readiness.isDone ();
+    }
+
+    /**
+     * 注册就绪监听器，应用已就绪时立即回调.
+     *
+     * <p>就绪在入口返回后宣告. 入口阻塞 (如启动服务后一直等待) 时，入口必须在服务启动后调用 {@link #signalReady()}，
+     * 否则 {@link WarmUp} 方法不会执行，监听器也永远不会被回调.</p>
+     * @param listener 监听器
+     */
+    public void addReadinessListener (IReadinessListener listener) {
+        readiness.thenAccept (timeline -> {
+            try {
+                listener.onReady (timeline);
+            } catch (RuntimeException ex) {
+                LoggerFactory.getLogger (BootloaderContext.class).warn ("readiness listener failed", ex);
+            }
+        });
+    }
+
+    public boolean isArgPresent (String option) {
+        return parser.isArgPresent (option);
+    }
+
+    public boolean isArgPresent (char option) {
+        return parser.isArgPresent (option);
+    }
+
+    public IConfiguration getRootConfiguration () {
+        return context.get ("root");
+    }
+
+    /**
+     * 获取启动时合并的分层配置，可以查看根配置中每个键的来源
+     * @return 分层配置，<code>load()</code> 之前为 null
+     */
+    public ConfigurationLayers getConfigurationLayers () {
+        return layers;
+    }
+
+    /**
+     * 获取最近一次启动过程的时间线，包括 <code>load()</code> 的各个阶段及 <code>run()</code> 中入口的查找和调用
+     * @return 启动时间线
+     */
+    public BootTimeline getBootTimeline () {
+        return timeline;
+    }
+
+    /**
+     * 获取当前所有已加载配置的不可变快照.
+     *
+     * <p>快照在调用时按需构建，配置没有变化时重复调用返回同一个快照. 加载配置本身不复制任何数据，
+     * 只递增版本号.</p>
+     * @return 配置快照
+     */
+    public ConfigurationSnapshot getSnapshot () {
+        ConfigurationSnapshot current = snapshot.get ();
+        long version = configVersion.get ();
+        if (current.getVersion () == version) {
+            return current;
+        }
+        // taken before copying, a change during the copy makes the next call build again
+        ConfigurationSnapshot built = new ConfigurationSnapshot (version, context);
+        // another thread may have built a newer one meanwhile
+        return snapshot.accumulateAndGet (built, (prev, next) -> prev.getVersion () >= next.getVersion () ? prev : next);
+    }
+
+    /**
+     * 注册扩展配置变更监听器. 只有在监视模式下才会收到通知.
+     * @param listener 监听器
+     */
+    public void addConfigurationListener (IConfigurationListener listener) {
+        listeners.add (listener);
+    }
+
+    public void removeConfigurationListener (IConfigurationListener listener) {
+        listeners.remove (listener);
+    }
+
+    /**
+     * 从缓存中移除指定名称的扩展配置，下一次 {@link #getConfiguration(String)} 将重新从磁盘加载.
+     * 扩展配置目录的索引随之重新检查这个名称，刚放入目录的文件立即可见
+     * @param name 配置名称
+     */
+    public void invalidateConfiguration (String name) {
+        ExtConfigurationIndex index = extIndex;
+        if (index != null) {
+            // a single stat instead of listing the whole dir
+            index.refresh (name);
+        }
+        if (!"root".equals (name) && context.remove (name) != null) {
+            publish ();
+        }
+    }
+
+    /**
+     * 获取指定名称的扩展配置，即 <code>${ext.conf.dir}/&lt;name&gt;.conf</code>.
+     *
+     * <p>命中缓存时只是一次无锁的读操作；未命中时，同一名称的并发调用者共享同一次加载，
+     * 不同名称的加载互不阻塞. 扩展配置目录中不存在的配置由目录的索引直接返回 null，同样是无锁的，
+     * 目录中增加文件后索引在 <code>ext.conf.index.interval</code> 毫秒 (默认 1000) 内更新，监视模式下随监视事件更新.
+     * 注意非监视模式下新建的配置文件在这段时间内仍返回 null，而不是像以前一样立即可见.
+     * 索引只覆盖目录顶层的配置，<code>db/mysql</code> 这样包含路径分隔符的名称仍按文件查找.</p>
+     *
+     * <p>第一个未命中的调用者在自己的线程中加载，其他调用者等待它的结果，等待时不响应中断 (中断状态会被保留).
+     * 需要限制等待时间或响应中断时使用 {@link #getConfiguration(String, long, TimeUnit)} 或 {@link #getConfigurationAsync(String)}.</p>
+     *
+     * @param name 配置名称
+     * @return 配置，若配置文件不存在返回 null
+     */
+    public IConfiguration getConfiguration (String name) {
+        IConfiguration conf = context.get (name);
+        if (conf != null) {
+            metrics.hits.increment ();
+            return conf;
+        }
+        if (absent (name)) {
+            return null;
+        }
+
+        metrics.misses.increment ();
+        CompletableFuture<IConfiguration> future = new CompletableFuture<> ();
+        CompletableFuture<IConfiguration> inflight = loading.register (name, future);
+        if (inflight != null) {
+            // another thread is loading the same configuration, share its result
+            long start = System.nanoTime ();
+            try {
+                return SingleFlight.result (inflight, name);
+            } finally {
+                metrics.waits.increment ();
+                metrics.waitNanos.add (System.nanoTime () - start);
+            }
+        }
+        return load (name, future);
+    }
+
+    /**
+     * 异步获取指定名称的扩展配置.
+     *
+     * <p>命中缓存或配置不存在时返回已完成的 future；否则加载在 {@link #getExecutor()} 中进行，
+     * 同一名称的并发调用者 (包括 {@link #getConfiguration(String)} 的调用者) 共享同一次加载.
+     * 每个调用者得到的是各自的 future，取消它只是放弃等待，不会取消共享的加载.</p>
+     *
+     * @param name 配置名称
+     * @return 配置的 future，配置文件不存在时结果为 null
+     */
+    public CompletableFuture<IConfiguration> getConfigurationAsync (String name) {
+        IConfiguration conf = context.get (name);
+        if (conf != null) {
+            metrics.hits.increment ();
+            return CompletableFuture.completedFuture (conf);
+        }
+        if (absent (name)) {
+            return CompletableFuture.completedFuture (null);
+        }
+
+        metrics.misses.increment ();
+        CompletableFuture<IConfiguration> future = new CompletableFuture<> ();
+        CompletableFuture<IConfiguration> inflight = loading.register (name, future);
+        if (inflight == null) {
+            inflight = future;
+            try {
+                getExecutor ().execute (() -> {
+                    try {
+                        load (name, future);
+                    } catch (RuntimeException | Error ex) {
+                        // delivered through the future
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                loading.abort (name, future, ex);
+            }
+        }
+        return inflight.thenApply (Function.identity ());
+    }
+
+    /**
+     * 获取指定名称的扩展配置，最多等待指定的时间.
+     *
+     * <p>加载在 {@link #getExecutor()} 中进行，调用者超时或被中断后加载仍会继续，之后的调用者共享它的结果.</p>
+     *
+     * @param name    配置名称
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return 配置，若配置文件不存在返回 null
+     * @throws InterruptedException 等待时被中断
+     * @throws TimeoutException     在指定的时间内没有加载完成
+     */
+    public IConfiguration getConfiguration (String name, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        CompletableFuture<IConfiguration> future = getConfigurationAsync (name);
+        if (future.isDone ()) {
+            return SingleFlight.result (future, name);
+        }
+
+        long start = System.nanoTime ();
+        try {
+            return future.get (timeout, unit);
+        } catch (ExecutionException ex) {
+            return SingleFlight.result (future, name);
+        } finally {
+            metrics.waits.increment ();
+            metrics.waitNanos.add (System.nanoTime () - start);
+        }
+    }
+
+    /**
+     * @return 配置是否确定不存在
+     */
+    private boolean absent (String name) {
+        ExtConfigurationIndex index = extIndex;
+        // nested names such as "db/mysql" are not indexed, they are looked up on the file system as before
+        if (index != null && !"root".equals (name) && ExtConfigurationIndex.covers (name) && !index.contains (name)) {
+            metrics.absents.increment ();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 加载扩展配置并完成 future. future 必须已经登记在 {@link #loading} 中.
+     *
+     * <p>无论加载正常返回还是抛出任何异常 (包括 {@link Error})，future 都会被完成，否则等待它的调用者将永远阻塞.</p>
+     */
+    private IConfiguration load (String name, CompletableFuture<IConfiguration> future) {
+        return loading.run (name, future, () -> {
+            // check the cache again, 'cause between the first lookup and the registration of our future,
+            // another thread might have loaded the configuration and stored it in the cache.
+            IConfiguration conf = context.get (name);
+            if (conf == null) {
+                conf = loadExtProperties (context.get ("root"), name);
+                if (conf != null) {
+                    IConfiguration prev = context.putIfAbsent (name, conf);
+                    if (prev != null) {
+                        conf = prev;
+                    } else {
+                        publish ();
+                    }
+                }
+            }
+            return conf;
+        });
+    }
+
+    public IConfiguration load (Class<?> type, String... args) {
+        BootTimeline timeline = this.timeline = new BootTimeline ();
+        if (readiness.isDone ()) {
+            readiness = new CompletableFuture<> ();
+        }
+        readySignalled.set (false);
+        this.type = type;
+        this.args = args;
+        ClassLoader loader = BootloaderContext.class.getClassLoader ();
+
+        // 相互独立的步骤在后台线程中与主线程重叠执行: 探测 log4j, 读取配置文件, 预解析入口
+        ExecutorService boot = bootExecutor (name);
+        try {
+            return load (boot, loader, timeline);
+        } finally {
+            boot.shutdown ();
+        }
+    }
+
+    private IConfiguration load (ExecutorService boot, ClassLoader loader, BootTimeline timeline) {
+        CompletableFuture<Boolean> log4j = background (boot, timeline, "logger.probe", () -> {
+            try {
+                // loading the class pulls in a large part of log4j, keep it off the main thread
+                Class.forName ("org.apache.log4j.PropertyConfigurator");
+                return true;
+            } catch (ClassNotFoundException ex) {
+                // log4j not exists.
+                return false;
+            }
+        });
+
+        Map<String, Argument> map = new HashMap<> ();
+        try (BootTimeline.Phase phase = timeline.begin ("arguments.load")) {
+            // the builtin arguments always come from the running bootloader jar, never from the one the
+            // application was compiled against
+            IArgumentTable builtin = newArgumentTable (ArgumentDefinitions.BUILTIN_TABLE, loader);
+            if (builtin != null) {
+                ArgumentDefinitions.merge (map, builtin.getArguments ());
+            } else {
+                // the bootloader was built without the builtin-arguments step, e.g. by an ide
+                ArgumentDefinitions.load (loader, map, ArgumentDefinitions.BUILTIN);
+            }
+            IArgumentTable table = findArgumentTable (type);
+            if (table != null) {
+                // the application's own arguments, precompiled at build time
+                ArgumentDefinitions.merge (map, table.getArguments ());
+            } else if (type != null && type.isAnnotationPresent (IBootable.class)) {
+                IBootable ib = type.getAnnotation (IBootable.class);
+                ArgumentDefinitions.load (loader, map, ArgumentDefinitions.resourceName (type.getName (), ib.argumentDef ()));
+            }
+        }
+
+        try (BootTimeline.Phase phase = timeline.begin ("arguments.parse")) {
+            if (!map.isEmpty ()) {
+                parser = new ArgumentParser (new ArrayList<> (map.values ()));
+            }
+
+            if (parser == null) {
+                if (!primary) {
+                    throw new IllegalStateException ("can't initial command line parser");
+                }
+                System.err.println ("can't initial command line parser");
+                System.exit (-1);
+                return null;
+            }
+
+            parser.parse (args);
+        }
+
+        if (parser.isArgPresent ('h')) {
+            parser.showHelp ();
+            if (!primary) {
+                throw new IllegalArgumentException ("help requested, context [" + name + "] is not loaded");
+            }
+            System.exit (0);
+        }
+
+        if (parser.isArgPresent ("cds-train")) {
+            if (!primary) {
+                // training relaunches the whole jvm and exits, that's not for a co-hosted application
+                throw new IllegalArgumentException ("--cds-train is only supported by the default context");
+            }
+            List<String> rest = new ArrayList<> (Arrays.asList (args));
+            rest.remove ("--cds-train");
+            int code;
+            try {
+                code = new CdsSupport (option ("cds-archive")).train (rest.toArray (new String[0]), Long.parseLong (option ("cds-warmup").trim ()));
+                System.out.println ("### CDS training finished with exit code " + code + " ###");
+            } catch (Exception ex) {
+                System.err.println ("CDS training failed: " + ex.getMessage ());
+                code = -1;
+            }
+            System.exit (code);
+            return null;
+        }
+
+        // the config file doesn't depend on the logger, read it while the logger is being configured
+        String configFile = configFile (parser);
+        String cacheFile = parser.isArgPresent ("config-cache") ? parser.getValue ("config-cache") : null;
+        CompletableFuture<Properties> config = background (boot, timeline, "config.read", () -> {
+            try {
+                ConfigurationCache cache = null;
+                if (!StringUtil.isEmpty (cacheFile)) {
+                    cache = ConfigurationCache.open (Paths.get (cacheFile.trim ()));
+                }
+                configCache = cache;
+                return readConfig (configFile, cache);
+            } catch (IOException ex) {
+                throw new CompletionException (ex);
+            }
+        });
+
+        // the logging system is global to the jvm, only the default context or the first one configures it
+        boolean configureLogging;
+        if (primary) {
+            loggingConfigured.set (true);
+            configureLogging = true;
+        } else {
+            configureLogging = loggingConfigured.compareAndSet (false, true);
+        }
+        if (configureLogging) {
+            try (BootTimeline.Phase phase = timeline.begin ("logger")) {
+                initLogger (loader, parser, join (log4j));
+            } catch (IOException ex) {
+                throw new RuntimeException (ex);
+            }
+        }
+
+        logger = LoggerFactory.getLogger (ApplicationBootloader.class);
+
+        // the logging system is ready, the entrance method can be looked up in background. the class is not
+        // initialized here: its static initializer may read the configuration, which is not loaded yet, so that
+        // is left to the invocation in run ()
+        if (type != null) {
+            Class<?> target = type;
+            pendingEntrance = background (boot, timeline, "entrance.preload", () -> {
+                try {
+                    return Entrance.resolve (target);
+                } catch (ReflectiveOperationException ex) {
+                    throw new CompletionException (ex);
+                }
+            });
+        } else {
+            pendingEntrance = null;
+        }
+
+        if (CdsSupport.isTraining ()) {
+            // we are the child jvm of --cds-train, exit after warming up so that the archive is dumped
+            CdsSupport.scheduleTrainingExit ();
+        } else {
+            try (BootTimeline.Phase phase = timeline.begin ("cds.check")) {
+                new CdsSupport (option ("cds-archive")).check (logger);
+            }
+        }
+
+        try {
+            BootTimeline.Phase phase = timeline.begin ("config.parse");
+            Properties props = parseConfig (configFile, join (config), logger);
+            phase.close ();
+
+            phase = timeline.begin ("config.layers");
+            ConfigurationLayers layers = ConfigurationLayers.flatten (
+                    defaultLayer (parser, type), props, System.getenv (), System.getProperties (), commandLineLayer (parser));
+            this.layers = layers;
+            if (logger.isTraceEnabled ()) {
+                logger.trace ("layered configuration:");
+                layers.print (logger);
+            }
+            compactConfig = Boolean.parseBoolean (layers.get ("config.compact"));
+            EnhancedConfiguration configuration = new EnhancedConfiguration (layers.toProperties (), compactConfig);
+            if (configCache != null) {
+                // placeholders resolved in the last run from the file only, the keys from other layers invalidate them
+                Set<String> others = new HashSet<> (layers.getEntries ().keySet ());
+                others.removeAll (layers.keysFrom (ConfigurationLayers.Layer.FILE));
+                configuration.prime (configCache.resolvedRoot (), others);
+            }
+            if (compactConfig) {
+                // the merged values now live in the compact root, keep only where they came from
+                layers = layers.provenance (configuration);
+                this.layers = layers;
+            }
+            if (configuration.getBoolean ("config.profile", false)) {
+                startProfiler (configuration);
+            }
+            virtualThreads = configuration.getBoolean ("virtual.threads.enabled", false);
+            if (virtualThreads && !VirtualThreads.isSupported ()) {
+                logger.warn ("virtual threads are not supported by java {}, using platform threads", System.getProperty ("java.version"));
+                virtualThreads = false;
+            }
+            context.putIfAbsent ("root", configuration);
+            extIndex = new ExtConfigurationIndex (Paths.get (configuration.getString ("ext.conf.dir")),
+                    configuration.getLong ("ext.conf.index.interval", 1000L));
+            publish ();
+            phase.close ();
+
+            // the marker of the last run must not be taken for this one
+            String marker = configuration.getString ("ready.file");
+            if (!StringUtil.isEmpty (marker)) {
+                Files.deleteIfExists (Paths.get (marker.trim ()));
+            }
+
+            if (parser.isArgPresent ('X') || configuration.getBoolean ("jmx.enabled", false)) {
+                registerMBean ();
+            }
+
+            if (configuration.getBoolean ("metrics.enabled", false)) {
+                // creating the http server takes a while, nothing in the boot waits for it
+                int port = configuration.getInt ("metrics.port", 0);
+                background (boot, timeline, "metrics", () -> {
+                    startMetrics (port);
+                    return null;
+                });
+            }
+
+            if (configuration.getBoolean ("ext.conf.watch", false)) {
+                try (BootTimeline.Phase p = timeline.begin ("ext.watch")) {
+                    startWatcher (configuration);
+                }
+            }
+
+            if (configuration.getBoolean ("ext.conf.preload", false)) {
+                try (BootTimeline.Phase p = timeline.begin ("ext.preload")) {
+                    preload (configuration);
+                }
+            }
+        } catch (Exception ex) {
+            logger.warn (ex.getMessage (), ex);
+            throw new RuntimeException (ex);
+        }
+
+        if (logger.isTraceEnabled ()) {
+            logger.trace ("configurations load complete, trying to start application");
+        }
+
+        BootTimeline.Phase validate = timeline.begin ("arguments.validate");
+        List<Argument> arguments = parser.getAllArguments ().stream()
+                .filter (a -> a.required)
+                .collect(Collectors.toList());
+        PropertyConfiguration conf = (PropertyConfiguration) getRootConfiguration ();
+        for (Argument a : arguments) {
+            boolean found = false;
+            String message = "the mandatory option: ";
+            if (!StringUtil.isEmpty (a.propKey)) {
+                if (!conf.contains (a.propKey)) {
+                    if (!StringUtil.isEmpty (a.longOption)) {
+                        message += "--" + a.longOption;
+                        found = true;
+                    } else if (!StringUtil.isEmpty (a.shortOption)) {
+                        message += "-" + a.shortOption;
+                        found = true;
+                    }
+                }
+            } else {
+                if (!StringUtil.isEmpty (a.longOption)) {
+                    if (!parser.isArgPresent (a.longOption)) {
+                        message += "--" + a.longOption;
+                        found = true;
+                    }
+                } else if (!StringUtil.isEmpty (a.shortOption)) {
+                    if (!parser.isArgPresent (a.shortOption)) {
+                        message += "-" + a.shortOption;
+                        found = true;
+                    }
+                }
+            }
+            if (found) {
+                message += " is not provided";
+                System.err.println (message);
+                parser.showHelp ();
+            }
+        }
+        validate.close ();
+
+        try (BootTimeline.Phase phase = timeline.begin ("config.bind")) {
+            bindAll (loader);
+        }
+        if (configCache != null) {
+            scheduleConfigCache ();
+        }
+        reportTimeline ();
+
+        return getRootConfiguration ();
+    }
+
+    public void run (Class<?> type, String... args) throws InvocationTargetException {
+        load (type, args);
+        run ();
+    }
+
+    public void run () throws InvocationTargetException {
+        if (null != type) {
+            Entrance entrance;
+            CompletableFuture<Entrance> pending = pendingEntrance;
+            pendingEntrance = null;
+            try (BootTimeline.Phase phase = timeline.begin ("entrance.resolve")) {
+                if (pending != null) {
+                    // resolved in background while loading the configurations
+                    entrance = pending.join ();
+                } else {
+                    entrance = Entrance.resolve (type);
+                }
+            } catch (CompletionException ex) {
+                Throwable cause = ex.getCause () != null ? ex.getCause () : ex;
+                logger.warn (cause.getMessage (), cause);
+                throw new InvocationTargetException (cause);
+            } catch (ReflectiveOperationException ex) {
+                logger.warn (ex.getMessage (), ex);
+                throw new InvocationTargetException (ex);
+            }
+
+            if (entrance == null) {
+                logger.error ("Can't find application entrance within type {}", type);
+                return;
+            }
+
+            if (logger.isTraceEnabled ()) {
+                logger.trace ("invoking entrance {}.{} ({})", type.getName (), entrance.name, entrance.kind);
+            }
+            try (BootTimeline.Phase phase = timeline.begin ("entrance.invoke")) {
+                reportTimeline ();
+                IConfiguration conf = getRootConfiguration ();
+                String[] args = this.args;
+                if (virtualThreads) {
+                    onVirtualThread ("main-", () -> entrance.invoke (conf, args));
+                } else {
+                    entrance.invoke (conf, args);
+                }
+            } catch (Throwable ex) {
+                logger.warn (ex.getMessage (), ex);
+                throw new InvocationTargetException (ex);
+            }
+            if (readySignalled.compareAndSet (false, true)) {
+                warmUp ();
+                ready ();
+                reportTimeline ();
+            }
+        } else {
+            logger.error ("Can't find entrance type!!");
+            throw new IllegalArgumentException ("Can't find entrance type!!");
+        }
+    }
+
+    /**
+     * 由阻塞的入口在应用启动完成后调用: 在调用者的线程中执行 {@link WarmUp} 方法，然后宣告应用就绪.
+     *
+     * <p>入口返回时启动器会自动做同样的事，所以不阻塞的入口不需要调用它. 每次启动只生效一次，重复调用或
+     * 入口返回后再调用都会被忽略.</p>
+     * <pre>
+     * &#64;ApplicationEntrance
+     * public static void start (IConfiguration conf) throws Exception {
+     *     server.start ();
+     *     ApplicationBootloader.signalReady ();
+     *     server.join ();
+     * }
+     * </pre>
+     * @throws IllegalStateException     上下文尚未加载
+     * @throws InvocationTargetException 预热方法抛出了异常
+     */
+    public void signalReady () throws InvocationTargetException {
+        if (type == null) {
+            throw new IllegalStateException ("context [" + name + "] is not loaded");
+        }
+        if (readySignalled.compareAndSet (false, true)) {
+            warmUp ();
+            ready ();
+            reportTimeline ();
+        }
+    }
+
+    /**
+     * 执行启动类中的 {@link WarmUp} 方法，时间线上记录为 {@link BootTimeline#WARMUP} 阶段
+     */
+    private void warmUp () throws InvocationTargetException {
+        IConfiguration conf = getRootConfiguration ();
+        if (conf.getBoolean ("warmup.skip", false)) {
+            return;
+        }
+        BootTimeline timeline = this.timeline;
+        try (BootTimeline.Phase phase = timeline.begin (BootTimeline.WARMUP)) {
+            WarmUps warmUps = WarmUps.of (type);
+            if (warmUps != null) {
+                if (virtualThreads) {
+                    onVirtualThread ("warmup-", () -> warmUps.run (conf, timeline));
+                } else {
+                    warmUps.run (conf, timeline);
+                }
+            }
+        } catch (Throwable ex) {
+            if (ex instanceof InterruptedException) {
+                Thread.currentThread ().interrupt ();
+            }
+            logger.warn (ex.getMessage (), ex);
+            throw new InvocationTargetException (ex);
+        }
+    }
+
+    /**
+     * 宣告应用就绪: 写入就绪标记文件，通知监听器
+     */
+    private void ready () {
+        BootTimeline timeline = this.timeline;
+        IConfiguration conf = getRootConfiguration ();
+        String file = conf.getString ("ready.file");
+        if (!StringUtil.isEmpty (file)) {
+            Path path = Paths.get (file.trim ());
+            try {
+                writeReadyFile (path, timeline);
+                readyFile = path;
+                path.toFile ().deleteOnExit ();
+            } catch (IOException ex) {
+                logger.warn ("can't write the ready file " + path, ex);
+            }
+        }
+        logger.info ("application ready, started in {} ms, warmed up in {} ms",
+                String.format ("%.3f", timeline.getElapsed () / 1e6), String.format ("%.3f", timeline.getWarmUp () / 1e6));
+        readiness.complete (timeline);
+    }
+
+    /**
+     * 就绪标记文件是一个属性文件，先写临时文件再原子地替换，外部检查者不会读到不完整的内容
+     */
+    private void writeReadyFile (Path path, BootTimeline timeline) throws IOException {
+        String text = "context=" + name + System.lineSeparator () +
+                "pid=" + ManagementFactory.getRuntimeMXBean ().getName ().split ("@") [0] + System.lineSeparator () +
+                "startup.ns=" + timeline.getElapsed () + System.lineSeparator () +
+                "warmup.ns=" + timeline.getWarmUp () + System.lineSeparator () +
+                "timestamp=" + System.currentTimeMillis () + System.lineSeparator ();
+        Path parent = path.toAbsolutePath ().getParent ();
+        if (parent != null) {
+            Files.createDirectories (parent);
+        }
+        Path temp = Files.createTempFile (parent, path.getFileName ().toString (), ".tmp");
+        try {
+            Files.write (temp, text.getBytes (StandardCharsets.UTF_8));
+            try {
+                Files.move (temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move (temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists (temp);
+        }
+    }
+
+    /** 在虚拟线程上执行的任务 */
+    private interface Task {
+        void run () throws Throwable;
+    }
+
+    /**
+     * 在一个虚拟线程上执行任务，当前线程等待其结束. 当前线程被中断时中断任务线程
+     */
+    private void onVirtualThread (String suffix, Task task) throws Throwable {
+        AtomicReference<Throwable> error = new AtomicReference<> ();
+        Thread thread = VirtualThreads.factory ("bootloader-" + name + "-" + suffix).newThread (() -> {
+            try {
+                task.run ();
+            } catch (Throwable ex) {
+                error.set (ex);
+            }
+        });
+        if (logger.isTraceEnabled ()) {
+            logger.trace ("running on virtual thread {}", thread.getName ());
+        }
+        thread.start ();
+        try {
+            thread.join ();
+        } catch (InterruptedException ex) {
+            thread.interrupt ();
+            Thread.currentThread ().interrupt ();
+            throw ex;
+        }
+        if (error.get () != null) {
+            throw error.get ();
+        }
+    }
+
+    /**
+     * 非虚拟线程模式下提供给应用的线程池
+     */
+    private static ExecutorService workerPool (String name) {
+        AtomicInteger counter = new AtomicInteger ();
+        return Executors.newCachedThreadPool (r -> {
+            Thread t = new Thread (r, "bootloader-" + name + "-worker-" + counter.getAndIncrement ());
+            t.setDaemon (true);
+            return t;
+        });
+    }
+
+    /**
+     * 启动过程中的后台线程池. 两个线程足以覆盖同时进行的探测和读取，线程均为守护线程，
+     * <code>load()</code> 结束时关闭
+     */
+    private static ExecutorService bootExecutor (String name) {
+        AtomicInteger counter = new AtomicInteger ();
+        return Executors.newFixedThreadPool (2, r -> {
+            Thread t = new Thread (r, "bootloader-" + name + "-" + counter.incrementAndGet ());
+            t.setDaemon (true);
+            return t;
+        });
+    }
+
+    /**
+     * 在后台执行一个启动步骤，并记录到时间线
+     */
+    private static <T> CompletableFuture<T> background (ExecutorService executor, BootTimeline timeline,
+                                                        String name, Supplier<T> task) {
+        return CompletableFuture.supplyAsync (() -> {
+            try (BootTimeline.Phase phase = timeline.begin (name)) {
+                return task.get ();
+            }
+        }, executor);
+    }
+
+    /**
+     * 等待后台步骤完成，并按原样抛出其异常
+     */
+    private static <T> T join (CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join ();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause ();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private void initLogger (ClassLoader loader, ArgumentParser parser, boolean log4j) throws IOException {
+        String logLevel, logFile;
+        if (parser.isArgPresent ('v')) {
+            logLevel = "TRACE";
+        } else if (parser.isArgPresent ("log-level")) {
+            logLevel = parser.getValue ("log-level");
+        } else {
+            logLevel = parser.getDefaultValue ("log-level");
+        }
+
+        logFile = parser.getValue ("log-file");
+        if (StringUtil.isEmpty (logFile)) {
+            logFile = parser.getDefaultValue ("log-file");
+        }
+        File file = new File (logFile);
+        File parent = file.getParentFile ();
+        if (!parent.exists () && !parent.mkdirs ()) {
+            throw new IOException ("Can't create dir: " + parent.getCanonicalPath ());
+        }
+
+        if ("TRACE".equalsIgnoreCase (logLevel)) {
+            System.out.printf ("## log file: %s ##%n", file.getCanonicalFile ());
+        }
+
+        if (log4j)
+            initLog4J (loader, logLevel, logFile);
+        else
+            initJdkLogger (loader, logLevel, logFile);
+    }
+
+    private void initJdkLogger (ClassLoader loader, String logLevel, String logFile) throws IOException {
+        Map<String, String> mapping = new HashMap<> ();
+        mapping.put ("trace", "FINEST");
+        mapping.put ("debug", "FINER");
+        mapping.put ("info", "INFO");
+        mapping.put ("warn", "WARNING");
+        mapping.put ("error", "SEVERE");
+        mapping.put ("fatal", "SEVERE");
+
+        String level = mapping.get (logLevel.toLowerCase ());
+        String filePattern = FileInfo.getFileNameWithoutExtension (logFile);
+        String path = FileInfo.getFolder (logFile);
+
+        Properties props = new Properties ();
+        try (InputStream in = loader.getResourceAsStream ("internal-jdk-logging.properties")) {
+            props.load (in);
+        }
+
+        boolean trace = "trace".equalsIgnoreCase (logLevel);
+        if (trace) {
+            System.out.printf ("### setting log level to %s ###%n", logLevel);
+            level = "FINEST";
+        }
+
+        boolean async = "async".equalsIgnoreCase (option ("log-handler"));
+        if (async) {
+            // the file is written by AsyncFileHandler, which is attached to the root logger below
+            props.setProperty ("handlers", "java.util.logging.ConsoleHandler");
+            if (trace) {
+                System.out.printf ("### async log file -> %s ###%n", new File (logFile).getCanonicalPath ());
+            }
+        } else {
+            props.setProperty ("java.util.logging.FileHandler.pattern", path + '/' + filePattern + "%u.log");
+            if (trace) {
+                System.out.printf ("### log file -> %s ###%n", new File (path + '/' + filePattern + "%u.log").getCanonicalPath ());
+            }
+        }
+        props.setProperty ("java.util.logging.FileHandler.level", level);
+        props.setProperty ("java.util.logging.ConsoleHandler.level", level);
+        props.setProperty (".level", level);
+
+        // configure the LogManager in memory instead of writing a temporary file
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream ();
+        props.store (buffer, null);
+        LogManager.getLogManager ().readConfiguration (new ByteArrayInputStream (buffer.toByteArray ()));
+
+        if (async) {
+            AsyncFileHandler handler = new AsyncFileHandler (
+                    logFile,
+                    Integer.parseInt (option ("log-buffer-size").trim ()),
+                    parseSize (option ("log-max-size")),
+                    Integer.parseInt (option ("log-max-backups").trim ()),
+                    AsyncFileHandler.OverflowPolicy.valueOf (option ("log-overflow").trim ().toUpperCase ())
+            );
+            handler.setLevel (Level.parse (level));
+            java.util.logging.Logger.getLogger ("").addHandler (handler);
+            asyncLogHandler = handler;
+        }
+
+        Logger logger = LoggerFactory.getLogger (ApplicationBootloader.class);
+        logger.info ("JDK Logging load complete");
+    }
+
+    /**
+     * 获取命令行参数的值，未指定时返回默认值
+     */
+    private String option (String name) {
+        String value = parser.isArgPresent (name) ? parser.getValue (name) : null;
+        return StringUtil.isEmpty (value) ? parser.getDefaultValue (name) : value;
+    }
+
+    /**
+     * 解析 10240KB, 10MB, 1GB 或纯数字形式的字节数
+     */
+    private static long parseSize (String text) {
+        String s = text.trim ().toUpperCase ();
+        long unit = 1;
+        if (s.endsWith ("KB")) {
+            unit = 1024L;
+        } else if (s.endsWith ("MB")) {
+            unit = 1024L * 1024;
+        } else if (s.endsWith ("GB")) {
+            unit = 1024L * 1024 * 1024;
+        }
+        if (unit > 1) {
+            s = s.substring (0, s.length () - 2).trim ();
+        }
+        return Long.parseLong (s) * unit;
+    }
+
+    private void initLog4J (ClassLoader loader, String logLevel, String logFile) throws IOException {
+        try (InputStream in = loader.getResourceAsStream ("internal-log4j.properties")) {
+            Properties props = new Properties ();
+            props.load (in);
+
+            System.out.println ("### setting log level to " + logLevel + " ###");
+            if ("trace".equalsIgnoreCase (logLevel)) {
+                props.setProperty ("log4j.rootLogger", "INFO, stdout, FILE");
+                props.setProperty ("log4j.appender.FILE.File", logFile);
+                props.setProperty ("log4j.appender.FILE.Threshold", logLevel);
+                props.setProperty ("log4j.logger.org.dreamwork", "trace");
+            } else {
+                props.setProperty ("log4j.rootLogger", logLevel + ", stdout, FILE");
+                props.setProperty ("log4j.appender.FILE.File", logFile);
+                props.setProperty ("log4j.appender.FILE.Threshold", logLevel);
+            }
+
+            if (parser.isArgPresent ("trace-prefix")) {
+                String prefixes = parser.getValue ("trace-prefix");
+                if (!StringUtil.isEmpty (prefixes)) {
+                    String[] parts = prefixes.trim ().split (File.pathSeparator);
+                    for (String prefix : parts) {
+                        if ("trace".equalsIgnoreCase (logLevel)) {
+                            System.out.printf ("#### setting %s log level to trace ####%n", prefix);
+                        }
+                        props.setProperty ("log4j.logger." + prefix, "trace");
+                    }
+                }
+            }
+
+            if ("trace".equalsIgnoreCase (logLevel)) {
+                System.out.println ("trying to configure log4j ...");
+            }
+            try {
+                Class<?> type = Class.forName ("org.apache.log4j.PropertyConfigurator");
+                Method m = type.getMethod ("configure", Properties.class);
+                m.invoke (null, props);
+
+                Logger logger = LoggerFactory.getLogger (ApplicationBootloader.class);
+                logger.info ("Log4J load complete");
+            } catch (Exception ex) {
+                System.err.println ("can't configure log4j");
+                ex.printStackTrace ();
+            }
+        }
+    }
+
+    private static String configFile (ArgumentParser parser) {
+        String config_file = null;
+        if (parser.isArgPresent ('c')) {
+            config_file = parser.getValue ('c');
+        }
+        if (StringUtil.isEmpty (config_file)) {
+            config_file = parser.getDefaultValue ('c');
+        }
+        return config_file.trim ();
+    }
+
+    /**
+     * 读取配置文件. 在后台线程中执行，此时日志系统可能尚未初始化，所以这里不输出日志
+     * @param config_file 配置文件
+     * @param cache       配置快照，未启用时为 null
+     * @return 配置文件的内容，若文件不存在返回 null
+     */
+    private static Properties readConfig (String config_file, ConfigurationCache cache) throws IOException {
+        File file;
+        if (config_file.startsWith ("file:/") || config_file.startsWith ("/")) {
+            file = new File (config_file);
+        } else {
+            file = new File (".", config_file);
+        }
+
+        if (cache != null) {
+            return cache.load (ConfigurationCache.ROOT, file.toPath ());
+        }
+        if (!file.exists ()) {
+            return null;
+        }
+        return readProperties (file.toPath ());
+    }
+
+    /**
+     * 读取属性文件. 先读出全部内容再解析: {@link Properties#load(InputStream)} 持有对象监视器，
+     * 不能在其中做 I/O，否则虚拟线程会占住载体线程
+     */
+    static Properties readProperties (Path path) throws IOException {
+        byte[] content = Files.readAllBytes (path);
+        Properties props = new Properties ();
+        props.load (new ByteArrayInputStream (content));
+        return props;
+    }
+
+    private static Properties parseConfig (String config_file, Properties loaded, Logger logger) {
+        if (logger.isTraceEnabled ()) {
+            logger.trace ("parsing config file ...");
+            logger.trace ("config file: {}", config_file);
+        }
+
+        if (loaded == null) {
+            logger.warn ("can't find config file: {}", config_file);
+            logger.warn ("using default config.");
+            return new Properties ();
+        }
+        if (logger.isTraceEnabled ()) {
+            prettyPrint (loaded, logger);
+        }
+        return loaded;
+    }
+
+    /**
+     * 查找编译期生成的参数表
+     * @param type 启动类
+     * @return 参数表，若不存在返回 null
+     */
+    private static IArgumentTable findArgumentTable (Class<?> type) {
+        if (type == null || !type.isAnnotationPresent (IBootable.class)) {
+            return null;
+        }
+        return newArgumentTable (type.getName () + IArgumentTable.SUFFIX, type.getClassLoader ());
+    }
+
+    /**
+     * @return 编译期生成的参数表，不存在时返回 null
+     */
+    private static IArgumentTable newArgumentTable (String className, ClassLoader loader) {
+        try {
+            Class<?> table = Class.forName (className, true, loader);
+            return (IArgumentTable) table.newInstance ();
+        } catch (ClassNotFoundException ex) {
+            return null;
+        } catch (Exception ex) {
+            // the logger is not ready yet
+            System.err.println ("can't use the precompiled argument table " + className + ": " + ex.getMessage ());
+            return null;
+        }
+    }
+
+    public static void prettyPrint (Properties props, Logger logger) {
+        logger.trace ("### global configuration ###");
+        int length = 0;
+        List<String> list = new ArrayList<> ();
+        for (String key : props.stringPropertyNames ()) {
+            list.add (key);
+            if (key.length () > length) {
+                length = key.length ();
+            }
+        }
+        list.sort (String::compareTo);
+        for (String key : list) {
+            StringBuilder builder = new StringBuilder (key);
+            if (key.length () < length) {
+                int d = length - key.length ();
+                for (int i = 0; i < d; i ++) {
+                    builder.append (' ');
+                }
+            }
+            builder.append (" : ").append (props.getProperty (key));
+            logger.trace (builder.toString ());
+        }
+        logger.trace ("############################");
+    }
+
+    /**
+     * 没有在参数定义中声明 propKey 的内置参数对应的配置键
+     */
+    private static final String[][] OPTION_KEYS = {
+            {"e", "ext.conf.dir"},
+            {"X", "jmx.enabled"},
+            {"watch-ext-conf", "ext.conf.watch"},
+            {"preload-ext-conf", "ext.conf.preload"},
+            {"virtual-threads", "virtual.threads.enabled"},
+            {"metrics", "metrics.enabled"},
+            {"metrics-port", "metrics.port"},
+            {"ready-file", "ready.file"},
+            {"warmup-iterations", "warmup.iterations"},
+            {"warmup-duration", "warmup.duration"},
+            {"skip-warmup", "warmup.skip"},
+            {"profile-config", "config.profile"},
+            {"profile-config-file", "config.profile.file"},
+            {"compact-config", "config.compact"},
+            {"boot-timeline", "boot.timeline.file"}
+    };
+
+    /**
+     * @return 参数对应的配置键，没有时返回 null
+     */
+    private static String keyOf (Argument a) {
+        if (!StringUtil.isEmpty (a.propKey)) {
+            return a.propKey;
+        }
+        for (String[] pair : OPTION_KEYS) {
+            if (pair [0].equals (a.shortOption) || pair [0].equals (a.longOption)) {
+                return pair [1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 默认值层: 参数定义中的默认值和 {@link IBootable} 中的设置
+     */
+    private static Map<String, String> defaultLayer (ArgumentParser parser, Class<?> type) {
+        Map<String, String> map = new HashMap<> ();
+        for (Argument a : parser.getAllArguments ()) {
+            String key = keyOf (a);
+            if (key != null && !StringUtil.isEmpty (a.defaultValue)) {
+                map.put (key, a.defaultValue);
+            }
+        }
+        if (type != null && type.isAnnotationPresent (IBootable.class)) {
+            IBootable ib = type.getAnnotation (IBootable.class);
+            if (ib.preloadExtConf ()) {
+                map.put ("ext.conf.preload", "true");
+            }
+            if (ib.virtualThreads ()) {
+                map.put ("virtual.threads.enabled", "true");
+            }
+        }
+        return map;
+    }
+
+    /**
+     * 命令行层: 命令行中出现的参数，不需要值的参数为 <code>true</code>
+     */
+    private static Map<String, String> commandLineLayer (ArgumentParser parser) {
+        Map<String, String> map = new HashMap<> ();
+        for (Argument a : parser.getAllArguments ()) {
+            String key = keyOf (a);
+            if (key == null) {
+                continue;
+            }
+            boolean present;
+            String value;
+            if (!StringUtil.isEmpty (a.shortOption)) {
+                char c = a.shortOption.charAt (0);
+                present = parser.isArgPresent (c);
+                value = present && a.requireValue ? parser.getValue (c) : null;
+            } else if (!StringUtil.isEmpty (a.longOption)) {
+                present = parser.isArgPresent (a.longOption);
+                value = present && a.requireValue ? parser.getValue (a.longOption) : null;
+            } else {
+                continue;
+            }
+            if (present) {
+                map.put (key, a.requireValue ? value : "true");
+            }
+        }
+        return map;
+    }
+
+    private IConfiguration loadExtProperties (IConfiguration conf, String name) {
+        String ext_dir = conf.getString ("ext.conf.dir");
+        Path path = Paths.get (ext_dir, name + ".conf");
+        ConfigurationCache cache = configCache;
+        if (Files.exists (path)) {
+            long start = System.nanoTime ();
+            try {
+                Properties props;
+                if (cache != null) {
+                    props = cache.load (name, path);
+                } else {
+                    props = readProperties (path);
+                }
+                if (props == null) {
+                    return null;
+                }
+                if (compactConfig) {
+                    props = new CompactProperties (props);
+                }
+                KeyAccessProfiler kp = profiler;
+                return kp == null ? new PropertyConfiguration (props) : new ProfiledConfiguration (props, kp.profile (name));
+            } catch (IOException ex) {
+                logger.warn (ex.getMessage (), ex);
+            } finally {
+                metrics.loads.record (System.nanoTime () - start);
+            }
+        } else {
+            if (cache != null) {
+                // let the snapshot forget the removed file
+                try {
+                    cache.load (name, path);
+                } catch (IOException ex) {
+                    // not exists
+                }
+            }
+            if (logger.isTraceEnabled ()) {
+                logger.trace ("ext config file: {} not exists", path);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 启动完成后在后台写入配置快照；之后才加载的扩展配置在 JVM 退出或上下文关闭时写入
+     */
+    private void scheduleConfigCache () {
+        ConfigurationCache cache = configCache;
+        if (logger.isTraceEnabled ()) {
+            logger.trace ("config cache: {}", cache.stats ());
+        }
+        if (configCacheHook == null) {
+            configCacheHook = new Thread (() -> saveConfigCache (cache), "config-cache-" + name);
+            Runtime.getRuntime ().addShutdownHook (configCacheHook);
+        }
+        if (cache.isDirty ()) {
+            Thread t = new Thread (() -> saveConfigCache (cache), "config-cache-writer-" + name);
+            t.setDaemon (true);
+            t.start ();
+        }
+    }
+
+    private void saveConfigCache (ConfigurationCache cache) {
+        try {
+            cache.save ();
+        } catch (IOException ex) {
+            logger.warn ("can't write the config cache", ex);
+        }
+    }
+
+    /**
+     * 默认上下文注册为 {@link ApplicationBootloader#MBEAN_NAME}，其他上下文在其后附加 <code>name=&lt;上下文名称&gt;</code>
+     */
+    private void registerMBean () {
+        String text = primary ? ApplicationBootloader.MBEAN_NAME : ApplicationBootloader.MBEAN_NAME + ",name=" + ObjectName.quote (name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer ();
+            ObjectName objectName = new ObjectName (text);
+            if (!server.isRegistered (objectName)) {
+                server.registerMBean (new Monitor (), objectName);
+                mbean = objectName;
+                if (logger.isTraceEnabled ()) {
+                    logger.trace ("mbean {} registered", text);
+                }
+            }
+        } catch (Exception ex) {
+            logger.warn ("can't register mbean " + text, ex);
+        }
+    }
+
+    /**
+     * 开启配置键的访问统计，报告在 JVM 退出或上下文关闭时输出到 <code>config.profile.file</code>，未设置时输出到标准输出
+     */
+    private void startProfiler (EnhancedConfiguration configuration) {
+        KeyAccessProfiler kp = new KeyAccessProfiler ();
+        configuration.setProfile (kp.profile ("root"));
+        profiler = kp;
+        if (profilerHook == null) {
+            profilerHook = new Thread (this::writeConfigurationProfile, "config-profile-" + name);
+            Runtime.getRuntime ().addShutdownHook (profilerHook);
+        }
+        if (logger.isTraceEnabled ()) {
+            logger.trace ("configuration profiling enabled");
+        }
+    }
+
+    /**
+     * 获取配置键的访问统计报告 (<code>--profile-config</code> 或 <code>config.profile = true</code>).
+     * 每个配置中的键按读取次数降序排列，并列出从未被读取或引用的键
+     * @return 报告，未开启统计时返回 null
+     */
+    public String getConfigurationProfile () {
+        KeyAccessProfiler kp = profiler;
+        return kp == null ? null : kp.report ();
+    }
+
+    private void writeConfigurationProfile () {
+        KeyAccessProfiler kp = profiler;
+        if (kp == null) {
+            return;
+        }
+        IConfiguration root = getRootConfiguration ();
+        String file = root == null ? null : root.getString ("config.profile.file");
+        if (StringUtil.isEmpty (file)) {
+            kp.report (new OutputStreamWriter (System.out, StandardCharsets.UTF_8));
+            return;
+        }
+        Path path = Paths.get (file.trim ());
+        try {
+            Path parent = path.toAbsolutePath ().getParent ();
+            if (parent != null) {
+                Files.createDirectories (parent);
+            }
+            try (Writer writer = Files.newBufferedWriter (path, StandardCharsets.UTF_8)) {
+                kp.report (writer);
+            }
+        } catch (IOException ex) {
+            System.err.println ("can't write the configuration profile to " + path + ": " + ex.getMessage ());
+        }
+    }
+
+    /**
+     * 在回环地址上启动 Prometheus 指标端点，启动失败不影响应用
+     */
+    private void startMetrics (int port) {
+        MetricsEndpoint prev = metricsEndpoint;
+        if (prev != null) {
+            prev.close ();
+        }
+        try {
+            MetricsEndpoint endpoint = MetricsEndpoint.start (name, port, new Monitor (), metrics.loads, () -> timeline);
+            metricsEndpoint = endpoint;
+            logger.info ("metrics endpoint listening on http://{}:{}{}",
+                    endpoint.getAddress ().getHostString (), endpoint.getAddress ().getPort (), MetricsEndpoint.PATH);
+        } catch (IOException ex) {
+            logger.warn ("can't start the metrics endpoint on port " + port, ex);
+            metricsEndpoint = null;
+        }
+    }
+
+    /**
+     * 停止扩展配置的监视和指标端点，注销 mbean，输出配置访问统计，关闭 {@link #getExecutor()} 返回的执行器，并清除所有缓存的配置. 关闭后上下文可以重新 <code>load()</code>
+     */
+    @Override
+    public void close () {
+        if (watcher != null) {
+            watcher.stop ();
+            watcher = null;
+        }
+        MetricsEndpoint endpoint = metricsEndpoint;
+        if (endpoint != null) {
+            endpoint.close ();
+            metricsEndpoint = null;
+        }
+        if (mbean != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer ().unregisterMBean (mbean);
+            } catch (Exception ex) {
+                if (logger != null) {
+                    logger.warn ("can't unregister mbean " + mbean, ex);
+                }
+            }
+            mbean = null;
+        }
+        if (configCacheHook != null) {
+            try {
+                Runtime.getRuntime ().removeShutdownHook (configCacheHook);
+            } catch (IllegalStateException ex) {
+                // shutting down, the hook is running
+            }
+            configCacheHook = null;
+            saveConfigCache (configCache);
+        }
+        ExecutorService service = executor.getAndSet (null);
+        if (service != null) {
+            service.shutdown ();
+        }
+        Path marker = readyFile;
+        if (marker != null) {
+            try {
+                Files.deleteIfExists (marker);
+            } catch (IOException ex) {
+                logger.warn ("can't delete the ready file " + marker, ex);
+            }
+            readyFile = null;
+        }
+        if (profilerHook != null) {
+            try {
+                Runtime.getRuntime ().removeShutdownHook (profilerHook);
+            } catch (IllegalStateException ex) {
+                // shutting down, the hook is running
+            }
+            profilerHook = null;
+            writeConfigurationProfile ();
+        }
+        profiler = null;
+        context.clear ();
+        bindings.clear ();
+        publish ();
+        // don't keep the closed configurations reachable through the last built snapshot
+        snapshot.set (ConfigurationSnapshot.EMPTY);
+    }
+
+    /**
+     * 在 verbose 模式下打印启动时间线，若配置了 <code>boot.timeline.file</code> 则将其写入文件
+     */
+    private void reportTimeline () {
+        if (parser.isArgPresent ('v')) {
+            timeline.print (System.out);
+        }
+        IConfiguration root = getRootConfiguration ();
+        String file = root == null ? null : root.getString ("boot.timeline.file");
+        if (!StringUtil.isEmpty (file)) {
+            try {
+                timeline.write (Paths.get (file.trim ()));
+            } catch (IOException ex) {
+                logger.warn ("can't write boot timeline to " + file, ex);
+            }
+        }
+    }
+
+    /**
+     * 在有界线程池中并行加载扩展配置目录中的所有 .conf 文件，并报告每个文件的加载耗时
+     */
+    private void preload (IConfiguration conf) throws IOException, InterruptedException {
+        Path dir = Paths.get (conf.getString ("ext.conf.dir"));
+        if (!Files.isDirectory (dir)) {
+            logger.warn ("ext config dir {} not exists, nothing to preload", dir);
+            return;
+        }
+
+        List<String> names = new ArrayList<> (extIndex.refresh ());
+        if (names.isEmpty ()) {
+            return;
+        }
+
+        int threads = conf.getInt ("ext.conf.preload.threads", Runtime.getRuntime ().availableProcessors ());
+        threads = Math.max (1, Math.min (threads, names.size ()));
+        ExecutorService executor;
+        if (virtualThreads) {
+            executor = Executors.newFixedThreadPool (threads, VirtualThreads.factory ("ext-conf-preload-"));
+        } else {
+            AtomicInteger counter = new AtomicInteger ();
+            executor = Executors.newFixedThreadPool (threads, r -> {
+                Thread t = new Thread (r, "ext-conf-preload-" + counter.incrementAndGet ());
+                t.setDaemon (true);
+                return t;
+            });
+        }
+
+        long start = System.nanoTime ();
+        try {
+            List<Future<Long>> futures = new ArrayList<> (names.size ());
+            for (String name : names) {
+                futures.add (executor.submit (() -> {
+                    long begin = System.nanoTime ();
+                    getConfiguration (name);
+                    return System.nanoTime () - begin;
+                }));
+            }
+            for (int i = 0; i < names.size (); i ++) {
+                try {
+                    long cost = futures.get (i).get ();
+                    logger.info ("ext config [{}] preloaded in {} ms", names.get (i), String.format ("%.3f", cost / 1e6));
+                } catch (ExecutionException ex) {
+                    logger.warn ("can't preload ext config [" + names.get (i) + "]", ex.getCause ());
+                }
+            }
+        } finally {
+            executor.shutdownNow ();
+        }
+        logger.info ("{} ext configs preloaded with {} threads in {} ms",
+                names.size (), threads, String.format ("%.3f", (System.nanoTime () - start) / 1e6));
+    }
+
+    /**
+     * 已加载的配置发生了变化，递增版本号. 快照在 {@link #getSnapshot()} 时才构建，
+     * 所以加载一个配置的开销与已缓存的配置数量无关
+     */
+    private void publish () {
+        configVersion.incrementAndGet ();
+    }
+
+    private void startWatcher (IConfiguration conf) throws IOException {
+        Path dir = Paths.get (conf.getString ("ext.conf.dir"));
+        if (!Files.isDirectory (dir)) {
+            logger.warn ("ext config dir {} not exists, watch mode disabled", dir);
+            return;
+        }
+        long delay = conf.getLong ("ext.conf.watch.delay", 200L);
+        watcher = new ExtConfigurationWatcher (dir, delay, this::reload);
+        watcher.start ();
+        // files created before the watcher are not reported by it
+        extIndex.refresh ();
+        extIndex.watch ();
+    }
+
+    /**
+     * 重新加载已缓存的扩展配置，并将本批次的变更作为一个事件通知监听器.
+     * 从未被请求过的配置不会被加载，它们在首次访问时才加载.
+     */
+    private void reload (Set<String> names) {
+        // created or deleted files change the index even if they are not loaded
+        extIndex.refresh ();
+        if (names.contains (ExtConfigurationWatcher.ALL)) {
+            names = new HashSet<> (context.keySet ());
+            names.remove ("root");
+        }
+
+        IConfiguration root = context.get ("root");
+        Set<String> changed = new HashSet<> ();
+        for (String name : names) {
+            if (!context.containsKey (name)) {
+                continue;
+            }
+            IConfiguration fresh = loadExtProperties (root, name);
+            metrics.reloads.increment ();
+            if (fresh == null) {
+                context.remove (name);
+            } else {
+                context.put (name, fresh);
+            }
+            changed.add (name);
+        }
+
+        if (!changed.isEmpty ()) {
+            publish ();
+            // the listeners get a snapshot, so it is built eagerly here, on reloads only
+            ConfigurationSnapshot current = getSnapshot ();
+            if (logger.isTraceEnabled ()) {
+                logger.trace ("ext configurations {} reloaded, version = {}", changed, current.getVersion ());
+            }
+            ConfigurationChangeEvent event = new ConfigurationChangeEvent (Collections.unmodifiableSet (changed), current);
+            for (IConfigurationListener listener : listeners) {
+                try {
+                    listener.onChanged (event);
+                } catch (Exception ex) {
+                    logger.warn (ex.getMessage (), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取 {@link ConfigBinding} 接口的绑定实例.
+     *
+     * <p>绑定的结果被缓存，只要对应的配置没有被重新加载或修改，重复调用直接返回同一个实例；
+     * 配置被重新加载后，下一次调用会用编译期生成的绑定器重新绑定. 根配置是 {@link EnhancedConfiguration}，
+     * 就地的修改 (如 <code>setRawProperty</code>) 按 {@link EnhancedConfiguration#getVersion()} 判断，同样会重新绑定；
+     * 扩展配置没有版本号，只能发现整个配置被替换 (监视模式下的重新加载、{@link #invalidateConfiguration(String)})，
+     * 对扩展配置的就地修改不会重新绑定.</p>
+     *
+     * @param type 标注了 {@link ConfigBinding} 的接口
+     * @param <T>  接口类型
+     * @return 绑定的实例
+     * @throws IllegalArgumentException 类型没有生成的绑定器，绑定的配置不存在，或配置缺少必须的属性、属性的类型错误
+     */
+    public <T> T bind (Class<T> type) {
+        Binding<T> binding = (Binding<T>) bindings.get (type);
+        if (binding == null) {
+            binding = new Binding<> (binder (type));
+            Binding<T> prev = (Binding<T>) bindings.putIfAbsent (type, binding);
+            if (prev != null) {
+                binding = prev;
+            }
+        }
+
+        String name = binding.binder.getName ();
+        IConfiguration conf = StringUtil.isEmpty (name) ? getRootConfiguration () : getConfiguration (name);
+        // taken before binding, a modification during the binding makes the next call bind again.
+        // the ext configurations have no version, only their replacement is detected
+        long version = conf instanceof EnhancedConfiguration ? ((EnhancedConfiguration) conf).getVersion () : 0L;
+        Bound<T> bound = binding.bound;
+        if (bound == null || bound.source != conf || bound.version != version) {
+            // first use, or the configuration has been reloaded or modified
+            bound = new Bound<> (conf, version, binding.binder.bind (conf));
+            binding.bound = bound;
+            if (logger != null && logger.isTraceEnabled ()) {
+                logger.trace ("{} bound: {}", type.getName (), bound.value);
+            }
+        }
+        return bound.value;
+    }
+
+    private static <T> IConfigBinder<T> binder (Class<T> type) {
+        if (!type.isAnnotationPresent (ConfigBinding.class)) {
+            throw new IllegalArgumentException (type.getName () + " is not annotated with @ConfigBinding");
+        }
+        try {
+            Class<?> c = Class.forName (type.getName () + IConfigBinder.SUFFIX, true, type.getClassLoader ());
+            return (IConfigBinder<T>) c.newInstance ();
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalArgumentException ("binder of " + type.getName () + " not found, is the annotation processor enabled?");
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalArgumentException ("can't create the binder of " + type.getName (), ex);
+        }
+    }
+
+    /**
+     * 启动时绑定编译期索引中的所有接口，所有的错误一并报告
+     */
+    private void bindAll (ClassLoader loader) {
+        Set<String> names = new TreeSet<> ();
+        try {
+            Enumeration<URL> e = loader.getResources (IConfigBinder.INDEX);
+            while (e.hasMoreElements ()) {
+                try (BufferedReader reader = new BufferedReader (new InputStreamReader (e.nextElement ().openStream (), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine ()) != null) {
+                        line = line.trim ();
+                        if (!line.isEmpty () && !line.startsWith ("#")) {
+                            names.add (line);
+                        }
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn ("can't read " + IConfigBinder.INDEX, ex);
+            return;
+        }
+
+        List<String> errors = new ArrayList<> ();
+        for (String name : names) {
+            try {
+                IConfigBinder<?> binder = (IConfigBinder<?>) Class.forName (name, true, loader).newInstance ();
+                bindings.putIfAbsent (binder.getType (), new Binding<> (binder));
+                bind (binder.getType ());
+            } catch (ReflectiveOperationException | ClassCastException ex) {
+                logger.warn ("can't load config binder " + name, ex);
+            } catch (IllegalArgumentException ex) {
+                errors.add (ex.getMessage ());
+            }
+        }
+        if (!errors.isEmpty ()) {
+            for (String error : errors) {
+                logger.error (error);
+            }
+            throw new IllegalStateException (errors.size () + " configuration binding(s) failed:\n" + String.join ("\n", errors));
+        }
+        if (logger.isTraceEnabled () && !names.isEmpty ()) {
+            logger.trace ("{} configuration binding(s) validated", names.size ());
+        }
+    }
+
+    /** 一个接口的绑定器及最近一次的绑定结果 */
+    private static final class Binding<T> {
+        final IConfigBinder<T> binder;
+        volatile Bound<T> bound;
+
+        Binding (IConfigBinder<T> binder) {
+            this.binder = binder;
+        }
+    }
+
+    /** 绑定的结果及其来源配置和绑定时配置的版本 */
+    private static final class Bound<T> {
+        final IConfiguration source;
+        final long version;
+        final T value;
+
+        Bound (IConfiguration source, long version, T value) {
+            this.source = source;
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+    private final class Monitor implements BootloaderMXBean {
+        @Override
+        public long getHits () {
+            return metrics.hits.sum ();
+        }
+
+        @Override
+        public long getMisses () {
+            return metrics.misses.sum ();
+        }
+
+        @Override
+        public int getLoadsInFlight () {
+            return loading.size ();
+        }
+
+        @Override
+        public long getLoadCount () {
+            return metrics.loads.getCount ();
+        }
+
+        @Override
+        public long getLoadTimeNanos () {
+            return metrics.loads.getSum ();
+        }
+
+        @Override
+        public Map<String, Long> getLoadLatencyHistogram () {
+            long[] buckets = metrics.loads.getBuckets ();
+            Map<String, Long> map = new LinkedHashMap<> ();
+            for (int i = 0; i < buckets.length; i ++) {
+                map.put (LatencyHistogram.label (i), buckets [i]);
+            }
+            return map;
+        }
+
+        @Override
+        public long getAbsentCount () {
+            return metrics.absents.sum ();
+        }
+
+        @Override
+        public long getWaitCount () {
+            return metrics.waits.sum ();
+        }
+
+        @Override
+        public long getWaitTimeNanos () {
+            return metrics.waitNanos.sum ();
+        }
+
+        @Override
+        public long getReloadCount () {
+            return metrics.reloads.sum ();
+        }
+
+        @Override
+        public int getCachedConfigurationCount () {
+            return getCachedConfigurationNames ().size ();
+        }
+
+        @Override
+        public Set<String> getCachedConfigurationNames () {
+            Set<String> names = new TreeSet<> (context.keySet ());
+            names.remove ("root");
+            return names;
+        }
+
+        @Override
+        public long getPlaceholderResolutionCount () {
+            IConfiguration root = getRootConfiguration ();
+            return root instanceof EnhancedConfiguration ? ((EnhancedConfiguration) root).getResolutionCount () : 0;
+        }
+
+        @Override
+        public String dumpConfigurationProfile () {
+            String report = getConfigurationProfile ();
+            return report == null ? "configuration profiling is not enabled" : report;
+        }
+
+        @Override
+        public long getSnapshotVersion () {
+            return configVersion.get ();
+        }
+
+        @Override
+        public Map<String, Long> getBootPhases () {
+            Map<String, Long> map = new LinkedHashMap<> ();
+            for (BootTimeline.Phase phase : timeline.getPhases ()) {
+                map.put (phase.getName (), phase.getDuration ());
+            }
+            return map;
+        }
+
+        @Override
+        public long getBootTimeNanos () {
+            return timeline.getElapsed ();
+        }
+
+        @Override
+        public long getWarmUpTimeNanos () {
+            return timeline.getWarmUp ();
+        }
+
+        @Override
+        public boolean isReady () {
+            return BootloaderContext.this.isReady ();
+        }
+
+        @Override
+        public int getLogQueueDepth () {
+            return asyncLogHandler == null ? 0 : asyncLogHandler.getQueueDepth ();
+        }
+
+        @Override
+        public long getLogDropped () {
+            return asyncLogHandler == null ? 0 : asyncLogHandler.getDropped ();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.dreamwork.app.bootloader;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 启动器的管理接口. 当 <code>jmx.enabled=true</code> 或命令行参数 <code>-X</code> 存在时，
+ * 注册为 <code>org.dreamwork.app.bootloader:type=ApplicationBootloader</code>.
+ * 非默认的 {@link BootloaderContext} 注册为 <code>org.dreamwork.app.bootloader:type=ApplicationBootloader,name="&lt;上下文名称&gt;"</code>.
+ */
+public interface BootloaderMXBean {
+    /**
+     * @return getConfiguration 命中缓存的次数
+     */
+    long getHits ();
+
+    /**
+     * @return getConfiguration 未命中缓存的次数
+     */
+    long getMisses ();
+
+    /**
+     * @return getConfiguration 请求不存在的配置、由扩展配置目录的索引直接返回 null 的次数
+     */
+    long getAbsentCount ();
+
+    /**
+     * @return 正在加载中的配置数量
+     */
+    int getLoadsInFlight ();
+
+    /**
+     * @return 从磁盘加载配置的次数
+     */
+    long getLoadCount ();
+
+    /**
+     * @return 从磁盘加载配置的总纳秒数
+     */
+    long getLoadTimeNanos ();
+
+    /**
+     * @return 加载延迟直方图，键是桶的上界
+     */
+    Map<String, Long> getLoadLatencyHistogram ();
+
+    /**
+     * @return 线程等待其他线程加载同一配置的次数
+     */
+    long getWaitCount ();
+
+    /**
+     * @return 线程等待其他线程加载同一配置的总纳秒数
+     */
+    long getWaitTimeNanos ();
+
+    /**
+     * @return 因监视模式而重新加载的次数
+     */
+    long getReloadCount ();
+
+    /**
+     * @return 已缓存的命名配置数量，不包括 root
+     */
+    int getCachedConfigurationCount ();
+
+    Set<String> getCachedConfigurationNames ();
+
+    /**
+     * @return 根配置中实际替换占位符的次数
+     */
+    long getPlaceholderResolutionCount ();
+
+    /**
+     * @return 配置键的访问统计报告
+     * @see BootloaderContext#getConfigurationProfile()
+     */
+    String dumpConfigurationProfile ();
+
+    /**
+     * @return 当前配置快照的版本号
+     */
+    long getSnapshotVersion ();
+
+    /**
+     * @return 启动各阶段的耗时，纳秒
+     */
+    Map<String, Long> getBootPhases ();
+
+    /**
+     * @return 启动总耗时，纳秒，不包括预热
+     */
+    long getBootTimeNanos ();
+
+    /**
+     * @return 预热耗时，纳秒
+     */
+    long getWarmUpTimeNanos ();
+
+    /**
+     * @return 应用是否已就绪
+     */
+    boolean isReady ();
+
+    /**
+     * @return 异步日志缓冲区中等待写入的日志数量，未启用异步日志时为 0
+     */
+    int getLogQueueDepth ();
+
+    /**
+     * @return 异步日志因缓冲区满或采样而丢弃的日志数量
+     */
+    long getLogDropped ();
+}
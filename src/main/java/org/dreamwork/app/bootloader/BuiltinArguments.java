@@ -0,0 +1,14 @@
+package org.dreamwork.app.bootloader;
+
+/**
+ * 启动器内置参数表的生成标记.
+ *
+ * <p>构建时由单独的编译步骤 (见 pom.xml 中的 <code>builtin-arguments</code>) 交给
+ * {@link org.dreamwork.app.bootloader.processor.BootableProcessor} 处理，
+ * 生成 {@link ArgumentDefinitions#BUILTIN_TABLE}. 其他代码不应直接引用这个类型，
+ * 没有经过该步骤的构建 (如 IDE 的编译) 中找不到生成的参数表，启动时退回到解析 json.</p>
+ */
+@IBootable (argumentDef = ArgumentDefinitions.BUILTIN)
+final class BuiltinArguments {
+    private BuiltinArguments () {}
+}
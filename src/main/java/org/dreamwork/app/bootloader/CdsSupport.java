@@ -0,0 +1,244 @@
+package org.dreamwork.app.bootloader;
+
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AppCDS 训练模式及归档的校验.
+ *
+ * <p><code>--cds-train</code> 时，启动器以相同的 JVM 参数 (<code>-Xmx</code>, <code>-D</code>, <code>-javaagent</code> 等)、
+ * 类路径和命令行参数启动一个子 JVM，子 JVM 执行 <code>load()</code>
+ * 和入口，预热 <code>--cds-warmup</code> 毫秒后退出，由 JVM 在退出时生成归档:</p>
+ * <ul>
+ *     <li>JDK 13+: <code>-XX:ArchiveClassesAtExit</code> 生成动态归档</li>
+ *     <li>JDK 10 ~ 12: 先用 <code>-XX:DumpLoadedClassList</code> 记录加载的类，再用 <code>-Xshare:dump</code> 生成归档</li>
+ * </ul>
+ *
+ * <p>HotSpot 只能在 JVM 启动时映射归档，所以训练完成后会在归档旁生成一个 java 参数文件
+ * <code>&lt;archive&gt;.args</code>，启动脚本使用 <code>java @&lt;archive&gt;.args ...</code> 即可自动使用归档.
+ * 同时记录类路径的指纹 <code>&lt;archive&gt;.fingerprint</code>，每次启动时校验，
+ * 类路径或 JVM 发生变化后只给出警告，归档和参数文件由下一次 <code>--cds-train</code> 替换.</p>
+ */
+final class CdsSupport {
+    /** 子 JVM 中的系统属性，值为预热的毫秒数 */
+    static final String TRAINING_PROPERTY = "dreamwork.cds.training";
+
+    /** 不转发给子 JVM 的参数前缀: 由训练过程自己指定的 CDS 参数，以及会和父 JVM 冲突的调试器 */
+    private static final String[] EXCLUDED_OPTIONS = {
+            "-XX:SharedArchiveFile=", "-XX:ArchiveClassesAtExit=", "-XX:DumpLoadedClassList=", "-XX:SharedClassListFile=",
+            "-Xshare:", "-D" + TRAINING_PROPERTY + "=", "-agentlib:jdwp", "-Xrunjdwp", "-Xdebug"
+    };
+
+    private final Path archive;
+    private final Path args;
+    private final Path fingerprint;
+
+    CdsSupport (String archive) {
+        this.archive = Paths.get (archive).toAbsolutePath ().normalize ();
+        this.args = this.archive.resolveSibling (this.archive.getFileName () + ".args");
+        this.fingerprint = this.archive.resolveSibling (this.archive.getFileName () + ".fingerprint");
+    }
+
+    static boolean isTraining () {
+        return System.getProperty (TRAINING_PROPERTY) != null;
+    }
+
+    /**
+     * 在子 JVM 中，预热时间结束后退出，触发归档的生成
+     */
+    static void scheduleTrainingExit () {
+        long warmup = Long.getLong (TRAINING_PROPERTY, 10_000L);
+        Thread t = new Thread (() -> {
+            try {
+                Thread.sleep (warmup);
+            } catch (InterruptedException ex) {
+                // exit anyway
+            }
+            System.exit (0);
+        }, "cds-training-timer");
+        t.setDaemon (true);
+        t.start ();
+    }
+
+    /**
+     * 训练并生成归档
+     * @param appArgs 去掉 --cds-train 后的命令行参数
+     * @param warmup  预热的毫秒数
+     * @return 子进程的退出码
+     */
+    int train (String[] appArgs, long warmup) throws IOException, InterruptedException {
+        int version = javaVersion ();
+        if (version < 10) {
+            throw new UnsupportedOperationException ("AppCDS training requires JDK 10 or later, current: " + version);
+        }
+
+        Files.createDirectories (archive.getParent ());
+        Files.deleteIfExists (archive);
+        Files.deleteIfExists (args);
+        Files.deleteIfExists (fingerprint);
+
+        String training = "-D" + TRAINING_PROPERTY + "=" + warmup;
+        int code;
+        if (version >= 13) {
+            code = exec (command (Arrays.asList ("-XX:ArchiveClassesAtExit=" + archive, training), appArgs));
+        } else {
+            Path classList = archive.resolveSibling (archive.getFileName () + ".classlist");
+            code = exec (command (Arrays.asList ("-Xshare:off", "-XX:DumpLoadedClassList=" + classList, training), appArgs));
+            if (code == 0) {
+                List<String> dump = new ArrayList<> ();
+                dump.add (java ());
+                dump.addAll (jvmOptions ());
+                dump.add ("-Xshare:dump");
+                dump.add ("-XX:SharedClassListFile=" + classList);
+                dump.add ("-XX:SharedArchiveFile=" + archive);
+                dump.add ("-cp");
+                dump.add (System.getProperty ("java.class.path"));
+                code = exec (dump);
+            }
+            Files.deleteIfExists (classList);
+        }
+
+        if (code == 0 && Files.exists (archive)) {
+            Files.write (fingerprint, fingerprint ().getBytes (StandardCharsets.UTF_8));
+            Files.write (args, (quote ("-XX:SharedArchiveFile=" + archive) + System.lineSeparator () +
+                    "-Xshare:auto" + System.lineSeparator ()).getBytes (StandardCharsets.UTF_8));
+        }
+        return code;
+    }
+
+    /**
+     * 启动时校验归档: 类路径或 JVM 发生变化时给出警告，归档有效但未被使用时给出提示.
+     * 这里不删除任何文件，过期的归档由 <code>--cds-train</code> 替换
+     */
+    void check (Logger logger) {
+        if (!Files.exists (archive)) {
+            return;
+        }
+        try {
+            String expected = Files.exists (fingerprint) ? new String (Files.readAllBytes (fingerprint), StandardCharsets.UTF_8) : "";
+            if (!expected.equals (fingerprint ())) {
+                logger.warn ("the classpath or jvm has changed since the CDS archive {} was created, it may be rejected by the jvm. " +
+                        "run with --cds-train to rebuild it", archive);
+                return;
+            }
+
+            boolean used = false;
+            for (String arg : ManagementFactory.getRuntimeMXBean ().getInputArguments ()) {
+                if (arg.startsWith ("-XX:SharedArchiveFile=")) {
+                    used = true;
+                    break;
+                }
+            }
+            if (!used) {
+                logger.info ("a CDS archive is available, launch the jvm with @{} to use it", args);
+            } else if (logger.isTraceEnabled ()) {
+                logger.trace ("running with CDS archive {}", archive);
+            }
+        } catch (IOException ex) {
+            logger.warn ("can't verify the CDS archive " + archive, ex);
+        }
+    }
+
+    /**
+     * 类路径上每个条目的路径、大小和修改时间，以及 JVM 的版本. 任何一项变化都会使归档失效
+     */
+    private static String fingerprint () {
+        StringBuilder builder = new StringBuilder ();
+        builder.append (System.getProperty ("java.home")).append ('|').append (System.getProperty ("java.vm.version")).append ('\n');
+        for (String entry : System.getProperty ("java.class.path").split (File.pathSeparator)) {
+            if (entry.isEmpty ()) {
+                continue;
+            }
+            File file = new File (entry).getAbsoluteFile ();
+            builder.append (file.getPath ());
+            if (file.isFile ()) {
+                builder.append ('|').append (file.length ()).append ('|').append (file.lastModified ());
+            }
+            builder.append ('\n');
+        }
+        return builder.toString ();
+    }
+
+    private static List<String> command (List<String> options, String[] appArgs) {
+        String classpath = System.getProperty ("java.class.path");
+        List<String> cmd = new ArrayList<> ();
+        cmd.add (java ());
+        // the options of this jvm first, so that the training options override them
+        cmd.addAll (jvmOptions ());
+        cmd.addAll (options);
+
+        // sun.java.command is "<main class or jar> <args...>". a class name never contains white spaces,
+        // but a jar path may, with -jar the class path is exactly that path
+        String command = System.getProperty ("sun.java.command", "").trim ();
+        if (classpath.endsWith (".jar") && command.startsWith (classpath) &&
+                (command.length () == classpath.length () || Character.isWhitespace (command.charAt (classpath.length ())))) {
+            cmd.add ("-jar");
+            cmd.add (classpath);
+        } else {
+            String main = command.split ("\\s+") [0];
+            if (main.isEmpty ()) {
+                throw new UnsupportedOperationException ("can't determine the main class of this jvm");
+            }
+            cmd.add ("-cp");
+            cmd.add (classpath);
+            cmd.add (main);
+        }
+        cmd.addAll (Arrays.asList (appArgs));
+        return cmd;
+    }
+
+    /**
+     * @return 当前 JVM 的启动参数，去掉 {@link #EXCLUDED_OPTIONS}
+     */
+    private static List<String> jvmOptions () {
+        List<String> list = new ArrayList<> ();
+        for (String arg : ManagementFactory.getRuntimeMXBean ().getInputArguments ()) {
+            boolean excluded = false;
+            for (String prefix : EXCLUDED_OPTIONS) {
+                if (arg.startsWith (prefix)) {
+                    excluded = true;
+                    break;
+                }
+            }
+            if (!excluded) {
+                list.add (arg);
+            }
+        }
+        return list;
+    }
+
+    private static int exec (List<String> cmd) throws IOException, InterruptedException {
+        System.out.println ("### " + String.join (" ", cmd) + " ###");
+        Process process = new ProcessBuilder (cmd).inheritIO ().start ();
+        return process.waitFor ();
+    }
+
+    private static String java () {
+        return Paths.get (System.getProperty ("java.home"), "bin", "java").toString ();
+    }
+
+    /**
+     * 按 java 参数文件的规则引用包含空白的参数
+     */
+    private static String quote (String arg) {
+        return arg.contains (" ") ? '"' + arg.replace ("\\", "\\\\") + '"' : arg;
+    }
+
+    static int javaVersion () {
+        String spec = System.getProperty ("java.specification.version");
+        if (spec.startsWith ("1.")) {
+            spec = spec.substring (2);
+        }
+        return Integer.parseInt (spec);
+    }
+}
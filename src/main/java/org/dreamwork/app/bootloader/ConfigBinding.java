@@ -0,0 +1,61 @@
+package org.dreamwork.app.bootloader;
+
+import java.lang.annotation.*;
+
+/**
+ * 将一个配置绑定到类型化的接口.
+ *
+ * <pre>
+ * &#64;ConfigBinding (name = "database", prefix = "db")
+ * public interface DatabaseConfig {
+ *     String url ();                       // db.url, 必须
+ *     &#64;ConfigBinding.Property (defaultValue = "10")
+ *     int maxPoolSize ();                  // db.max.pool.size
+ *     Integer timeout ();                  // db.timeout, 可选，未配置时为 null
+ * }
+ *
+ * DatabaseConfig conf = ApplicationBootloader.bind (DatabaseConfig.class);
+ * </pre>
+ *
+ * <p>{@link org.dreamwork.app.bootloader.processor.BootableProcessor} 在编译期为接口生成
+ * {@link IConfigBinder} 实现 <code>&lt;类型名&gt;_Binding</code>，每个属性只在绑定时解析一次，运行时不使用反射.</p>
+ *
+ * <p>接口中每个无参的抽象方法是一个属性，属性名去掉 <code>get</code>/<code>is</code> 前缀后按驼峰拆分为
+ * 以 <code>.</code> 分隔的小写单词，再加上 {@link #prefix()} 作为配置的键. 支持的类型:
+ * <code>String</code>, <code>int</code>, <code>long</code>, <code>double</code>, <code>boolean</code>
+ * 及其包装类型，以及枚举. 原始类型和 <code>String</code> 在没有默认值时是必须的，包装类型和枚举是可选的.</p>
+ *
+ * <p>启动时所有绑定都会被校验，缺少的必须项、类型错误和不存在的扩展配置会一并报告；配置被重新加载后，下一次
+ * {@link BootloaderContext#bind(Class)} 会重新绑定.</p>
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConfigBinding {
+    /** 表示没有默认值 */
+    String UNDEFINED = "\u0000";
+
+    /**
+     * 扩展配置的名称，即 {@link ApplicationBootloader#getConfiguration(String)} 的参数. 为空时绑定根配置
+     */
+    String name () default "";
+
+    /**
+     * 键的前缀
+     */
+    String prefix () default "";
+
+    /**
+     * 覆盖单个属性的键或默认值
+     */
+    @Documented
+    @Target(ElementType.METHOD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Property {
+        /** 完整的键，不再加前缀. 为空时按方法名推导 */
+        String key () default "";
+
+        /** 默认值 */
+        String defaultValue () default UNDEFINED;
+    }
+}
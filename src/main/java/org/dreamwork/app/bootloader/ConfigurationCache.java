@@ -0,0 +1,372 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.config.EnhancedConfiguration;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * 解析后配置的二进制快照，跨进程重启复用 (<code>--config-cache &lt;file&gt;</code>).
+ *
+ * <p>快照中每个配置文件 (根配置和扩展配置) 记录其路径、大小、修改时间和内容的 CRC32，以及解析后的键值对；
+ * 根配置还记录了占位符替换后的值. 启动时一次读入整个快照并解码，文件的大小、修改时间和内容都未变化时
+ * 直接使用快照中的结果，不再调用 {@link Properties#load(InputStream)}，否则重新解析该文件.</p>
+ *
+ * <p>有任何文件被重新解析、新增或删除时，快照会被重新写入. 写入时先写临时文件再原子地替换，
+ * 快照损坏或版本不符时整个快照被忽略.</p>
+ *
+ * <p>缓存在整个上下文的生命周期中保留 (之后加载的扩展配置仍会用到它)，所以条目中的键值对以快照文件中的
+ * 编码形式保存，用到时才解码，不额外为每个键建立对象.</p>
+ *
+ * <p>这里不使用对象监视器: 写入快照时持有的是 {@link ReentrantLock}，在虚拟线程上执行时不会占住载体线程.</p>
+ */
+final class ConfigurationCache {
+    private static final int MAGIC   = 0x44574343;     // DWCC
+    private static final int VERSION = 1;
+    /** 根配置在快照中的名称 */
+    static final String ROOT = "";
+
+    private final Path file;
+    /** 快照中读取的条目 */
+    private final Map<String, Entry> snapshot;
+    /** 本次启动中验证或重新解析的条目 */
+    private final Map<String, Entry> current = new ConcurrentHashMap<> ();
+    /** 本次启动中发现已不存在的配置 */
+    private final Set<String> removed = ConcurrentHashMap.newKeySet ();
+    private volatile boolean dirty;
+    /** 串行化快照的写入 */
+    private final ReentrantLock writing = new ReentrantLock ();
+
+    private final AtomicInteger hits = new AtomicInteger (), misses = new AtomicInteger ();
+
+    private ConfigurationCache (Path file, Map<String, Entry> snapshot) {
+        this.file = file;
+        this.snapshot = snapshot;
+        this.dirty = snapshot.isEmpty ();
+    }
+
+    /**
+     * 打开快照. 快照不存在、损坏或版本不符时返回一个空的缓存
+     * @param file 快照文件
+     * @return 缓存
+     */
+    static ConfigurationCache open (Path file) {
+        Map<String, Entry> entries = new HashMap<> ();
+        if (Files.isRegularFile (file)) {
+            try {
+                // every entry is decoded right away, a mapping would buy nothing and would keep the file
+                // locked on windows, where it must be replaced by save ()
+                ByteBuffer buffer = ByteBuffer.wrap (Files.readAllBytes (file));
+                if (buffer.getInt () == MAGIC && buffer.getInt () == VERSION) {
+                    int count = buffer.getInt ();
+                    for (int i = 0; i < count; i ++) {
+                        Entry e = Entry.read (buffer);
+                        entries.put (e.name, e);
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                // corrupted snapshot, start over
+                entries.clear ();
+            }
+        }
+        return new ConfigurationCache (file, entries);
+    }
+
+    /**
+     * 读取配置文件，文件未变化时使用快照中的结果
+     * @param name 配置名称，根配置为 {@link #ROOT}
+     * @param path 配置文件
+     * @return 解析后的配置，文件不存在时返回 null
+     */
+    Properties load (String name, Path path) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes (path, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            if (snapshot.containsKey (name)) {
+                removed.add (name);
+                dirty = true;
+            }
+            return null;
+        }
+
+        String location = path.toAbsolutePath ().normalize ().toString ();
+        long size = attrs.size (), mtime = attrs.lastModifiedTime ().toMillis ();
+        byte[] content = Files.readAllBytes (path);
+        long crc = crc (content);
+
+        Entry cached = snapshot.get (name);
+        if (cached != null && cached.path.equals (location) && cached.size == size && cached.mtime == mtime && cached.crc == crc) {
+            current.put (name, cached);
+            hits.incrementAndGet ();
+            return cached.toProperties ();
+        }
+
+        Properties props = new Properties ();
+        props.load (new ByteArrayInputStream (content));
+        current.put (name, Entry.parsed (name, location, size, mtime, crc, props));
+        dirty = true;
+        misses.incrementAndGet ();
+        return props;
+    }
+
+    /**
+     * @return 快照中根配置占位符替换后的值，根配置已变化时返回空
+     */
+    Map<String, String> resolvedRoot () {
+        Entry e = current.get (ROOT);
+        return e == null ? Collections.<String, String>emptyMap () : e.resolved ();
+    }
+
+    boolean isDirty () {
+        return dirty;
+    }
+
+    String stats () {
+        return hits.get () + " hit(s), " + misses.get () + " miss(es)";
+    }
+
+    /**
+     * 写入快照. 本次启动中未被访问的条目原样保留，下次启动时再验证
+     */
+    void save () throws IOException {
+        writing.lock ();
+        try {
+            if (!dirty) {
+                return;
+            }
+            // entries loaded while writing mark the cache dirty again
+            dirty = false;
+            try {
+                write ();
+            } catch (IOException | RuntimeException ex) {
+                dirty = true;
+                throw ex;
+            }
+        } finally {
+            writing.unlock ();
+        }
+    }
+
+    private void write () throws IOException {
+        Map<String, Entry> all = new TreeMap<> (snapshot);
+        all.putAll (current);
+        all.keySet ().removeAll (removed);
+
+        Entry root = all.get (ROOT);
+        if (root != null && root.resolvedCount == 0) {
+            Entry resolved = root.resolve ();
+            all.put (ROOT, resolved);
+            current.replace (ROOT, root, resolved);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream (8192);
+        DataOutputStream out = new DataOutputStream (bytes);
+        out.writeInt (MAGIC);
+        out.writeInt (VERSION);
+        out.writeInt (all.size ());
+        for (Entry e : all.values ()) {
+            e.write (out);
+        }
+        out.flush ();
+
+        Path parent = file.toAbsolutePath ().getParent ();
+        if (parent != null) {
+            Files.createDirectories (parent);
+        }
+        Path temp = Files.createTempFile (parent, file.getFileName ().toString (), ".tmp");
+        try {
+            Files.write (temp, bytes.toByteArray ());
+            try {
+                Files.move (temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move (temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists (temp);
+        }
+    }
+
+    private static long crc (byte[] content) {
+        CRC32 crc = new CRC32 ();
+        crc.update (content, 0, content.length);
+        return crc.getValue ();
+    }
+
+    /**
+     * 快照中的一个配置文件. 键值对保持快照文件中的编码形式，用到时才解码，
+     * 从快照读取的条目直接引用读入的文件内容，不为每个键建立对象
+     */
+    private static final class Entry {
+        final String name, path;
+        final long size, mtime, crc;
+        /** 编码后的原始值和占位符替换后的值，与快照文件中的格式相同 */
+        private final byte[] data;
+        private final int offset, length;
+        /** 占位符替换后与原始值不同的值的数量，只对根配置记录 */
+        final int resolvedCount;
+
+        private Entry (String name, String path, long size, long mtime, long crc, byte[] data, int offset, int length, int resolvedCount) {
+            this.name = name;
+            this.path = path;
+            this.size = size;
+            this.mtime = mtime;
+            this.crc = crc;
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            this.resolvedCount = resolvedCount;
+        }
+
+        /**
+         * 重新解析的配置文件
+         */
+        static Entry parsed (String name, String path, long size, long mtime, long crc, Properties props) {
+            Map<String, String> raw = new LinkedHashMap<> ();
+            for (String key : props.stringPropertyNames ()) {
+                raw.put (key, props.getProperty (key));
+            }
+            byte[] data = encode (raw, Collections.<String, String>emptyMap ());
+            return new Entry (name, path, size, mtime, crc, data, 0, data.length, 0);
+        }
+
+        Map<String, String> raw () {
+            Map<String, String> map = new LinkedHashMap<> ();
+            readMap (ByteBuffer.wrap (data, offset, length), map);
+            return map;
+        }
+
+        Map<String, String> resolved () {
+            Map<String, String> map = new LinkedHashMap<> ();
+            if (resolvedCount > 0) {
+                ByteBuffer in = ByteBuffer.wrap (data, offset, length);
+                skipMap (in);
+                readMap (in, map);
+            }
+            return map;
+        }
+
+        Properties toProperties () {
+            Properties props = new Properties ();
+            for (Map.Entry<String, String> e : raw ().entrySet ()) {
+                props.setProperty (e.getKey (), e.getValue ());
+            }
+            return props;
+        }
+
+        /**
+         * 只用文件本身的内容替换占位符. 启动时通过命令行设置的值会使依赖它们的键失效，因此这里的结果始终是安全的
+         * @return 记录了替换结果的新条目
+         */
+        Entry resolve () {
+            Map<String, String> raw = raw ();
+            Map<String, String> resolved = new LinkedHashMap<> ();
+            EnhancedConfiguration conf = new EnhancedConfiguration (toProperties ());
+            for (Map.Entry<String, String> e : raw.entrySet ()) {
+                if (e.getValue ().contains ("${")) {
+                    try {
+                        String value = conf.getString (e.getKey ());
+                        if (value != null && !value.equals (e.getValue ())) {
+                            resolved.put (e.getKey (), value);
+                        }
+                    } catch (IllegalStateException ex) {
+                        // circular reference, reported when the key is used
+                    }
+                }
+            }
+            byte[] data = encode (raw, resolved);
+            return new Entry (name, path, size, mtime, crc, data, 0, data.length, resolved.size ());
+        }
+
+        void write (DataOutputStream out) throws IOException {
+            writeString (out, name);
+            writeString (out, path);
+            out.writeLong (size);
+            out.writeLong (mtime);
+            out.writeLong (crc);
+            out.write (data, offset, length);
+        }
+
+        /**
+         * 从快照中读取一个条目，只校验键值对的边界，不解码
+         * @param in 包装了整个快照文件的缓冲区
+         */
+        static Entry read (ByteBuffer in) {
+            String name = readString (in), path = readString (in);
+            long size = in.getLong (), mtime = in.getLong (), crc = in.getLong ();
+            int start = in.position ();
+            skipMap (in);
+            int resolvedCount = skipMap (in);
+            return new Entry (name, path, size, mtime, crc, in.array (), in.arrayOffset () + start, in.position () - start, resolvedCount);
+        }
+
+        private static byte[] encode (Map<String, String> raw, Map<String, String> resolved) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream (4096);
+            try (DataOutputStream out = new DataOutputStream (bytes)) {
+                writeMap (out, raw);
+                writeMap (out, resolved);
+            } catch (IOException ex) {
+                // never happens with an in-memory stream
+                throw new UncheckedIOException (ex);
+            }
+            return bytes.toByteArray ();
+        }
+
+        private static void writeMap (DataOutputStream out, Map<String, String> map) throws IOException {
+            out.writeInt (map.size ());
+            for (Map.Entry<String, String> e : map.entrySet ()) {
+                writeString (out, e.getKey ());
+                writeString (out, e.getValue ());
+            }
+        }
+
+        private static void readMap (ByteBuffer in, Map<String, String> map) {
+            int count = in.getInt ();
+            for (int i = 0; i < count; i ++) {
+                map.put (readString (in), readString (in));
+            }
+        }
+
+        /**
+         * @return 跳过的键值对的数量
+         */
+        private static int skipMap (ByteBuffer in) {
+            int count = in.getInt ();
+            if (count < 0) {
+                throw new IllegalStateException ("corrupted snapshot");
+            }
+            for (int i = 0; i < count * 2; i ++) {
+                int length = in.getInt ();
+                if (length < 0 || length > in.remaining ()) {
+                    throw new IllegalStateException ("corrupted snapshot");
+                }
+                in.position (in.position () + length);
+            }
+            return count;
+        }
+
+        private static void writeString (DataOutputStream out, String s) throws IOException {
+            byte[] buff = s.getBytes (StandardCharsets.UTF_8);
+            out.writeInt (buff.length);
+            out.write (buff);
+        }
+
+        private static String readString (ByteBuffer in) {
+            int length = in.getInt ();
+            if (length < 0 || length > in.remaining ()) {
+                throw new IllegalStateException ("corrupted snapshot");
+            }
+            String s = new String (in.array (), in.arrayOffset () + in.position (), length, StandardCharsets.UTF_8);
+            in.position (in.position () + length);
+            return s;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.dreamwork.app.bootloader;
+
+import java.util.Set;
+
+/**
+ * 扩展配置的变更事件，包含一批被合并的变更
+ */
+public final class ConfigurationChangeEvent {
+    private final Set<String> names;
+    private final ConfigurationSnapshot snapshot;
+
+    ConfigurationChangeEvent (Set<String> names, ConfigurationSnapshot snapshot) {
+        this.names = names;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return 被重新加载或删除的配置名称
+     */
+    public Set<String> getNames () {
+        return names;
+    }
+
+    /**
+     * @return 变更发布后的配置快照
+     */
+    public ConfigurationSnapshot getSnapshot () {
+        return snapshot;
+    }
+
+    /**
+     * @return 快照版本号
+     */
+    public long getVersion () {
+        return snapshot.getVersion ();
+    }
+
+    @Override
+    public String toString () {
+        return "ConfigurationChangeEvent{version=" + snapshot.getVersion () + ", names=" + names + '}';
+    }
+}
@@ -0,0 +1,256 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.config.EnhancedConfiguration;
+import org.slf4j.Logger;
+
+import java.util.*;
+
+/**
+ * 启动时合并的分层配置. 各层的优先级从低到高为:
+ * <ol>
+ *     <li>{@link Layer#DEFAULT}: 命令行参数定义中的默认值，以及 {@link IBootable} 中的设置</li>
+ *     <li>{@link Layer#FILE}: 配置文件 (<code>-c</code>)</li>
+ *     <li>{@link Layer#ENVIRONMENT}: 环境变量</li>
+ *     <li>{@link Layer#SYSTEM}: 系统属性 (<code>-Dkey=value</code>)</li>
+ *     <li>{@link Layer#COMMAND_LINE}: 命令行参数</li>
+ * </ol>
+ *
+ * <p>环境变量和系统属性只覆盖较低层中已定义的键，不会把整个环境带入配置.
+ * 系统属性按键名精确匹配；环境变量按大写、<code>.</code> 和 <code>-</code> 替换为 <code>_</code> 后的名称匹配，
+ * 如 <code>SERVER_PORT</code> 覆盖 <code>server.port</code>.</p>
+ *
+ * <p>合并只在启动时进行一次，结果是不可变的，每个键记录了它的来源和被它覆盖的层.</p>
+ *
+ * <p>紧凑模式 (<code>config.compact</code>) 下启动完成后只保留来源: 只有不是单纯来自配置文件的键
+ * (来自其他层，或覆盖了其他层) 才有记录，值从根配置的原始值中读取，不再保存第二份.
+ * 这时 {@link #getEntries()} 每次调用都会重新生成，值是根配置当前的原始值，启动后新增的键被视为来自配置文件.</p>
+ */
+public final class ConfigurationLayers {
+    /** 配置层，按优先级从低到高排列 */
+    public enum Layer {
+        DEFAULT, FILE, ENVIRONMENT, SYSTEM, COMMAND_LINE
+    }
+
+    /** 一个键合并后的值 */
+    public static final class Entry {
+        private final String value;
+        private final Layer layer;
+        /** 被覆盖的层，按优先级从低到高 */
+        private final List<Layer> shadowed;
+
+        private Entry (String value, Layer layer, List<Layer> shadowed) {
+            this.value = value;
+            this.layer = layer;
+            this.shadowed = shadowed;
+        }
+
+        public String getValue () {
+            return value;
+        }
+
+        public Layer getLayer () {
+            return layer;
+        }
+
+        public List<Layer> getShadowed () {
+            return shadowed;
+        }
+
+        @Override
+        public String toString () {
+            return shadowed.isEmpty () ? layer.name () : layer + " (overrides " + shadowed + ")";
+        }
+    }
+
+    /** 所有键；只保留来源时是不单纯来自配置文件的键，值为 null */
+    private final Map<String, Entry> entries;
+    /** 只保留来源时值的来源，否则为 null */
+    private final EnhancedConfiguration values;
+
+    private ConfigurationLayers (Map<String, Entry> entries, EnhancedConfiguration values) {
+        this.entries = Collections.unmodifiableMap (entries);
+        this.values = values;
+    }
+
+    /**
+     * 合并各层
+     * @param defaults    默认值
+     * @param file        配置文件
+     * @param environment 环境变量
+     * @param system      系统属性
+     * @param commandLine 命令行参数
+     * @return 合并后的配置
+     */
+    static ConfigurationLayers flatten (Map<String, String> defaults, Properties file, Map<String, String> environment,
+                                        Properties system, Map<String, String> commandLine) {
+        Map<String, String> values = new HashMap<> ();
+        Map<String, List<Layer>> layers = new HashMap<> ();
+
+        put (values, layers, defaults, Layer.DEFAULT);
+        Map<String, String> map = new HashMap<> ();
+        for (String key : file.stringPropertyNames ()) {
+            map.put (key, file.getProperty (key));
+        }
+        put (values, layers, map, Layer.FILE);
+
+        // environment variables and system properties only override the known keys
+        Map<String, String> names = new HashMap<> ();
+        for (String key : values.keySet ()) {
+            names.put (environmentName (key), key);
+        }
+        map.clear ();
+        for (Map.Entry<String, String> e : environment.entrySet ()) {
+            String key = names.get (e.getKey ());
+            if (key != null) {
+                map.put (key, e.getValue ());
+            }
+        }
+        put (values, layers, map, Layer.ENVIRONMENT);
+
+        map.clear ();
+        for (String key : values.keySet ()) {
+            String value = system.getProperty (key);
+            if (value != null) {
+                map.put (key, value);
+            }
+        }
+        put (values, layers, map, Layer.SYSTEM);
+
+        put (values, layers, commandLine, Layer.COMMAND_LINE);
+
+        Map<String, Entry> entries = new HashMap<> (values.size () * 4 / 3 + 1);
+        for (Map.Entry<String, String> e : values.entrySet ()) {
+            List<Layer> list = layers.get (e.getKey ());
+            Layer layer = list.get (list.size () - 1);
+            List<Layer> shadowed = list.size () == 1 ? Collections.<Layer>emptyList ()
+                    : Collections.unmodifiableList (new ArrayList<> (list.subList (0, list.size () - 1)));
+            entries.put (e.getKey (), new Entry (e.getValue (), layer, shadowed));
+        }
+        return new ConfigurationLayers (entries, null);
+    }
+
+    /**
+     * 只保留来源，值从合并结果建立的根配置中读取. 单纯来自配置文件的键不再占用任何空间
+     * @param root 用 {@link #toProperties()} 建立的根配置
+     * @return 只保留来源的分层配置
+     */
+    ConfigurationLayers provenance (EnhancedConfiguration root) {
+        if (values != null) {
+            return this;
+        }
+        Map<String, Entry> map = new HashMap<> ();
+        for (Map.Entry<String, Entry> e : entries.entrySet ()) {
+            Entry entry = e.getValue ();
+            if (entry.layer != Layer.FILE || !entry.shadowed.isEmpty ()) {
+                map.put (e.getKey (), new Entry (null, entry.layer, entry.shadowed));
+            }
+        }
+        return new ConfigurationLayers (map, root);
+    }
+
+    private static void put (Map<String, String> values, Map<String, List<Layer>> layers, Map<String, String> source, Layer layer) {
+        for (Map.Entry<String, String> e : source.entrySet ()) {
+            if (e.getValue () != null) {
+                values.put (e.getKey (), e.getValue ());
+                layers.computeIfAbsent (e.getKey (), k -> new ArrayList<> (2)).add (layer);
+            }
+        }
+    }
+
+    /**
+     * 键对应的环境变量名，如 server.port -&gt; SERVER_PORT
+     */
+    static String environmentName (String key) {
+        StringBuilder builder = new StringBuilder (key.length ());
+        for (int i = 0; i < key.length (); i ++) {
+            char c = key.charAt (i);
+            builder.append (c == '.' || c == '-' ? '_' : Character.toUpperCase (c));
+        }
+        return builder.toString ();
+    }
+
+    /**
+     * @param key 键
+     * @return 合并后的值，不存在时返回 null
+     */
+    public String get (String key) {
+        if (values != null) {
+            return values.getRawString (key);
+        }
+        Entry e = entries.get (key);
+        return e == null ? null : e.value;
+    }
+
+    /**
+     * @param key 键
+     * @return 键的来源，不存在时返回 null
+     */
+    public Entry getEntry (String key) {
+        if (values == null) {
+            return entries.get (key);
+        }
+        String value = values.getRawString (key);
+        if (value == null) {
+            return null;
+        }
+        Entry e = entries.get (key);
+        return e == null ? new Entry (value, Layer.FILE, Collections.<Layer>emptyList ()) : new Entry (value, e.layer, e.shadowed);
+    }
+
+    /**
+     * @return 所有键及其来源，不可修改. 只保留来源时每次调用都重新生成
+     */
+    public Map<String, Entry> getEntries () {
+        if (values == null) {
+            return entries;
+        }
+        Map<String, Entry> map = new HashMap<> ();
+        for (String key : values.getRawKeys ()) {
+            Entry e = getEntry (key);
+            if (e != null) {
+                map.put (key, e);
+            }
+        }
+        return Collections.unmodifiableMap (map);
+    }
+
+    /**
+     * @param layer 配置层
+     * @return 值来自指定层的所有键
+     */
+    public Set<String> keysFrom (Layer layer) {
+        Set<String> set = new HashSet<> ();
+        if (values != null && layer == Layer.FILE) {
+            for (String key : values.getRawKeys ()) {
+                Entry e = entries.get (key);
+                if (e == null || e.layer == Layer.FILE) {
+                    set.add (key);
+                }
+            }
+            return set;
+        }
+        for (Map.Entry<String, Entry> e : entries.entrySet ()) {
+            if (e.getValue ().layer == layer) {
+                set.add (e.getKey ());
+            }
+        }
+        return set;
+    }
+
+    Properties toProperties () {
+        Properties props = new Properties ();
+        for (Map.Entry<String, Entry> e : getEntries ().entrySet ()) {
+            props.setProperty (e.getKey (), e.getValue ().value);
+        }
+        return props;
+    }
+
+    /**
+     * 按键的顺序打印每个键的值和来源
+     */
+    void print (Logger logger) {
+        for (Map.Entry<String, Entry> e : new TreeMap<> (getEntries ()).entrySet ()) {
+            logger.trace ("    {} = {}    <- {}", e.getKey (), e.getValue ().value, e.getValue ());
+        }
+    }
+}
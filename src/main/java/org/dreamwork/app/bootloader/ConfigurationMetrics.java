@@ -0,0 +1,23 @@
+package org.dreamwork.app.bootloader;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 命名配置缓存的运行指标
+ */
+final class ConfigurationMetrics {
+    /** 缓存命中次数 */
+    final LongAdder hits = new LongAdder ();
+    /** 缓存未命中次数 */
+    final LongAdder misses = new LongAdder ();
+    /** 请求不存在的配置、由目录索引直接返回的次数 */
+    final LongAdder absents = new LongAdder ();
+    /** 等待其他线程加载同一配置的次数 */
+    final LongAdder waits = new LongAdder ();
+    /** 等待其他线程加载同一配置的总纳秒数 */
+    final LongAdder waitNanos = new LongAdder ();
+    /** 从磁盘加载的延迟 */
+    final LatencyHistogram loads = new LatencyHistogram ();
+    /** 因监视模式而重新加载的次数 */
+    final LongAdder reloads = new LongAdder ();
+}
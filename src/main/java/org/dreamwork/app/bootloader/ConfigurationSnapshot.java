@@ -0,0 +1,52 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.config.IConfiguration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 某一时刻所有已加载配置的不可变快照.
+ *
+ * <p>每次加载或重新加载扩展配置时，版本号都会递增. 快照在 {@link ApplicationBootloader#getSnapshot()} 时按需构建，
+ * 配置没有变化时返回同一个快照；监视模式下重新加载配置时，随变更事件一起构建. 版本号单调递增，
+ * 持有同一个快照的代码看到的始终是一组一致的配置.</p>
+ */
+public final class ConfigurationSnapshot {
+    static final ConfigurationSnapshot EMPTY = new ConfigurationSnapshot (0, Collections.emptyMap ());
+
+    private final long version;
+    private final long timestamp;
+    private final Map<String, IConfiguration> configurations;
+
+    ConfigurationSnapshot (long version, Map<String, IConfiguration> configurations) {
+        this.version = version;
+        this.timestamp = System.currentTimeMillis ();
+        this.configurations = Collections.unmodifiableMap (new HashMap<> (configurations));
+    }
+
+    public long getVersion () {
+        return version;
+    }
+
+    /**
+     * @return 快照构建的时间
+     */
+    public long getTimestamp () {
+        return timestamp;
+    }
+
+    public IConfiguration getRootConfiguration () {
+        return configurations.get ("root");
+    }
+
+    public IConfiguration getConfiguration (String name) {
+        return configurations.get (name);
+    }
+
+    public Set<String> getNames () {
+        return configurations.keySet ();
+    }
+}
@@ -0,0 +1,253 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.config.IConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * 应用入口.
+ *
+ * <p>入口按以下顺序查找，只考虑公共方法:</p>
+ * <ol>
+ *     <li>标注了 {@link ApplicationEntrance} 的方法，可以没有参数，或接受 {@link IConfiguration} 或 <code>String[]</code></li>
+ *     <li><code>start (IConfiguration)</code></li>
+ *     <li><code>start (String[])</code></li>
+ *     <li><code>start ()</code></li>
+ * </ol>
+ *
+ * <p>编译期由 {@link org.dreamwork.app.bootloader.processor.BootableProcessor} 生成的索引
+ * (<code>META-INF/bootloader/&lt;类型名&gt;.entrance</code>) 存在时，直接按索引定位方法，否则在运行时扫描.
+ * 入口通过 {@link MethodHandle} 调用；非静态的入口通过无参构造器创建实例.</p>
+ *
+ * <p>若入口返回 {@link CompletionStage} 或 {@link Future}，启动器会等待其完成，异步启动的异常同样会被抛出.</p>
+ */
+final class Entrance {
+    /** 编译期索引的路径前缀 */
+    static final String INDEX_PREFIX = "META-INF/bootloader/";
+    static final String INDEX_SUFFIX = ".entrance";
+
+    /** 入口方法的参数形式 */
+    enum Kind {
+        NONE, CONFIGURATION, ARGUMENTS;
+
+        Class<?>[] parameterTypes () {
+            switch (this) {
+                case CONFIGURATION: return new Class<?>[] {IConfiguration.class};
+                case ARGUMENTS:     return new Class<?>[] {String[].class};
+                default:            return new Class<?>[0];
+            }
+        }
+
+        static Kind of (Class<?>[] types) {
+            if (types.length == 0) {
+                return NONE;
+            }
+            if (types.length == 1) {
+                if (types [0] == IConfiguration.class) {
+                    return CONFIGURATION;
+                }
+                if (types [0] == String[].class) {
+                    return ARGUMENTS;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger (Entrance.class);
+
+    final Class<?> type;
+    final String name;
+    final Kind kind;
+    final boolean isStatic;
+    private final MethodHandle handle;
+
+    private Entrance (Class<?> type, String name, Kind kind, boolean isStatic, MethodHandle handle) {
+        this.type = type;
+        this.name = name;
+        this.kind = kind;
+        this.isStatic = isStatic;
+        this.handle = handle;
+    }
+
+    /**
+     * 查找类型的入口. 只查找方法，不会初始化类型，类型在第一次调用入口时才初始化
+     * @param type 启动类
+     * @return 入口，若找不到返回 null
+     */
+    static Entrance resolve (Class<?> type) throws ReflectiveOperationException {
+        Entrance entrance = fromIndex (type);
+        if (entrance == null) {
+            entrance = scan (type);
+        }
+        return entrance;
+    }
+
+    /**
+     * 调用入口，若入口返回异步结果，等待其完成
+     * @param conf 根配置
+     * @param args 命令行参数
+     * @return 入口的返回值，异步入口返回其结果
+     * @throws Throwable 入口抛出的异常
+     */
+    Object invoke (IConfiguration conf, String[] args) throws Throwable {
+        MethodHandle target = handle;
+        if (!isStatic) {
+            MethodHandle constructor = MethodHandles.lookup ().unreflectConstructor (accessible (type.getDeclaredConstructor ()));
+            target = target.bindTo (constructor.invoke ());
+        }
+
+        Object result;
+        switch (kind) {
+            case CONFIGURATION:
+                result = target.invoke (conf);
+                break;
+            case ARGUMENTS:
+                result = target.invoke (args);
+                break;
+            default:
+                result = target.invoke ();
+                break;
+        }
+        return await (result);
+    }
+
+    private static Object await (Object result) throws Throwable {
+        try {
+            if (result instanceof CompletionStage) {
+                if (logger.isTraceEnabled ()) {
+                    logger.trace ("waiting for the asynchronous entrance to complete");
+                }
+                return ((CompletionStage<?>) result).toCompletableFuture ().get ();
+            }
+            if (result instanceof Future) {
+                if (logger.isTraceEnabled ()) {
+                    logger.trace ("waiting for the asynchronous entrance to complete");
+                }
+                return ((Future<?>) result).get ();
+            }
+        } catch (ExecutionException ex) {
+            throw ex.getCause () != null ? ex.getCause () : ex;
+        }
+        return result;
+    }
+
+    private static Entrance fromIndex (Class<?> type) throws ReflectiveOperationException {
+        ClassLoader loader = type.getClassLoader ();
+        if (loader == null) {
+            return null;
+        }
+        Properties index = new Properties ();
+        try (InputStream in = loader.getResourceAsStream (INDEX_PREFIX + type.getName () + INDEX_SUFFIX)) {
+            if (in == null) {
+                return null;
+            }
+            index.load (in);
+        } catch (IOException ex) {
+            logger.warn ("can't read the entrance index of " + type.getName (), ex);
+            return null;
+        }
+
+        String name = index.getProperty ("name");
+        Kind kind = Kind.valueOf (index.getProperty ("kind"));
+        boolean isStatic = Boolean.parseBoolean (index.getProperty ("static"));
+        Class<?> returnType = classOf (index.getProperty ("returns"), loader);
+        MethodType mt = MethodType.methodType (returnType, kind.parameterTypes ());
+
+        MethodHandle handle;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup ();
+            handle = isStatic ? lookup.findStatic (type, name, mt) : lookup.findVirtual (type, name, mt);
+        } catch (IllegalAccessException ex) {
+            handle = MethodHandles.lookup ().unreflect (accessible (type.getMethod (name, kind.parameterTypes ())));
+        } catch (NoSuchMethodException ex) {
+            // the index is out of date
+            logger.warn ("the entrance index of {} is out of date, scanning the methods", type.getName ());
+            return null;
+        }
+        if (logger.isTraceEnabled ()) {
+            logger.trace ("entrance of {} found in index: {}", type.getName (), name);
+        }
+        return new Entrance (type, name, kind, isStatic, handle);
+    }
+
+    private static Entrance scan (Class<?> type) throws IllegalAccessException {
+        Method[] methods = type.getMethods ();
+        Method method = null;
+        Kind kind = null;
+        for (Method m : methods) {
+            if (m.isAnnotationPresent (ApplicationEntrance.class)) {
+                kind = Kind.of (m.getParameterTypes ());
+                if (kind == null) {
+                    throw new IllegalArgumentException ("unsupported entrance parameters: " + m);
+                }
+                method = m;
+                break;
+            }
+        }
+
+        if (method == null) {
+            for (Kind k : new Kind[] {Kind.CONFIGURATION, Kind.ARGUMENTS, Kind.NONE}) {
+                method = find (methods, "start", k.parameterTypes ());
+                if (method != null) {
+                    kind = k;
+                    break;
+                }
+            }
+        }
+
+        if (method == null) {
+            return null;
+        }
+
+        MethodHandle handle = MethodHandles.lookup ().unreflect (accessible (method));
+        return new Entrance (type, method.getName (), kind, Modifier.isStatic (method.getModifiers ()), handle);
+    }
+
+    private static Method find (Method[] methods, String name, Class<?>[] parameterTypes) {
+        for (Method m : methods) {
+            if (m.getName ().equals (name) && Arrays.equals (m.getParameterTypes (), parameterTypes)) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    static <T extends AccessibleObject> T accessible (T member) {
+        try {
+            member.setAccessible (true);
+        } catch (RuntimeException ex) {
+            // not allowed, rely on the public access
+        }
+        return member;
+    }
+
+    private static Class<?> classOf (String name, ClassLoader loader) throws ClassNotFoundException {
+        switch (name) {
+            case "void":    return void.class;
+            case "boolean": return boolean.class;
+            case "byte":    return byte.class;
+            case "short":   return short.class;
+            case "char":    return char.class;
+            case "int":     return int.class;
+            case "long":    return long.class;
+            case "float":   return float.class;
+            case "double":  return double.class;
+            default:        return Class.forName (name, false, loader);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.dreamwork.app.bootloader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 扩展配置目录中存在的配置名称. 不存在的配置直接由索引回答，不再访问文件系统，也不经过加载流程.
+ *
+ * <p>索引只包含目录顶层的 <code>*.conf</code>. 包含路径分隔符的名称 (如 <code>db/mysql</code>) 不在索引的范围内，
+ * 见 {@link #covers(String)}，这些名称照常按文件加载. 名称按不区分大小写的方式匹配，
+ * 在不区分大小写的文件系统上 <code>DB</code> 仍能找到 <code>db.conf</code>；区分大小写时多出的匹配由加载流程确认.</p>
+ *
+ * <p>监视模式下索引随 {@link ExtConfigurationWatcher} 的事件重建；否则查询不存在的名称时，
+ * 每隔一段时间检查一次目录的修改时间，目录中增加或删除了文件时重新扫描.
+ * 因此非监视模式下新建的配置文件最多要在 <code>interval</code> 毫秒之后才能被找到 (在使用索引之前是立即可见的)，
+ * 需要立即可见时调用 {@link BootloaderContext#invalidateConfiguration(String)}，它只重新检查这一个名称.</p>
+ *
+ * <p>扫描的结果是不可变的集合，查询是一次无锁的读操作. 扫描和检查目录时持有的是 {@link ReentrantLock}，
+ * 在虚拟线程上执行时不会占住载体线程.</p>
+ */
+final class ExtConfigurationIndex {
+    /**
+     * 目录修改时间的精度. 扫描时目录的修改时间距今小于这个值，扫描之后同一时刻增加的文件可能不改变修改时间，
+     * 下一次检查时仍需重新扫描
+     */
+    private static final long RESOLUTION = 2000L;
+
+    private final Logger logger = LoggerFactory.getLogger (ExtConfigurationIndex.class);
+
+    private final Path dir;
+    /** 两次检查目录修改时间的最小间隔，纳秒 */
+    private final long interval;
+    private final ReentrantLock lock = new ReentrantLock ();
+
+    private volatile Set<String> names;
+    /** 查询用的键，即小写的 {@link #names} */
+    private volatile Set<String> keys;
+    /** 扫描时目录的修改时间，目录不存在时为 null */
+    private volatile FileTime modified;
+    /** 扫描时目录的修改时间是否太近，无法据此判断之后是否有变化 */
+    private volatile boolean racy;
+    /** 最近一次检查的时间 */
+    private volatile long checked;
+    /** 是否由监视器维护 */
+    private volatile boolean watched;
+
+    ExtConfigurationIndex (Path dir, long interval) {
+        this.dir = dir;
+        this.interval = TimeUnit.MILLISECONDS.toNanos (Math.max (0L, interval));
+    }
+
+    /**
+     * @param name 配置名称
+     * @return 名称是否在索引的范围内，即不包含路径分隔符、不是相对路径的名称
+     */
+    static boolean covers (String name) {
+        return name.indexOf ('/') < 0 && name.indexOf ('\\') < 0 && name.indexOf (File.separatorChar) < 0 &&
+                !".".equals (name) && !"..".equals (name);
+    }
+
+    /**
+     * @param name 配置名称，必须在索引的范围内 ({@link #covers(String)})
+     * @return <code>name.conf</code> 是否可能存在
+     */
+    boolean contains (String name) {
+        Set<String> set = keys;
+        if (set == null) {
+            refresh ();
+            set = keys;
+        }
+        name = key (name);
+        if (set.contains (name)) {
+            return true;
+        }
+        if (watched) {
+            return false;
+        }
+
+        long now = System.nanoTime ();
+        if (now - checked < interval) {
+            return false;
+        }
+        return check (now).contains (name);
+    }
+
+    /**
+     * @return 目录中所有的配置名称
+     */
+    Set<String> names () {
+        Set<String> set = names;
+        return set == null ? refresh () : set;
+    }
+
+    /**
+     * 之后由监视器的事件维护索引，不再检查目录的修改时间
+     */
+    void watch () {
+        watched = true;
+    }
+
+    /**
+     * 重新扫描目录
+     * @return 扫描的结果
+     */
+    Set<String> refresh () {
+        lock.lock ();
+        try {
+            return scan ();
+        } finally {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     * 只重新检查一个名称，不扫描整个目录. 用于 {@link BootloaderContext#invalidateConfiguration(String)}，
+     * 刚放入目录的文件不必等到下一次检查目录的修改时间
+     * @param name 配置名称
+     */
+    void refresh (String name) {
+        if (!covers (name)) {
+            return;
+        }
+        lock.lock ();
+        try {
+            Set<String> set = names, lower = keys;
+            if (set == null) {
+                scan ();
+                return;
+            }
+            String key = key (name);
+            if (Files.exists (dir.resolve (name + ".conf"))) {
+                if (!lower.contains (key)) {
+                    // copy on write, the lookups don't lock
+                    Set<String> s = new HashSet<> (set), l = new HashSet<> (lower);
+                    s.add (name);
+                    l.add (key);
+                    keys = Collections.unmodifiableSet (l);
+                    names = Collections.unmodifiableSet (s);
+                }
+            } else if (set.contains (name)) {
+                Set<String> s = new HashSet<> (set);
+                s.remove (name);
+                boolean other = false;
+                for (String n : s) {
+                    if (key (n).equals (key)) {
+                        // another spelling of the same name on a case-sensitive file system
+                        other = true;
+                        break;
+                    }
+                }
+                if (!other) {
+                    Set<String> l = new HashSet<> (lower);
+                    l.remove (key);
+                    keys = Collections.unmodifiableSet (l);
+                }
+                names = Collections.unmodifiableSet (s);
+            }
+        } finally {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     * 目录的修改时间有变化时重新扫描
+     * @return 查询用的键
+     */
+    private Set<String> check (long now) {
+        lock.lock ();
+        try {
+            if (now - checked < interval) {
+                // another thread has just checked
+                return keys;
+            }
+            FileTime time = lastModified ();
+            if (racy || (time == null ? modified != null : !time.equals (modified))) {
+                scan ();
+            } else {
+                checked = now;
+            }
+            return keys;
+        } finally {
+            lock.unlock ();
+        }
+    }
+
+    private Set<String> scan () {
+        checked = System.nanoTime ();
+        FileTime time = lastModified ();
+        Set<String> set = new HashSet<> (), lower = new HashSet<> ();
+        if (time != null) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream (dir, "*.conf")) {
+                for (Path path : stream) {
+                    String file = path.getFileName ().toString ();
+                    String name = file.substring (0, file.length () - ".conf".length ());
+                    set.add (name);
+                    lower.add (key (name));
+                }
+            } catch (IOException ex) {
+                logger.warn ("can't list ext config dir " + dir, ex);
+            }
+        }
+        modified = time;
+        racy = time != null && System.currentTimeMillis () - time.toMillis () < RESOLUTION;
+        Set<String> result = Collections.unmodifiableSet (set);
+        keys = Collections.unmodifiableSet (lower);
+        names = result;
+        if (logger.isTraceEnabled ()) {
+            logger.trace ("ext config dir {} indexed: {}", dir, set);
+        }
+        return result;
+    }
+
+    /**
+     * 索引中的键，不区分大小写
+     */
+    private static String key (String name) {
+        return name.toLowerCase (Locale.ROOT);
+    }
+
+    private FileTime lastModified () {
+        try {
+            return Files.getLastModifiedTime (dir);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            logger.warn ("can't stat ext config dir " + dir, ex);
+            return null;
+        }
+    }
+}
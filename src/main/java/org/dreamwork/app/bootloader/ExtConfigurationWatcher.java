@@ -0,0 +1,102 @@
+package org.dreamwork.app.bootloader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 监视扩展配置目录，将一段静默期内的所有变更合并后交给回调处理.
+ *
+ * <p>回调在监视线程中执行，不会占用请求线程. 传给回调的集合中若包含 {@link #ALL}，
+ * 表示事件溢出，所有已加载的配置都需要重新加载.</p>
+ */
+final class ExtConfigurationWatcher implements Runnable {
+    static final String ALL = "*";
+
+    private final Logger logger = LoggerFactory.getLogger (ExtConfigurationWatcher.class);
+
+    private final Path dir;
+    private final long delay;
+    private final Consumer<Set<String>> callback;
+
+    private WatchService service;
+    private Thread thread;
+    private volatile boolean running;
+
+    ExtConfigurationWatcher (Path dir, long delay, Consumer<Set<String>> callback) {
+        this.dir = dir;
+        this.delay = delay;
+        this.callback = callback;
+    }
+
+    void start () throws IOException {
+        service = dir.getFileSystem ().newWatchService ();
+        dir.register (service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        running = true;
+        thread = new Thread (this, "ext-conf-watcher");
+        thread.setDaemon (true);
+        thread.start ();
+        if (logger.isTraceEnabled ()) {
+            logger.trace ("watching ext config dir: {}", dir);
+        }
+    }
+
+    void stop () {
+        running = false;
+        try {
+            service.close ();
+        } catch (IOException ex) {
+            logger.warn (ex.getMessage (), ex);
+        }
+        thread.interrupt ();
+    }
+
+    @Override
+    public void run () {
+        Set<String> dirty = new HashSet<> ();
+        try {
+            while (running) {
+                WatchKey key = dirty.isEmpty () ? service.take () : service.poll (delay, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    // quiet for a while, flush the coalesced changes
+                    fire (dirty);
+                    dirty = new HashSet<> ();
+                    continue;
+                }
+
+                for (WatchEvent<?> event : key.pollEvents ()) {
+                    if (event.kind () == OVERFLOW) {
+                        dirty.add (ALL);
+                        continue;
+                    }
+                    String file = event.context ().toString ();
+                    if (file.endsWith (".conf")) {
+                        dirty.add (file.substring (0, file.length () - ".conf".length ()));
+                    }
+                }
+                if (!key.reset ()) {
+                    logger.warn ("ext config dir {} is no longer accessible, stop watching", dir);
+                    break;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // stopped
+        }
+    }
+
+    private void fire (Set<String> names) {
+        try {
+            callback.accept (names);
+        } catch (Exception ex) {
+            logger.warn (ex.getMessage (), ex);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.cli.Argument;
+
+import java.util.List;
+
+/**
+ * 编译期生成的命令行参数表.
+ *
+ * <p>{@link org.dreamwork.app.bootloader.processor.BootableProcessor} 在编译时读取
+ * {@link IBootable#argumentDef()} 指定的参数定义，校验后为每个 {@link IBootable} 类型生成名为
+ * <code>&lt;类型名&gt;_BootArguments</code> 的实现. 启动时若找到该类，将直接使用它，不再解析应用的 json.</p>
+ *
+ * <p>参数表只包含应用自己的参数. 启动器内置的参数 (<code>application-bootloader.json</code>)
+ * 在构建启动器时同样编译成参数表，运行时取自实际使用的启动器 jar，再用应用参数表中的定义覆盖.</p>
+ */
+public interface IArgumentTable {
+    /** 生成类的名称后缀 */
+    String SUFFIX = "_BootArguments";
+
+    /**
+     * @return 应用自己的参数定义，每次调用都返回新的实例
+     */
+    List<Argument> getArguments ();
+}
@@ -8,4 +8,15 @@ import java.lang.annotation.*;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface IBootable {
     String argumentDef () default "";
+
+    /**
+     * 是否在启动时并行预加载扩展配置目录中的所有 <code>.conf</code> 文件，
+     * 等同于命令行参数 <code>--preload-ext-conf</code>
+     */
+    boolean preloadExtConf () default false;
+
+    /**
+     * 是否在虚拟线程上运行入口 (需要 JDK 21)，等同于命令行参数 <code>--virtual-threads</code>
+     */
+    boolean virtualThreads () default false;
 }
\ No newline at end of file
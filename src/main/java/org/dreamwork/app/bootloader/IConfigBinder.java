@@ -0,0 +1,32 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.config.IConfiguration;
+
+/**
+ * 编译期为 {@link ConfigBinding} 接口生成的绑定器.
+ * @param <T> 绑定的接口
+ */
+public interface IConfigBinder<T> {
+    /** 生成类的名称后缀 */
+    String SUFFIX = "_Binding";
+    /** 编译期生成的绑定器索引，每行一个绑定器的类名 */
+    String INDEX = "META-INF/bootloader/bindings";
+
+    /**
+     * @return 绑定的接口
+     */
+    Class<T> getType ();
+
+    /**
+     * @return 绑定的配置名称，空字符串表示根配置
+     */
+    String getName ();
+
+    /**
+     * 将配置绑定到接口的一个新实例
+     * @param conf 配置
+     * @return 绑定的实例
+     * @throws IllegalArgumentException 配置为 null (配置不存在)，缺少必须的属性或属性的类型错误，消息中包含所有的错误
+     */
+    T bind (IConfiguration conf);
+}
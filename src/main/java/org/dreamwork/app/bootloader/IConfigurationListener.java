@@ -0,0 +1,15 @@
+package org.dreamwork.app.bootloader;
+
+/**
+ * 扩展配置变更的监听器.
+ *
+ * <p>仅当启用了扩展配置目录的监视模式 (<code>--watch-ext-conf</code> 或 <code>ext.conf.watch=true</code>)
+ * 时才会收到通知. 短时间内的多次文件变更会被合并成一个事件，在监视线程中回调.</p>
+ */
+public interface IConfigurationListener {
+    /**
+     * 扩展配置已重新加载
+     * @param event 变更事件
+     */
+    void onChanged (ConfigurationChangeEvent event);
+}
@@ -0,0 +1,15 @@
+package org.dreamwork.app.bootloader;
+
+/**
+ * 应用就绪的监听器.
+ *
+ * <p>入口返回 (阻塞的入口调用 {@link BootloaderContext#signalReady()}) 且所有 {@link WarmUp} 方法执行完成后，
+ * 应用被宣告就绪，在宣告就绪的线程中回调. 注册时应用已就绪则立即回调.</p>
+ */
+public interface IReadinessListener {
+    /**
+     * 应用已就绪
+     * @param timeline 启动时间线，{@link BootTimeline#getElapsed()} 为启动耗时，{@link BootTimeline#getWarmUp()} 为预热耗时
+     */
+    void onReady (BootTimeline timeline);
+}
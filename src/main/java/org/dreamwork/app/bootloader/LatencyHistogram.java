@@ -0,0 +1,68 @@
+package org.dreamwork.app.bootloader;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定桶的延迟直方图，记录时无锁，无对象分配
+ */
+final class LatencyHistogram {
+    /** 各个桶的上界，纳秒. 最后一个桶收集所有超过最大上界的值 */
+    static final long[] BOUNDS = {
+            100_000L, 500_000L, 1_000_000L, 5_000_000L, 10_000_000L,
+            50_000_000L, 100_000_000L, 500_000_000L, 1_000_000_000L
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder ();
+    private final LongAdder sum = new LongAdder ();
+
+    LatencyHistogram () {
+        for (int i = 0; i < buckets.length; i ++) {
+            buckets [i] = new LongAdder ();
+        }
+    }
+
+    void record (long nanos) {
+        int i = 0;
+        while (i < BOUNDS.length && nanos > BOUNDS [i]) {
+            i ++;
+        }
+        buckets [i].increment ();
+        count.increment ();
+        sum.add (nanos);
+    }
+
+    long getCount () {
+        return count.sum ();
+    }
+
+    long getSum () {
+        return sum.sum ();
+    }
+
+    /**
+     * @return 第 index 个桶的计数 (非累积)
+     */
+    long getBucket (int index) {
+        return buckets [index].sum ();
+    }
+
+    /**
+     * @return 每个桶的计数 (非累积)，长度为 BOUNDS.length + 1
+     */
+    long[] getBuckets () {
+        long[] result = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i ++) {
+            result [i] = buckets [i].sum ();
+        }
+        return result;
+    }
+
+    static String label (int index) {
+        if (index >= BOUNDS.length) {
+            return "+Inf";
+        }
+        long bound = BOUNDS [index];
+        return bound >= 1_000_000L ? "<=" + (bound / 1_000_000L) + "ms" : "<=" + (bound / 1_000L) + "us";
+    }
+}
@@ -0,0 +1,227 @@
+package org.dreamwork.app.bootloader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * 以 Prometheus 文本格式导出启动器指标的 HTTP 端点，基于 JDK 内置的 {@link HttpServer}，只绑定回环地址.
+ *
+ * <p>请求在单个守护线程中串行处理，输出直接写入一个复用的字节缓冲区，数字不经过字符串转换，
+ * 抓取时除缓冲区扩容外几乎不产生对象.</p>
+ *
+ * <p>所有指标都带有 <code>context</code> 标签，值为上下文名称.</p>
+ */
+final class MetricsEndpoint implements AutoCloseable {
+    static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final BootloaderMXBean stats;
+    private final LatencyHistogram loads;
+    private final Supplier<BootTimeline> timeline;
+    /** 已转义的 <code>context="..."</code> 标签 */
+    private final byte[] label;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    /** 只在 executor 的线程中使用 */
+    private byte[] buff = new byte[8192];
+    private int length;
+
+    private MetricsEndpoint (String context, BootloaderMXBean stats, LatencyHistogram loads,
+                             Supplier<BootTimeline> timeline, HttpServer server) {
+        this.stats = stats;
+        this.loads = loads;
+        this.timeline = timeline;
+        this.server = server;
+        this.label = ("context=\"" + escape (context) + "\"").getBytes (StandardCharsets.UTF_8);
+        this.executor = Executors.newSingleThreadExecutor (r -> {
+            Thread t = new Thread (r, "bootloader-" + context + "-metrics");
+            t.setDaemon (true);
+            return t;
+        });
+    }
+
+    /**
+     * 启动端点
+     * @param port 端口，0 表示任意可用端口
+     */
+    static MetricsEndpoint start (String context, int port, BootloaderMXBean stats, LatencyHistogram loads,
+                                  Supplier<BootTimeline> timeline) throws IOException {
+        HttpServer server = HttpServer.create (new InetSocketAddress (InetAddress.getLoopbackAddress (), port), 0);
+        MetricsEndpoint endpoint = new MetricsEndpoint (context, stats, loads, timeline, server);
+        server.createContext (PATH, endpoint::handle);
+        server.setExecutor (endpoint.executor);
+        server.start ();
+        return endpoint;
+    }
+
+    InetSocketAddress getAddress () {
+        return server.getAddress ();
+    }
+
+    @Override
+    public void close () {
+        server.stop (0);
+        executor.shutdownNow ();
+    }
+
+    private void handle (HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals (exchange.getRequestMethod ()) && !"HEAD".equals (exchange.getRequestMethod ())) {
+                exchange.sendResponseHeaders (405, -1);
+                return;
+            }
+            render ();
+            exchange.getResponseHeaders ().set ("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals (exchange.getRequestMethod ())) {
+                exchange.sendResponseHeaders (200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders (200, length);
+            try (OutputStream out = exchange.getResponseBody ()) {
+                out.write (buff, 0, length);
+            }
+        } finally {
+            exchange.close ();
+        }
+    }
+
+    private void render () {
+        length = 0;
+
+        BootTimeline tl = timeline.get ();
+        type ("bootloader_boot_phase_seconds", "gauge", "duration of each boot phase");
+        for (BootTimeline.Phase phase : tl.phases ()) {
+            name ("bootloader_boot_phase_seconds").ascii (",phase=\"").ascii (phase.getName ()).ascii ("\"} ").seconds (phase.getDuration ()).nl ();
+        }
+        gauge ("bootloader_boot_seconds", "time to start the application, warm-up excluded").seconds (tl.getElapsed ()).nl ();
+        gauge ("bootloader_warmup_seconds", "time spent in the @WarmUp methods").seconds (tl.getWarmUp ()).nl ();
+        gauge ("bootloader_ready", "1 when the application is started and warmed up").number (stats.isReady () ? 1 : 0).nl ();
+
+        gauge ("bootloader_config_cache_size", "number of cached ext configurations").number (stats.getCachedConfigurationCount ()).nl ();
+        counter ("bootloader_config_cache_hits_total", "getConfiguration calls served from the cache").number (stats.getHits ()).nl ();
+        counter ("bootloader_config_cache_misses_total", "getConfiguration calls missing the cache").number (stats.getMisses ()).nl ();
+        counter ("bootloader_config_absent_total", "getConfiguration calls for configurations not in the ext config dir").number (stats.getAbsentCount ()).nl ();
+        gauge ("bootloader_config_loads_in_flight", "ext configurations being loaded").number (stats.getLoadsInFlight ()).nl ();
+
+        type ("bootloader_config_load_seconds", "histogram", "latency of loading an ext configuration from disk");
+        long cumulative = 0;
+        for (int i = 0; i <= LatencyHistogram.BOUNDS.length; i ++) {
+            cumulative += loads.getBucket (i);
+            name ("bootloader_config_load_seconds_bucket").ascii (",le=\"");
+            if (i < LatencyHistogram.BOUNDS.length) {
+                seconds (LatencyHistogram.BOUNDS [i]);
+            } else {
+                ascii ("+Inf");
+            }
+            ascii ("\"} ").number (cumulative).nl ();
+        }
+        name ("bootloader_config_load_seconds_sum").ascii ("} ").seconds (loads.getSum ()).nl ();
+        name ("bootloader_config_load_seconds_count").ascii ("} ").number (loads.getCount ()).nl ();
+
+        counter ("bootloader_config_waits_total", "callers waiting for another thread loading the same configuration").number (stats.getWaitCount ()).nl ();
+        counter ("bootloader_config_wait_seconds_total", "time spent waiting for another thread loading the same configuration").seconds (stats.getWaitTimeNanos ()).nl ();
+        counter ("bootloader_config_reloads_total", "ext configurations reloaded by the watcher").number (stats.getReloadCount ()).nl ();
+        gauge ("bootloader_config_snapshot_version", "version of the published configuration snapshot").number (stats.getSnapshotVersion ()).nl ();
+        counter ("bootloader_placeholder_resolutions_total", "placeholder substitutions in the root configuration").number (stats.getPlaceholderResolutionCount ()).nl ();
+
+        gauge ("bootloader_log_queue_depth", "records waiting in the async log handler").number (stats.getLogQueueDepth ()).nl ();
+        counter ("bootloader_log_dropped_total", "records dropped by the async log handler").number (stats.getLogDropped ()).nl ();
+    }
+
+    private MetricsEndpoint gauge (String name, String help) {
+        type (name, "gauge", help);
+        return name (name).ascii ("} ");
+    }
+
+    private MetricsEndpoint counter (String name, String help) {
+        type (name, "counter", help);
+        return name (name).ascii ("} ");
+    }
+
+    private void type (String name, String type, String help) {
+        ascii ("# HELP ").ascii (name).ascii (" ").ascii (help).nl ();
+        ascii ("# TYPE ").ascii (name).ascii (" ").ascii (type).nl ();
+    }
+
+    /** 指标名和 context 标签，不关闭花括号 */
+    private MetricsEndpoint name (String name) {
+        ascii (name).ascii ("{");
+        ensure (label.length);
+        System.arraycopy (label, 0, buff, length, label.length);
+        length += label.length;
+        return this;
+    }
+
+    private MetricsEndpoint ascii (String s) {
+        int n = s.length ();
+        ensure (n);
+        for (int i = 0; i < n; i ++) {
+            char c = s.charAt (i);
+            buff [length ++] = (byte) (c < 0x80 ? c : '?');
+        }
+        return this;
+    }
+
+    private MetricsEndpoint nl () {
+        ensure (1);
+        buff [length ++] = '\n';
+        return this;
+    }
+
+    private MetricsEndpoint number (long value) {
+        ensure (20);
+        if (value < 0) {
+            buff [length ++] = '-';
+            value = -value;
+        }
+        int start = length;
+        do {
+            buff [length ++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        // digits were written in reverse order
+        for (int i = start, j = length - 1; i < j; i ++, j --) {
+            byte b = buff [i];
+            buff [i] = buff [j];
+            buff [j] = b;
+        }
+        return this;
+    }
+
+    /** 纳秒按秒输出，保留 9 位小数 */
+    private MetricsEndpoint seconds (long nanos) {
+        if (nanos < 0) {
+            ascii ("-");
+            nanos = -nanos;
+        }
+        number (nanos / 1_000_000_000L);
+        ensure (10);
+        buff [length ++] = '.';
+        long fraction = nanos % 1_000_000_000L;
+        for (long div = 100_000_000L; div > 0; div /= 10) {
+            buff [length ++] = (byte) ('0' + (fraction / div) % 10);
+        }
+        return this;
+    }
+
+    private void ensure (int n) {
+        if (length + n > buff.length) {
+            buff = Arrays.copyOf (buff, Math.max (buff.length * 2, length + n));
+        }
+    }
+
+    private static String escape (String value) {
+        return value.replace ("\\", "\\\\").replace ("\"", "\\\"").replace ("\n", "\\n");
+    }
+}
@@ -0,0 +1,80 @@
+package org.dreamwork.app.bootloader;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 同一个名称的并发加载只执行一次，其他调用者共享它的结果.
+ *
+ * <p>调用者先用 {@link #register(String, CompletableFuture)} 登记自己的 future，登记成功的调用者用
+ * {@link #run(String, CompletableFuture, Supplier)} 执行加载，其他调用者等待已登记的 future.
+ * 加载正常返回或抛出任何异常 (包括 {@link Error}) 时 future 都会被完成并取消登记，之后的调用者重新加载.</p>
+ *
+ * @param <V> 加载的结果
+ */
+final class SingleFlight<V> {
+    private final ConcurrentMap<String, CompletableFuture<V>> loading = new ConcurrentHashMap<> ();
+
+    /**
+     * 登记一次加载
+     * @param name   名称
+     * @param future 调用者自己的 future
+     * @return 正在进行中的同名加载，没有时返回 null，此时调用者必须用 {@link #run} 或 {@link #abort} 完成 future
+     */
+    CompletableFuture<V> register (String name, CompletableFuture<V> future) {
+        return loading.putIfAbsent (name, future);
+    }
+
+    /**
+     * 执行加载并完成 future. future 必须已经登记
+     * @return 加载的结果
+     */
+    V run (String name, CompletableFuture<V> future, Supplier<V> loader) {
+        try {
+            V value = loader.get ();
+            future.complete (value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            future.completeExceptionally (ex);
+            throw ex;
+        } finally {
+            loading.remove (name, future);
+        }
+    }
+
+    /**
+     * 加载无法开始 (如执行器拒绝了任务)，取消登记并以 <code>cause</code> 完成 future
+     */
+    void abort (String name, CompletableFuture<V> future, Throwable cause) {
+        loading.remove (name, future);
+        future.completeExceptionally (cause);
+    }
+
+    /**
+     * @return 正在进行中的加载数量
+     */
+    int size () {
+        return loading.size ();
+    }
+
+    /**
+     * 等待加载完成，并按原样抛出加载时的异常
+     */
+    static <V> V result (CompletableFuture<V> future, String name) {
+        try {
+            return future.join ();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause ();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new CompletionException ("can't load ext config [" + name + "]", cause);
+        }
+    }
+}
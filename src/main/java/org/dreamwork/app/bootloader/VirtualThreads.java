@@ -0,0 +1,92 @@
+package org.dreamwork.app.bootloader;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程的支持. 启动器以 java 8 编译，JDK 21 的 API 通过反射调用，
+ * 在不支持虚拟线程的 JVM 上 {@link #isSupported()} 返回 false.
+ */
+final class VirtualThreads {
+    /** Thread.ofVirtual () */
+    private static final Method OF_VIRTUAL;
+    /** Thread.Builder.OfVirtual.name (String, long) */
+    private static final Method NAME;
+    /** Thread.Builder.factory () */
+    private static final Method FACTORY;
+    /** Executors.newThreadPerTaskExecutor (ThreadFactory) */
+    private static final Method PER_TASK;
+    /** Thread.isVirtual () */
+    private static final Method IS_VIRTUAL;
+
+    static {
+        Method ofVirtual = null, name = null, factory = null, perTask = null, isVirtual = null;
+        try {
+            Class<?> builder = Class.forName ("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = Thread.class.getMethod ("ofVirtual");
+            name      = builder.getMethod ("name", String.class, long.class);
+            factory   = builder.getMethod ("factory");
+            perTask   = java.util.concurrent.Executors.class.getMethod ("newThreadPerTaskExecutor", ThreadFactory.class);
+            isVirtual = Thread.class.getMethod ("isVirtual");
+        } catch (ReflectiveOperationException ex) {
+            // jdk < 21
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME       = name;
+        FACTORY    = factory;
+        PER_TASK   = perTask;
+        IS_VIRTUAL = isVirtual;
+    }
+
+    private VirtualThreads () {}
+
+    static boolean isSupported () {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 创建虚拟线程工厂
+     * @param prefix 线程名前缀，线程名为 <code>prefix</code> 加上从 0 开始的序号
+     * @return 线程工厂
+     * @throws UnsupportedOperationException JVM 不支持虚拟线程
+     */
+    static ThreadFactory factory (String prefix) {
+        if (!isSupported ()) {
+            throw new UnsupportedOperationException ("virtual threads require jdk 21 or later");
+        }
+        Object builder = invoke (OF_VIRTUAL, null);
+        builder = invoke (NAME, builder, prefix, 0L);
+        return (ThreadFactory) invoke (FACTORY, builder);
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的执行器
+     * @param prefix 线程名前缀
+     * @return 执行器
+     * @throws UnsupportedOperationException JVM 不支持虚拟线程
+     */
+    static ExecutorService newExecutor (String prefix) {
+        return (ExecutorService) invoke (PER_TASK, null, factory (prefix));
+    }
+
+    static boolean isVirtual (Thread thread) {
+        return IS_VIRTUAL != null && (Boolean) invoke (IS_VIRTUAL, thread);
+    }
+
+    private static Object invoke (Method method, Object target, Object... args) {
+        try {
+            return method.invoke (target, args);
+        } catch (InvocationTargetException ex) {
+            Throwable cause = ex.getCause ();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException (cause);
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException (ex);
+        }
+    }
+}
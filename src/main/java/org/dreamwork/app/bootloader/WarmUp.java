@@ -0,0 +1,31 @@
+package org.dreamwork.app.bootloader;
+
+import java.lang.annotation.*;
+
+/**
+ * 预热方法. 入口返回后，启动类中标注了此注解的公共方法被反复调用，以便在应用被宣告就绪之前
+ * 让热点代码完成类加载和 JIT 编译.
+ *
+ * <p>入口阻塞 (启动服务后一直等待) 时永远不会返回，入口需要在服务启动后调用
+ * {@link BootloaderContext#signalReady()}，预热在该调用中进行；否则预热方法不会被执行.</p>
+ *
+ * <p>方法可以没有参数，或接受 {@link org.dreamwork.config.IConfiguration}；非静态的方法通过无参构造器创建实例.
+ * 未在注解中指定次数和时长时，使用配置 <code>warmup.iterations</code> 和 <code>warmup.duration</code> (毫秒).
+ * 次数和时长都设置时，任一条件满足即停止.</p>
+ *
+ * @see BootloaderContext#addReadinessListener(IReadinessListener)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface WarmUp {
+    /**
+     * @return 调用次数，0 表示使用配置
+     */
+    int iterations () default 0;
+
+    /**
+     * @return 持续调用的毫秒数，0 表示使用配置
+     */
+    long duration () default 0;
+}
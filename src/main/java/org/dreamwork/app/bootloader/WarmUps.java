@@ -0,0 +1,93 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.config.IConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 启动类中的 {@link WarmUp} 方法.
+ */
+final class WarmUps {
+    /** 注解和配置都没有指定次数和时长时的调用次数 */
+    static final int DEFAULT_ITERATIONS = 1000;
+
+    private static final Logger logger = LoggerFactory.getLogger (WarmUps.class);
+
+    private final Class<?> type;
+    private final List<Method> methods;
+
+    private WarmUps (Class<?> type, List<Method> methods) {
+        this.type = type;
+        this.methods = methods;
+    }
+
+    /**
+     * 查找类型中的预热方法
+     * @param type 启动类
+     * @return 预热方法，若没有返回 null
+     */
+    static WarmUps of (Class<?> type) {
+        List<Method> methods = new ArrayList<> ();
+        for (Method m : type.getMethods ()) {
+            if (m.isAnnotationPresent (WarmUp.class)) {
+                Class<?>[] types = m.getParameterTypes ();
+                if (types.length > 1 || (types.length == 1 && types [0] != IConfiguration.class)) {
+                    throw new IllegalArgumentException ("unsupported warm-up parameters: " + m);
+                }
+                methods.add (Entrance.accessible (m));
+            }
+        }
+        if (methods.isEmpty ()) {
+            return null;
+        }
+        // getMethods () has no particular order
+        methods.sort (Comparator.comparing (Method::getName));
+        return new WarmUps (type, methods);
+    }
+
+    /**
+     * 依次执行所有的预热方法，每个方法在时间线上记录为 <code>warmup.&lt;方法名&gt;</code>. 抛出异常的方法停止预热，不影响其他方法
+     * @param conf     根配置
+     * @param timeline 启动时间线
+     */
+    void run (IConfiguration conf, BootTimeline timeline) throws ReflectiveOperationException, InterruptedException {
+        Object target = null;
+        for (Method m : methods) {
+            if (!Modifier.isStatic (m.getModifiers ()) && target == null) {
+                target = Entrance.accessible (type.getDeclaredConstructor ()).newInstance ();
+            }
+
+            WarmUp wu = m.getAnnotation (WarmUp.class);
+            int iterations = wu.iterations () > 0 ? wu.iterations () : conf.getInt ("warmup.iterations", 0);
+            long duration = wu.duration () > 0 ? wu.duration () : conf.getLong ("warmup.duration", 0L);
+            if (iterations <= 0 && duration <= 0) {
+                iterations = DEFAULT_ITERATIONS;
+            }
+            long deadline = duration > 0 ? System.nanoTime () + duration * 1_000_000L : Long.MAX_VALUE;
+            Object[] args = m.getParameterTypes ().length == 0 ? new Object[0] : new Object[] {conf};
+
+            int count = 0;
+            try (BootTimeline.Phase phase = timeline.begin (BootTimeline.WARMUP + "." + m.getName ())) {
+                while ((iterations <= 0 || count < iterations) && System.nanoTime () < deadline) {
+                    if (Thread.interrupted ()) {
+                        throw new InterruptedException ("interrupted while warming up " + m.getName ());
+                    }
+                    m.invoke (Modifier.isStatic (m.getModifiers ()) ? null : target, args);
+                    count ++;
+                }
+                if (logger.isTraceEnabled ()) {
+                    logger.trace ("warm-up {}.{} invoked {} time(s)", type.getName (), m.getName (), count);
+                }
+            } catch (InvocationTargetException ex) {
+                logger.warn ("warm-up " + type.getName () + "." + m.getName () + " failed after " + count + " iteration(s)", ex.getCause ());
+            }
+        }
+    }
+}
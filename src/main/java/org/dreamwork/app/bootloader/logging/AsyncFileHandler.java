@@ -0,0 +1,351 @@
+package org.dreamwork.app.bootloader.logging;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * 异步、批量写入的 JDK 日志文件处理器.
+ *
+ * <p>调用日志的线程只把 {@link LogRecord} 放入无锁的环形缓冲区，由一个后台线程格式化并批量写入文件，
+ * 每批只 flush 一次. 缓冲区为空时后台线程挂起，直到有日志放入才被唤醒.
+ * 文件超过 <code>limit</code> 字节 (UTF-8 编码后) 时滚动为 <code>file.1</code> ... <code>file.count</code>.</p>
+ *
+ * <p>缓冲区满时的行为由 {@link OverflowPolicy} 决定. {@link OverflowPolicy#BLOCK} 时生产者在
+ * {@link ReentrantLock} 的条件上等待，而不是对象监视器，在虚拟线程上等待时不会占住载体线程.</p>
+ */
+public class AsyncFileHandler extends Handler {
+    /** 缓冲区满时的策略 */
+    public enum OverflowPolicy {
+        /** 等待缓冲区有空位，不丢弃日志 */
+        BLOCK,
+        /** 直接丢弃 */
+        DROP,
+        /** 缓冲区超过 3/4 时只保留 1/{@link #SAMPLE_RATE} 的非 SEVERE 日志，满时丢弃 */
+        SAMPLE
+    }
+
+    static final int SAMPLE_RATE = 10;
+    private static final int BATCH_SIZE = 256;
+
+    private final Path file;
+    private final long limit;
+    private final int count;
+    private final OverflowPolicy policy;
+    private final RingBuffer<LogRecord> buffer;
+    private final int highWater;
+
+    private final AtomicLong dropped = new AtomicLong ();
+    private final AtomicLong sampled = new AtomicLong ();
+    private final AtomicLong written = new AtomicLong ();
+    private final AtomicLong rotations = new AtomicLong ();
+
+    private final Thread writer;
+    /** 后台线程写完剩余日志并关闭文件后释放，不用 Thread.join，它在 JDK 21 - 23 中是监视器上的等待 */
+    private final CountDownLatch finished = new CountDownLatch (1);
+    private volatile boolean running = true;
+    /** 后台线程因缓冲区为空而挂起或即将挂起 */
+    private final AtomicBoolean idle = new AtomicBoolean ();
+    private final ReentrantLock lock = new ReentrantLock ();
+    /** BLOCK 策略下等待缓冲区空位的生产者 */
+    private final Condition space = lock.newCondition ();
+    /** 正在 {@link #space} 上等待的生产者数量，只在持有 {@link #lock} 时修改 */
+    private volatile int waiters;
+
+    private Writer out;
+    private long size;
+
+    /**
+     * @param file     日志文件
+     * @param capacity 缓冲区容量，向上取整为 2 的幂
+     * @param limit    单个文件的最大字节数 (UTF-8 编码后)，&lt;= 0 表示不滚动
+     * @param count    保留的历史文件数量
+     * @param policy   缓冲区满时的策略
+     * @throws IOException 无法打开日志文件
+     */
+    public AsyncFileHandler (String file, int capacity, long limit, int count, OverflowPolicy policy) throws IOException {
+        this.file = Paths.get (file).toAbsolutePath ();
+        this.limit = limit;
+        this.count = Math.max (1, count);
+        this.policy = policy == null ? OverflowPolicy.BLOCK : policy;
+        this.buffer = new RingBuffer<> (Math.max (2, capacity));
+        this.highWater = buffer.capacity () / 4 * 3;
+
+        setFormatter (new SimpleFormatter ());
+
+        Path parent = this.file.getParent ();
+        if (parent != null) {
+            Files.createDirectories (parent);
+        }
+        open ();
+
+        writer = new Thread (() -> {
+            try {
+                drain ();
+            } finally {
+                finished.countDown ();
+            }
+        }, "async-log-writer");
+        writer.setDaemon (true);
+        writer.start ();
+    }
+
+    @Override
+    public void publish (LogRecord record) {
+        if (!running || !isLoggable (record)) {
+            return;
+        }
+        // infer the caller on the calling thread, the writer thread has a different stack
+        record.getSourceClassName ();
+
+        switch (policy) {
+            case DROP:
+                if (!buffer.offer (record)) {
+                    dropped.incrementAndGet ();
+                    return;
+                }
+                break;
+            case SAMPLE:
+                if (record.getLevel ().intValue () < Level.SEVERE.intValue () &&
+                        buffer.size () >= highWater && sampled.incrementAndGet () % SAMPLE_RATE != 0) {
+                    dropped.incrementAndGet ();
+                    return;
+                } else if (!buffer.offer (record)) {
+                    dropped.incrementAndGet ();
+                    return;
+                }
+                break;
+            default:
+                if (!offerBlocking (record)) {
+                    dropped.incrementAndGet ();
+                    return;
+                }
+                break;
+        }
+        wakeUp ();
+    }
+
+    /**
+     * 放入日志，缓冲区满时等待后台线程腾出空位
+     * @return 处理器已关闭或等待时被中断返回 false
+     */
+    private boolean offerBlocking (LogRecord record) {
+        while (!buffer.offer (record)) {
+            if (!running) {
+                return false;
+            }
+            wakeUp ();
+            lock.lock ();
+            try {
+                waiters ++;
+                // re-checked under the lock, the writer signals after it frees some slots
+                if (running && buffer.isFull ()) {
+                    space.await ();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread ().interrupt ();
+                return false;
+            } finally {
+                waiters --;
+                lock.unlock ();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 唤醒挂起的后台线程. 只有后台线程已挂起 (缓冲区从空变为非空) 时才需要 unpark
+     */
+    private void wakeUp () {
+        if (idle.get () && idle.compareAndSet (true, false)) {
+            LockSupport.unpark (writer);
+        }
+    }
+
+    private void signalSpace () {
+        if (waiters > 0) {
+            lock.lock ();
+            try {
+                space.signalAll ();
+            } finally {
+                lock.unlock ();
+            }
+        }
+    }
+
+    @Override
+    public void flush () {
+        // the writer thread flushes after each batch
+    }
+
+    @Override
+    public void close () {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark (writer);
+        signalSpace ();
+        try {
+            finished.await (5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread ().interrupt ();
+        }
+    }
+
+    /**
+     * @return 缓冲区中等待写入的日志数量
+     */
+    public int getQueueDepth () {
+        return buffer.size ();
+    }
+
+    public int getCapacity () {
+        return buffer.capacity ();
+    }
+
+    /**
+     * @return 因缓冲区满或采样而丢弃的日志数量
+     */
+    public long getDropped () {
+        return dropped.get ();
+    }
+
+    /**
+     * @return 已写入文件的日志数量
+     */
+    public long getWritten () {
+        return written.get ();
+    }
+
+    public long getRotations () {
+        return rotations.get ();
+    }
+
+    public OverflowPolicy getPolicy () {
+        return policy;
+    }
+
+    private void drain () {
+        while (true) {
+            Formatter formatter = getFormatter ();
+            int n = 0;
+            LogRecord record;
+            while (n < BATCH_SIZE && (record = buffer.poll ()) != null) {
+                write (formatter, record);
+                n ++;
+            }
+            if (n > 0) {
+                signalSpace ();
+                flushQuietly ();
+            } else if (running) {
+                // announce that we are about to sleep, then check again: a producer either sees the flag
+                // and unparks us, or its record is visible here
+                idle.set (true);
+                if (running && buffer.isEmpty ()) {
+                    LockSupport.park (this);
+                }
+                idle.set (false);
+            } else if (buffer.size () == 0) {
+                break;
+            }
+        }
+        try {
+            out.close ();
+        } catch (IOException ex) {
+            reportError (null, ex, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    private void write (Formatter formatter, LogRecord record) {
+        String text;
+        try {
+            text = formatter.format (record);
+        } catch (Exception ex) {
+            reportError (null, ex, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        try {
+            long length = utf8Length (text);
+            if (limit > 0 && size > 0 && size + length > limit) {
+                rotate ();
+            }
+            out.write (text);
+            size += length;
+            written.incrementAndGet ();
+        } catch (IOException ex) {
+            reportError (null, ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private void flushQuietly () {
+        try {
+            out.flush ();
+        } catch (IOException ex) {
+            reportError (null, ex, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    private void rotate () throws IOException {
+        out.close ();
+        try {
+            for (int i = count - 1; i >= 1; i --) {
+                Path source = backup (i);
+                if (Files.exists (source)) {
+                    Files.move (source, backup (i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move (file, backup (1), StandardCopyOption.REPLACE_EXISTING);
+            rotations.incrementAndGet ();
+        } finally {
+            // keep logging even if the file can't be moved, into the current file in that case
+            open ();
+        }
+    }
+
+    /**
+     * @return 字符串 UTF-8 编码后的字节数
+     */
+    static long utf8Length (String text) {
+        long length = 0;
+        for (int i = 0, n = text.length (); i < n; i ++) {
+            char c = text.charAt (i);
+            if (c < 0x80) {
+                length ++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate (c) && i + 1 < n && Character.isLowSurrogate (text.charAt (i + 1))) {
+                length += 4;
+                i ++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private Path backup (int index) {
+        return file.resolveSibling (file.getFileName () + "." + index);
+    }
+
+    private void open () throws IOException {
+        size = Files.exists (file) ? Files.size (file) : 0;
+        out = new BufferedWriter (new OutputStreamWriter (new FileOutputStream (file.toFile (), true), StandardCharsets.UTF_8), 64 * 1024);
+    }
+}
@@ -0,0 +1,96 @@
+package org.dreamwork.app.bootloader.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界、无锁的多生产者单消费者环形缓冲区.
+ *
+ * <p>每个槽位带一个序号: 序号等于生产者位置时槽位空闲，等于位置 + 1 时槽位已写入可被消费.
+ * 生产者之间只通过一次 CAS 竞争写入位置，消费者只能有一个线程.</p>
+ */
+final class RingBuffer<E> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong ();
+    private volatile long head;
+
+    RingBuffer (int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<> (size);
+        this.sequences = new AtomicLongArray (size);
+        for (int i = 0; i < size; i ++) {
+            sequences.set (i, i);
+        }
+    }
+
+    /**
+     * 放入一个元素
+     * @return 缓冲区已满返回 false
+     */
+    boolean offer (E e) {
+        long pos = tail.get ();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get (index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet (pos, pos + 1)) {
+                    elements.lazySet (index, e);
+                    sequences.set (index, pos + 1);
+                    return true;
+                }
+                pos = tail.get ();
+            } else if (diff < 0) {
+                return false;
+            } else {
+                pos = tail.get ();
+            }
+        }
+    }
+
+    /**
+     * 取出一个元素，只能由消费者线程调用
+     * @return 缓冲区为空返回 null
+     */
+    E poll () {
+        long pos = head;
+        int index = (int) (pos & mask);
+        if (sequences.get (index) != pos + 1) {
+            return null;
+        }
+        E e = elements.get (index);
+        elements.lazySet (index, null);
+        sequences.set (index, pos + capacity);
+        head = pos + 1;
+        return e;
+    }
+
+    /**
+     * 下一个元素是否尚未写入，只能由消费者线程调用. 与 {@link #size()} 不同，已占位但还没写入的元素不算在内
+     */
+    boolean isEmpty () {
+        long pos = head;
+        return sequences.get ((int) (pos & mask)) != pos + 1;
+    }
+
+    boolean isFull () {
+        return tail.get () - head >= capacity;
+    }
+
+    int size () {
+        long size = tail.get () - head;
+        return (int) Math.max (0, Math.min (size, capacity));
+    }
+
+    int capacity () {
+        return capacity;
+    }
+}
@@ -0,0 +1,182 @@
+package org.dreamwork.app.bootloader.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 生成 {@link org.dreamwork.app.bootloader.ConfigBinding} 接口的绑定器源代码.
+ */
+final class BindingWriter {
+    /** 属性的类型 */
+    enum Kind {
+        STRING ("String", null, false),
+        INT ("int", "toInt", false),
+        LONG ("long", "toLong", false),
+        DOUBLE ("double", "toDouble", false),
+        BOOLEAN ("boolean", "toBoolean", false),
+        INTEGER ("Integer", "toInt", true),
+        LONG_OBJECT ("Long", "toLong", true),
+        DOUBLE_OBJECT ("Double", "toDouble", true),
+        BOOLEAN_OBJECT ("Boolean", "toBoolean", true),
+        ENUM (null, "toEnum", true);
+
+        /** 属性的 java 类型，枚举为 null */
+        final String javaType;
+        /** 转换方法 */
+        final String converter;
+        /** 未配置时是否为 null */
+        final boolean nullable;
+
+        Kind (String javaType, String converter, boolean nullable) {
+            this.javaType = javaType;
+            this.converter = converter;
+            this.nullable = nullable;
+        }
+
+        static Kind of (String typeName) {
+            switch (typeName) {
+                case "java.lang.String":  return STRING;
+                case "int":               return INT;
+                case "long":              return LONG;
+                case "double":            return DOUBLE;
+                case "boolean":           return BOOLEAN;
+                case "java.lang.Integer": return INTEGER;
+                case "java.lang.Long":    return LONG_OBJECT;
+                case "java.lang.Double":  return DOUBLE_OBJECT;
+                case "java.lang.Boolean": return BOOLEAN_OBJECT;
+                default:                  return null;
+            }
+        }
+    }
+
+    /** 接口的一个属性 */
+    static final class Property {
+        final String method;
+        final String key;
+        final Kind kind;
+        /** 枚举的规范名称 */
+        final String enumType;
+        /** 默认值，没有时为 null */
+        final String defaultValue;
+
+        Property (String method, String key, Kind kind, String enumType, String defaultValue) {
+            this.method = method;
+            this.key = key;
+            this.kind = kind;
+            this.enumType = enumType;
+            this.defaultValue = defaultValue;
+        }
+
+        String javaType () {
+            return kind == Kind.ENUM ? enumType : kind.javaType;
+        }
+
+        boolean required () {
+            return defaultValue == null && !kind.nullable;
+        }
+    }
+
+    private final List<Property> properties = new ArrayList<> ();
+
+    void add (Property property) {
+        properties.add (property);
+    }
+
+    /**
+     * 按方法名推导属性名: 去掉 get/is 前缀后，按驼峰拆分为以 . 分隔的小写单词, 如 maxPoolSize -&gt; max.pool.size
+     */
+    static String propertyName (String method, boolean bool) {
+        String name = method;
+        if (name.length () > 3 && name.startsWith ("get") && Character.isUpperCase (name.charAt (3))) {
+            name = name.substring (3);
+        } else if (bool && name.length () > 2 && name.startsWith ("is") && Character.isUpperCase (name.charAt (2))) {
+            name = name.substring (2);
+        }
+
+        StringBuilder builder = new StringBuilder (name.length () + 4);
+        for (int i = 0; i < name.length (); i ++) {
+            char c = name.charAt (i);
+            if (i > 0 && Character.isUpperCase (c)) {
+                char prev = name.charAt (i - 1);
+                boolean next = i + 1 < name.length () && Character.isLowerCase (name.charAt (i + 1));
+                // fooBar -> foo.bar, httpURLPath -> http.url.path
+                if (!Character.isUpperCase (prev) || next) {
+                    builder.append ('.');
+                }
+            }
+            builder.append (Character.toLowerCase (c));
+        }
+        return builder.toString ();
+    }
+
+    String write (String packageName, String simpleName, String typeName, String configName) {
+        StringBuilder out = new StringBuilder ();
+        if (!packageName.isEmpty ()) {
+            out.append ("package ").append (packageName).append (";\n\n");
+        }
+        out.append ("/**\n")
+           .append (" * Generated by ").append (BootableProcessor.class.getName ()).append (" for ").append (typeName).append (".\n")
+           .append (" * DO NOT EDIT.\n")
+           .append (" */\n")
+           .append ("public final class ").append (simpleName)
+           .append (" extends org.dreamwork.app.bootloader.AbstractConfigBinder<").append (typeName).append ("> {\n")
+           .append ("    public ").append (simpleName).append (" () {\n")
+           .append ("        super (").append (typeName).append (".class, ").append (literal (configName)).append (");\n")
+           .append ("    }\n\n")
+           .append ("    @Override\n")
+           .append ("    protected ").append (typeName).append (" bind (org.dreamwork.config.IConfiguration conf, java.util.List<String> errors) {\n");
+
+        for (int i = 0; i < properties.size (); i ++) {
+            Property p = properties.get (i);
+            out.append ("        String v").append (i).append (" = value (conf, ").append (literal (p.key)).append (", ")
+               .append (literal (p.defaultValue)).append (", ").append (p.required ()).append (", errors);\n");
+            out.append ("        final ").append (p.javaType ()).append (" p").append (i).append (" = ");
+            if (p.kind == Kind.STRING) {
+                out.append ('v').append (i);
+            } else {
+                out.append ('v').append (i).append (" == null ? ").append (p.kind.nullable ? "null" : zero (p.kind)).append (" : ")
+                   .append (p.kind.converter).append (" (").append (literal (p.key)).append (", v").append (i);
+                if (p.kind == Kind.ENUM) {
+                    out.append (", ").append (p.enumType).append (".class");
+                }
+                out.append (", errors)");
+            }
+            out.append (";\n");
+        }
+
+        out.append ("        return new ").append (typeName).append (" () {\n");
+        for (int i = 0; i < properties.size (); i ++) {
+            Property p = properties.get (i);
+            out.append ("            @Override\n")
+               .append ("            public ").append (p.javaType ()).append (' ').append (p.method).append (" () {\n")
+               .append ("                return p").append (i).append (";\n")
+               .append ("            }\n\n");
+        }
+        out.append ("            @Override\n")
+           .append ("            public String toString () {\n")
+           .append ("                return ").append (literal (typeName.substring (typeName.lastIndexOf ('.') + 1) + "{"));
+        for (int i = 0; i < properties.size (); i ++) {
+            Property p = properties.get (i);
+            out.append (" + ").append (literal ((i == 0 ? "" : ", ") + p.key + "=")).append (" + p").append (i);
+        }
+        out.append (" + \"}\";\n")
+           .append ("            }\n")
+           .append ("        };\n")
+           .append ("    }\n")
+           .append ("}\n");
+        return out.toString ();
+    }
+
+    private static String zero (Kind kind) {
+        switch (kind) {
+            case LONG:    return "0L";
+            case DOUBLE:  return "0D";
+            case BOOLEAN: return "false";
+            default:      return "0";
+        }
+    }
+
+    private static String literal (String s) {
+        return s == null ? "null" : SourceWriter.quote (s);
+    }
+}
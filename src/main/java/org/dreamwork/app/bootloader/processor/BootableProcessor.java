@@ -0,0 +1,455 @@
+package org.dreamwork.app.bootloader.processor;
+
+import org.dreamwork.app.bootloader.ApplicationEntrance;
+import org.dreamwork.app.bootloader.ArgumentDefinitions;
+import org.dreamwork.app.bootloader.ConfigBinding;
+import org.dreamwork.app.bootloader.IArgumentTable;
+import org.dreamwork.app.bootloader.IBootable;
+import org.dreamwork.app.bootloader.IConfigBinder;
+import org.dreamwork.cli.Argument;
+import org.dreamwork.util.StringUtil;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * 编译期处理 {@link IBootable} 类型的注解处理器.
+ *
+ * <p>读取类型自身的参数定义 ({@link IBootable#argumentDef()})，校验后生成 {@link IArgumentTable} 实现.
+ * 生成的参数表只包含应用自己的参数，启动器内置的参数表在运行时从所使用的启动器 jar 中取得并合并，
+ * 因此编译和运行时使用不同版本的启动器不会丢失内置参数. 参数定义有错误时编译失败；
+ * 找不到参数定义文件或参数定义无法用 java 代码表达时，给出警告并跳过生成，运行时退回到解析 json.</p>
+ *
+ * <p>同时按运行时相同的规则查找入口方法，生成入口索引 <code>META-INF/bootloader/&lt;类型名&gt;.entrance</code>，
+ * 启动时无需扫描类型的所有方法.</p>
+ *
+ * <p>为标注了 {@link ConfigBinding} 的接口生成 {@link IConfigBinder} 实现，并将所有绑定器记录在
+ * <code>META-INF/bootloader/bindings</code> 中，启动时逐一校验.</p>
+ *
+ * <p>使用启动器的项目无需额外配置，javac 会通过 <code>META-INF/services</code> 自动发现本处理器.</p>
+ */
+@SupportedAnnotationTypes ({"org.dreamwork.app.bootloader.IBootable", "org.dreamwork.app.bootloader.ConfigBinding"})
+public class BootableProcessor extends AbstractProcessor {
+    private Messager messager;
+    private Filer filer;
+    /** 本次编译生成的绑定器 */
+    private final Set<String> binders = new TreeSet<> ();
+
+    @Override
+    public synchronized void init (ProcessingEnvironment env) {
+        super.init (env);
+        messager = env.getMessager ();
+        filer = env.getFiler ();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion () {
+        return SourceVersion.latestSupported ();
+    }
+
+    @Override
+    public boolean process (Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element e : round.getElementsAnnotatedWith (IBootable.class)) {
+            if (e.getKind () != ElementKind.CLASS) {
+                continue;
+            }
+            TypeElement type = (TypeElement) e;
+            try {
+                generateArgumentTable (type);
+            } catch (Exception ex) {
+                messager.printMessage (Diagnostic.Kind.ERROR, "can't generate argument table: " + ex, type);
+            }
+            try {
+                generateEntranceIndex (type);
+            } catch (Exception ex) {
+                messager.printMessage (Diagnostic.Kind.ERROR, "can't generate entrance index: " + ex, type);
+            }
+        }
+        for (Element e : round.getElementsAnnotatedWith (ConfigBinding.class)) {
+            try {
+                generateBinder ((TypeElement) e);
+            } catch (Exception ex) {
+                messager.printMessage (Diagnostic.Kind.ERROR, "can't generate config binder: " + ex, e);
+            }
+        }
+        if (round.processingOver () && !binders.isEmpty ()) {
+            try {
+                writeBinderIndex ();
+            } catch (IOException ex) {
+                messager.printMessage (Diagnostic.Kind.ERROR, "can't write " + IConfigBinder.INDEX + ": " + ex);
+            }
+        }
+        return false;
+    }
+
+    private void generateBinder (TypeElement type) throws IOException {
+        if (type.getKind () != ElementKind.INTERFACE) {
+            messager.printMessage (Diagnostic.Kind.ERROR, "@ConfigBinding can only be applied to interfaces", type);
+            return;
+        }
+        if (!type.getTypeParameters ().isEmpty ()) {
+            messager.printMessage (Diagnostic.Kind.ERROR, "@ConfigBinding can't be applied to generic interfaces", type);
+            return;
+        }
+
+        ConfigBinding binding = type.getAnnotation (ConfigBinding.class);
+        Elements elements = processingEnv.getElementUtils ();
+        BindingWriter writer = new BindingWriter ();
+        boolean valid = true;
+        Set<String> keys = new HashSet<> ();
+        for (ExecutableElement m : ElementFilter.methodsIn (elements.getAllMembers (type))) {
+            if (!m.getModifiers ().contains (Modifier.ABSTRACT)) {
+                continue;
+            }
+            if (!m.getParameters ().isEmpty () || !m.getTypeParameters ().isEmpty ()) {
+                messager.printMessage (Diagnostic.Kind.ERROR, "a binding property can't take parameters", m);
+                valid = false;
+                continue;
+            }
+
+            TypeMirror returnType = m.getReturnType ();
+            BindingWriter.Kind kind = BindingWriter.Kind.of (returnType.toString ());
+            String enumType = null;
+            if (kind == null && returnType.getKind () == TypeKind.DECLARED &&
+                    ((DeclaredType) returnType).asElement ().getKind () == ElementKind.ENUM) {
+                kind = BindingWriter.Kind.ENUM;
+                enumType = ((TypeElement) ((DeclaredType) returnType).asElement ()).getQualifiedName ().toString ();
+            }
+            if (kind == null) {
+                messager.printMessage (Diagnostic.Kind.ERROR, "unsupported binding property type: " + returnType, m);
+                valid = false;
+                continue;
+            }
+
+            String method = m.getSimpleName ().toString ();
+            ConfigBinding.Property property = m.getAnnotation (ConfigBinding.Property.class);
+            String key = property == null ? "" : property.key ().trim ();
+            if (key.isEmpty ()) {
+                boolean bool = kind == BindingWriter.Kind.BOOLEAN || kind == BindingWriter.Kind.BOOLEAN_OBJECT;
+                key = BindingWriter.propertyName (method, bool);
+                if (!binding.prefix ().isEmpty ()) {
+                    key = binding.prefix () + '.' + key;
+                }
+            }
+            if (!keys.add (key)) {
+                messager.printMessage (Diagnostic.Kind.ERROR, "duplicated binding key: " + key, m);
+                valid = false;
+            }
+
+            String defaultValue = property == null || ConfigBinding.UNDEFINED.equals (property.defaultValue ()) ? null : property.defaultValue ();
+            if (defaultValue != null) {
+                String error = checkDefault (kind, enumType == null ? null : (TypeElement) ((DeclaredType) returnType).asElement (), defaultValue);
+                if (error != null) {
+                    messager.printMessage (Diagnostic.Kind.ERROR, key + ": " + error, m);
+                    valid = false;
+                }
+            }
+            writer.add (new BindingWriter.Property (method, key, kind, enumType, defaultValue));
+        }
+        if (!valid) {
+            return;
+        }
+
+        String binaryName = elements.getBinaryName (type).toString ();
+        PackageElement pkg = elements.getPackageOf (type);
+        String packageName = pkg.isUnnamed () ? "" : pkg.getQualifiedName ().toString ();
+        String simpleName = (packageName.isEmpty () ? binaryName : binaryName.substring (packageName.length () + 1)) + IConfigBinder.SUFFIX;
+        String qualified = packageName.isEmpty () ? simpleName : packageName + '.' + simpleName;
+
+        String source = writer.write (packageName, simpleName, type.getQualifiedName ().toString (), binding.name ());
+        JavaFileObject file = filer.createSourceFile (qualified, type);
+        try (Writer out = file.openWriter ()) {
+            out.write (source);
+        }
+        binders.add (qualified);
+    }
+
+    /**
+     * 在编译期检查默认值是否能转换成属性的类型
+     * @return 错误信息，没有错误返回 null
+     */
+    private String checkDefault (BindingWriter.Kind kind, TypeElement enumType, String value) {
+        String s = value.trim ();
+        try {
+            switch (kind) {
+                case INT: case INTEGER:
+                    Integer.parseInt (s);
+                    break;
+                case LONG: case LONG_OBJECT:
+                    Long.parseLong (s);
+                    break;
+                case DOUBLE: case DOUBLE_OBJECT:
+                    Double.parseDouble (s);
+                    break;
+                case BOOLEAN: case BOOLEAN_OBJECT:
+                    if (!"true".equalsIgnoreCase (s) && !"false".equalsIgnoreCase (s)) {
+                        return "default value '" + value + "' is not a boolean";
+                    }
+                    break;
+                case ENUM:
+                    for (Element e : enumType.getEnclosedElements ()) {
+                        if (e.getKind () == ElementKind.ENUM_CONSTANT && e.getSimpleName ().toString ().equalsIgnoreCase (s)) {
+                            return null;
+                        }
+                    }
+                    return "default value '" + value + "' is not a constant of " + enumType.getQualifiedName ();
+                default:
+                    break;
+            }
+        } catch (NumberFormatException ex) {
+            return "default value '" + value + "' is not a valid " + kind.name ().toLowerCase ();
+        }
+        return null;
+    }
+
+    /**
+     * 写入绑定器索引. 增量编译 (IDE、只编译变化的源文件的构建) 时本次编译只看得到部分绑定器，
+     * 所以总是与输出目录中已有的索引合并，保留未在本次编译中重新生成的条目.
+     * 索引不登记来源元素，否则构建工具会在其中任何一个接口被重新编译时先删除整个索引
+     */
+    private void writeBinderIndex () throws IOException {
+        Set<String> all = new TreeSet<> (binders);
+        try {
+            FileObject existing = filer.getResource (StandardLocation.CLASS_OUTPUT, "", IConfigBinder.INDEX);
+            try (Reader reader = existing.openReader (true); BufferedReader in = new BufferedReader (reader)) {
+                String line;
+                while ((line = in.readLine ()) != null) {
+                    line = line.trim ();
+                    if (!line.isEmpty () && !line.startsWith ("#")) {
+                        all.add (line);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            // no index yet
+        }
+
+        FileObject file = filer.createResource (StandardLocation.CLASS_OUTPUT, "", IConfigBinder.INDEX);
+        try (Writer writer = file.openWriter ()) {
+            writer.write ("# generated by " + BootableProcessor.class.getName () + ", DO NOT EDIT\n");
+            for (String name : all) {
+                writer.write (name + "\n");
+            }
+        }
+    }
+
+    private void generateArgumentTable (TypeElement type) throws IOException {
+        String binaryName = processingEnv.getElementUtils ().getBinaryName (type).toString ();
+        IBootable ib = type.getAnnotation (IBootable.class);
+
+        String name = ArgumentDefinitions.resourceName (binaryName, ib.argumentDef ());
+        String content = readResource (name);
+        if (content == null) {
+            // e.g. gradle keeps the resources in a separate output directory which is not visible here.
+            // a table without the application's own arguments would hide them at runtime, so don't generate one
+            messager.printMessage (Diagnostic.Kind.WARNING,
+                    "can't find " + name + " in the class output or the source path, argument table not generated, " +
+                    "it will be read at runtime", type);
+            return;
+        }
+        Map<String, Argument> map = new LinkedHashMap<> ();
+        if (!merge (type, map, name, content)) {
+            return;
+        }
+        List<String> sources = Collections.singletonList (name);
+
+        PackageElement pkg = processingEnv.getElementUtils ().getPackageOf (type);
+        String packageName = pkg.isUnnamed () ? "" : pkg.getQualifiedName ().toString ();
+        String simpleName = (packageName.isEmpty () ? binaryName : binaryName.substring (packageName.length () + 1)) + IArgumentTable.SUFFIX;
+
+        String source;
+        try {
+            source = new SourceWriter ().writeArgumentTable (packageName, simpleName, sources, new ArrayList<> (map.values ()));
+        } catch (UnsupportedOperationException ex) {
+            messager.printMessage (Diagnostic.Kind.WARNING,
+                    "argument table not generated, json will be parsed at runtime: " + ex.getMessage (), type);
+            return;
+        }
+
+        String qualified = packageName.isEmpty () ? simpleName : packageName + '.' + simpleName;
+        JavaFileObject file = filer.createSourceFile (qualified, type);
+        try (Writer writer = file.openWriter ()) {
+            writer.write (source);
+        }
+    }
+
+    /**
+     * 按运行时相同的规则查找入口方法，写入 <code>META-INF/bootloader/&lt;类型名&gt;.entrance</code>
+     */
+    private void generateEntranceIndex (TypeElement type) throws IOException {
+        Elements elements = processingEnv.getElementUtils ();
+        List<ExecutableElement> methods = new ArrayList<> ();
+        for (ExecutableElement m : ElementFilter.methodsIn (elements.getAllMembers (type))) {
+            if (m.getModifiers ().contains (Modifier.PUBLIC)) {
+                methods.add (m);
+            }
+        }
+
+        ExecutableElement entrance = null;
+        String kind = null;
+        for (ExecutableElement m : methods) {
+            if (m.getAnnotation (ApplicationEntrance.class) != null) {
+                kind = kindOf (m);
+                if (kind == null) {
+                    messager.printMessage (Diagnostic.Kind.ERROR,
+                            "an entrance can only take no parameter, IConfiguration or String[]", m);
+                    return;
+                }
+                entrance = m;
+                break;
+            }
+        }
+        if (entrance == null) {
+            for (String k : new String[] {"CONFIGURATION", "ARGUMENTS", "NONE"}) {
+                for (ExecutableElement m : methods) {
+                    if (m.getSimpleName ().contentEquals ("start") && k.equals (kindOf (m))) {
+                        entrance = m;
+                        kind = k;
+                        break;
+                    }
+                }
+                if (entrance != null) {
+                    break;
+                }
+            }
+        }
+        if (entrance == null) {
+            // the type may be used with load () only
+            return;
+        }
+
+        String returns = erasure (entrance.getReturnType ());
+        if (returns == null) {
+            messager.printMessage (Diagnostic.Kind.NOTE, "entrance index not generated for return type " + entrance.getReturnType (), entrance);
+            return;
+        }
+
+        String binaryName = elements.getBinaryName (type).toString ();
+        FileObject file = filer.createResource (StandardLocation.CLASS_OUTPUT, "", "META-INF/bootloader/" + binaryName + ".entrance", type);
+        try (Writer writer = file.openWriter ()) {
+            writer.write ("# generated by " + BootableProcessor.class.getName () + ", DO NOT EDIT\n");
+            writer.write ("name=" + entrance.getSimpleName () + "\n");
+            writer.write ("kind=" + kind + "\n");
+            writer.write ("static=" + entrance.getModifiers ().contains (Modifier.STATIC) + "\n");
+            writer.write ("returns=" + returns + "\n");
+        }
+    }
+
+    private String kindOf (ExecutableElement m) {
+        List<? extends VariableElement> params = m.getParameters ();
+        if (params.isEmpty ()) {
+            return "NONE";
+        }
+        if (params.size () == 1) {
+            String t = processingEnv.getTypeUtils ().erasure (params.get (0).asType ()).toString ();
+            if ("org.dreamwork.config.IConfiguration".equals (t)) {
+                return "CONFIGURATION";
+            }
+            if ("java.lang.String[]".equals (t)) {
+                return "ARGUMENTS";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 类型擦除后的二进制名称，数组等不支持的类型返回 null
+     */
+    private String erasure (TypeMirror type) {
+        TypeKind kind = type.getKind ();
+        if (kind.isPrimitive () || kind == TypeKind.VOID) {
+            return kind.name ().toLowerCase ();
+        }
+        if (kind == TypeKind.DECLARED) {
+            Element e = processingEnv.getTypeUtils ().asElement (type);
+            return processingEnv.getElementUtils ().getBinaryName ((TypeElement) e).toString ();
+        }
+        return null;
+    }
+
+    /**
+     * 解析、校验并合并一份参数定义
+     * @return 没有错误返回 true
+     */
+    private boolean merge (TypeElement type, Map<String, Argument> map, String name, String content) {
+        List<Argument> list;
+        try {
+            list = ArgumentDefinitions.parse (content);
+        } catch (RuntimeException ex) {
+            messager.printMessage (Diagnostic.Kind.ERROR, name + ": invalid json, " + ex.getMessage (), type);
+            return false;
+        }
+
+        boolean valid = true;
+        Set<String> options = new HashSet<> ();
+        for (int i = 0; list != null && i < list.size (); i ++) {
+            Argument a = list.get (i);
+            String label = name + "[" + i + "]";
+            if (a == null) {
+                messager.printMessage (Diagnostic.Kind.ERROR, label + ": empty argument definition", type);
+                valid = false;
+                continue;
+            }
+            if (StringUtil.isEmpty (a.shortOption) && StringUtil.isEmpty (a.longOption)) {
+                messager.printMessage (Diagnostic.Kind.ERROR, label + ": neither shortOption nor longOption is defined", type);
+                valid = false;
+            }
+            if (!StringUtil.isEmpty (a.shortOption)) {
+                if (a.shortOption.length () != 1) {
+                    messager.printMessage (Diagnostic.Kind.ERROR, label + ": shortOption must be a single character: " + a.shortOption, type);
+                    valid = false;
+                }
+                if (!options.add ("-" + a.shortOption)) {
+                    messager.printMessage (Diagnostic.Kind.ERROR, label + ": duplicated option -" + a.shortOption, type);
+                    valid = false;
+                }
+            }
+            if (!StringUtil.isEmpty (a.longOption) && !options.add ("--" + a.longOption)) {
+                messager.printMessage (Diagnostic.Kind.ERROR, label + ": duplicated option --" + a.longOption, type);
+                valid = false;
+            }
+            if (!a.requireValue && !StringUtil.isEmpty (a.defaultValue)) {
+                messager.printMessage (Diagnostic.Kind.WARNING, label + ": defaultValue is ignored because requireValue is false", type);
+            }
+            Set<String> values = SourceWriter.enumeratedValues (a);
+            if (!values.isEmpty () && !StringUtil.isEmpty (a.defaultValue) && !values.contains (a.defaultValue)) {
+                messager.printMessage (Diagnostic.Kind.ERROR, label + ": defaultValue " + a.defaultValue + " is not one of " + values, type);
+                valid = false;
+            }
+        }
+        if (valid) {
+            ArgumentDefinitions.merge (map, list);
+        }
+        return valid;
+    }
+
+    /**
+     * 读取项目中的资源文件. 构建工具在编译前已将资源复制到输出目录
+     */
+    private String readResource (String name) {
+        for (StandardLocation location : new StandardLocation[] {StandardLocation.CLASS_OUTPUT, StandardLocation.SOURCE_PATH}) {
+            try {
+                FileObject file = filer.getResource (location, "", name);
+                return file.getCharContent (true).toString ();
+            } catch (IOException | IllegalArgumentException ex) {
+                // not found in this location
+            }
+        }
+        return null;
+    }
+}
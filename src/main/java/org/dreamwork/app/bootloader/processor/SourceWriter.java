@@ -0,0 +1,227 @@
+package org.dreamwork.app.bootloader.processor;
+
+import org.dreamwork.cli.Argument;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * 生成 java 源代码.
+ *
+ * <p>参数定义对象通过反射逐字段地转换成赋值语句，只支持公共的字段和具有公共无参构造器的类型.
+ * 遇到无法表达的字段时抛出 {@link UnsupportedOperationException}.</p>
+ */
+final class SourceWriter {
+    private final StringBuilder body = new StringBuilder ();
+    private int counter;
+
+    String writeArgumentTable (String packageName, String simpleName, List<String> sources, List<Argument> arguments) {
+        for (Argument a : arguments) {
+            String var = object (a, Argument.class);
+            line ("list.add (" + var + ");");
+        }
+
+        StringBuilder out = new StringBuilder ();
+        if (!packageName.isEmpty ()) {
+            out.append ("package ").append (packageName).append (";\n\n");
+        }
+        out.append ("/**\n")
+           .append (" * Generated by ").append (BootableProcessor.class.getName ()).append (" from ").append (sources).append (".\n")
+           .append (" * DO NOT EDIT.\n")
+           .append (" */\n")
+           .append ("public final class ").append (simpleName).append (" implements org.dreamwork.app.bootloader.IArgumentTable {\n")
+           .append ("    @Override\n")
+           .append ("    public java.util.List<org.dreamwork.cli.Argument> getArguments () {\n")
+           .append ("        java.util.List<org.dreamwork.cli.Argument> list = new java.util.ArrayList<> (").append (arguments.size ()).append (");\n")
+           .append (body)
+           .append ("        return list;\n")
+           .append ("    }\n")
+           .append ("}\n");
+        return out.toString ();
+    }
+
+    /**
+     * 读取参数定义中枚举的可选值
+     */
+    static Set<String> enumeratedValues (Argument a) {
+        Set<String> set = new LinkedHashSet<> ();
+        try {
+            Field field = Argument.class.getField ("values");
+            Object values = field.get (a);
+            if (values instanceof Collection) {
+                for (Object item : (Collection<?>) values) {
+                    Object v = item == null ? null : item.getClass ().getField ("value").get (item);
+                    if (v != null) {
+                        set.add (v.toString ());
+                    }
+                }
+            }
+        } catch (NoSuchFieldException | IllegalAccessException ex) {
+            // no enumerated values
+        }
+        return set;
+    }
+
+    private void line (String code) {
+        body.append ("        ").append (code).append ('\n');
+    }
+
+    /**
+     * 生成构造对象的语句
+     * @return 保存该对象的局部变量名
+     */
+    private String object (Object o, Class<?> type) {
+        if (!Modifier.isPublic (type.getModifiers ()) || type.getCanonicalName () == null) {
+            throw new UnsupportedOperationException (type.getName () + " is not a public type");
+        }
+        try {
+            if (!Modifier.isPublic (type.getConstructor ().getModifiers ())) {
+                throw new NoSuchMethodException ();
+            }
+        } catch (NoSuchMethodException ex) {
+            throw new UnsupportedOperationException (type.getName () + " has no public no-arg constructor");
+        }
+
+        String var = "v" + (counter ++);
+        String name = type.getCanonicalName ();
+        line (name + " " + var + " = new " + name + " ();");
+
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass ()) {
+            for (Field field : c.getDeclaredFields ()) {
+                int m = field.getModifiers ();
+                if (Modifier.isStatic (m) || Modifier.isTransient (m) || field.isSynthetic ()) {
+                    continue;
+                }
+                Object value;
+                try {
+                    field.setAccessible (true);
+                    value = field.get (o);
+                } catch (Exception ex) {
+                    throw new UnsupportedOperationException ("can't read " + field);
+                }
+                if (isDefault (value, field.getType ())) {
+                    continue;
+                }
+                if (!Modifier.isPublic (m) || Modifier.isFinal (m)) {
+                    throw new UnsupportedOperationException (field + " is not a public writable field");
+                }
+                line (var + "." + field.getName () + " = " + value (value, field.getGenericType ()) + ";");
+            }
+        }
+        return var;
+    }
+
+    private String value (Object value, java.lang.reflect.Type type) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof String) {
+            return quote ((String) value);
+        }
+        if (value instanceof Character) {
+            return "'" + escape (value.toString (), '\'') + "'";
+        }
+        if (value instanceof Boolean || value instanceof Integer) {
+            return value.toString ();
+        }
+        if (value instanceof Long) {
+            return value + "L";
+        }
+        if (value instanceof Short || value instanceof Byte) {
+            return "(" + (value instanceof Short ? "short" : "byte") + ") " + value;
+        }
+        if (value instanceof Float || value instanceof Double) {
+            double d = ((Number) value).doubleValue ();
+            if (Double.isNaN (d) || Double.isInfinite (d)) {
+                throw new UnsupportedOperationException ("non-finite number: " + value);
+            }
+            return value + (value instanceof Float ? "F" : "D");
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).getDeclaringClass ().getCanonicalName () + "." + ((Enum<?>) value).name ();
+        }
+        if (value instanceof List) {
+            java.lang.reflect.Type element = Object.class;
+            if (type instanceof ParameterizedType) {
+                element = ((ParameterizedType) type).getActualTypeArguments () [0];
+            }
+            String elementName = typeName (element);
+            String var = "v" + (counter ++);
+            line ("java.util.List<" + elementName + "> " + var + " = new java.util.ArrayList<> (" + ((List<?>) value).size () + ");");
+            for (Object item : (List<?>) value) {
+                line (var + ".add (" + value (item, element) + ");");
+            }
+            return var;
+        }
+        if (value.getClass ().isArray ()) {
+            Class<?> component = value.getClass ().getComponentType ();
+            StringBuilder builder = new StringBuilder ("new ").append (typeName (component)).append ("[] {");
+            for (int i = 0, n = Array.getLength (value); i < n; i ++) {
+                if (i > 0) {
+                    builder.append (", ");
+                }
+                builder.append (value (Array.get (value, i), component));
+            }
+            return builder.append ('}').toString ();
+        }
+        if (value instanceof Map || value instanceof Collection) {
+            throw new UnsupportedOperationException ("unsupported type: " + value.getClass ().getName ());
+        }
+        return object (value, value.getClass ());
+    }
+
+    private static boolean isDefault (Object value, Class<?> type) {
+        if (value == null) {
+            return true;
+        }
+        if (type.isPrimitive ()) {
+            if (value instanceof Boolean) {
+                return !((Boolean) value);
+            }
+            if (value instanceof Character) {
+                return (Character) value == 0;
+            }
+            return ((Number) value).doubleValue () == 0;
+        }
+        return false;
+    }
+
+    private static String typeName (java.lang.reflect.Type type) {
+        if (type instanceof Class) {
+            Class<?> c = (Class<?>) type;
+            if (c.isPrimitive ()) {
+                throw new UnsupportedOperationException ("unsupported element type: " + c);
+            }
+            return c.getCanonicalName ();
+        }
+        if (type instanceof ParameterizedType) {
+            return typeName (((ParameterizedType) type).getRawType ());
+        }
+        throw new UnsupportedOperationException ("unsupported element type: " + type);
+    }
+
+    static String quote (String s) {
+        return '"' + escape (s, '"') + '"';
+    }
+
+    private static String escape (String s, char quote) {
+        StringBuilder builder = new StringBuilder (s.length () + 8);
+        for (int i = 0; i < s.length (); i ++) {
+            char c = s.charAt (i);
+            if (c == quote || c == '\\') {
+                builder.append ('\\').append (c);
+            } else if (c == '\n') {
+                builder.append ("\\n");
+            } else if (c == '\r') {
+                builder.append ("\\r");
+            } else if (c == '\t') {
+                builder.append ("\\t");
+            } else if (c < 0x20 || c > 0x7e) {
+                builder.append (String.format ("\\u%04x", (int) c));
+            } else {
+                builder.append (c);
+            }
+        }
+        return builder.toString ();
+    }
+}
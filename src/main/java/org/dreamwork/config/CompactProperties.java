@@ -0,0 +1,645 @@
+package org.dreamwork.config;
+
+import java.io.ObjectStreamException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 面向大量键的紧凑 {@link Properties}.
+ *
+ * <p>构造时的所有字符串键值被压缩到一个只读的存储中:</p>
+ * <ul>
+ *     <li>键在最后一个 <code>.</code> 处分为前缀和名称，如 <code>pool.db.url</code> 分为 <code>pool.db</code> 和
+ *     <code>url</code>. 前缀按 <code>.</code> 组成一棵树，同一前缀下的所有键共享同一个前缀，前缀之间共享上一级前缀</li>
+ *     <li>前缀的片段、名称和值保存在同一个去重的字符串表中，重复的名称和值只保存一份</li>
+ *     <li>按键查找使用开放寻址的 <code>int[]</code> 索引，直接使用键自身缓存的 <code>hashCode</code>，
+ *     比较时逐段对比，不会拼接出完整的键</li>
+ * </ul>
+ * 每个键只占用几个 <code>int</code>，读取不加锁，也不产生任何对象.
+ *
+ * <p>构造之后的写入保存在一个覆盖层中，删除只记录标记. 覆盖层为空时读取路径上只多一次 volatile 读.
+ * 适合写入很少的配置，不适合频繁修改.</p>
+ *
+ * <p>{@link #keySet()}, {@link #values()} 和 {@link #entrySet()} 返回的是只读的快照.</p>
+ */
+public class CompactProperties extends Properties {
+    private static final long serialVersionUID = 1L;
+
+    /** 覆盖层中被删除的键的标记 */
+    private static final Object REMOVED = new Object ();
+
+    private transient volatile Store store;
+    /** 构造之后写入的值，以及被删除的键 ({@link #REMOVED}) */
+    private transient final ConcurrentMap<Object, Object> overlay = new ConcurrentHashMap<> ();
+    /** 覆盖层是否不为空 */
+    private transient volatile boolean modified;
+    /** 覆盖层对键数量的影响，只在持有锁时修改 */
+    private transient volatile int delta;
+
+    public CompactProperties () {
+        this.store = Store.EMPTY;
+    }
+
+    /**
+     * 压缩 <code>props</code> 中的所有键值，非字符串的键值放入覆盖层
+     * @param props 原始配置
+     */
+    public CompactProperties (Properties props) {
+        Set<String> names = props == null ? Collections.<String>emptySet () : props.stringPropertyNames ();
+        Builder builder = new Builder (names.size ());
+        for (String name : names) {
+            builder.add (name, props.getProperty (name));
+        }
+        this.store = builder.build ();
+        if (props != null) {
+            // keep non-string values as they are
+            for (Map.Entry<Object, Object> e : props.entrySet ()) {
+                if (!(e.getKey () instanceof String) || !(e.getValue () instanceof String)) {
+                    putIfAbsent (e.getKey (), e.getValue ());
+                }
+            }
+        }
+    }
+
+    private CompactProperties (CompactProperties other) {
+        synchronized (other) {
+            this.store = other.store;
+            this.overlay.putAll (other.overlay);
+            this.modified = other.modified;
+            this.delta = other.delta;
+            this.defaults = other.defaults;
+        }
+    }
+
+    @Override
+    public String getProperty (String key) {
+        Object value = get (key);
+        String s = value instanceof String ? (String) value : null;
+        return s == null && defaults != null ? defaults.getProperty (key) : s;
+    }
+
+    @Override
+    public String getProperty (String key, String defaultValue) {
+        String value = getProperty (key);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public Object get (Object key) {
+        if (modified) {
+            Object value = overlay.get (key);
+            if (value != null) {
+                return value == REMOVED ? null : value;
+            }
+        }
+        return key instanceof String ? store.get ((String) key) : null;
+    }
+
+    @Override
+    public Object getOrDefault (Object key, Object defaultValue) {
+        Object value = get (key);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public boolean containsKey (Object key) {
+        return get (key) != null;
+    }
+
+    @Override
+    public boolean containsValue (Object value) {
+        return contains (value);
+    }
+
+    @Override
+    public boolean contains (Object value) {
+        if (value == null) {
+            throw new NullPointerException ();
+        }
+        for (Map.Entry<Object, Object> e : entrySet ()) {
+            if (value.equals (e.getValue ())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size () {
+        return store.size + delta;
+    }
+
+    @Override
+    public boolean isEmpty () {
+        return size () == 0;
+    }
+
+    @Override
+    public synchronized Object put (Object key, Object value) {
+        if (key == null || value == null) {
+            throw new NullPointerException ();
+        }
+        Object old = get (key);
+        overlay.put (key, value);
+        modified = true;
+        if (old == null) {
+            delta ++;
+        }
+        return old;
+    }
+
+    @Override
+    public synchronized Object remove (Object key) {
+        Object old = get (key);
+        if (old == null) {
+            return null;
+        }
+        if (key instanceof String && store.get ((String) key) != null) {
+            overlay.put (key, REMOVED);
+            modified = true;
+        } else {
+            overlay.remove (key);
+        }
+        delta --;
+        return old;
+    }
+
+    @Override
+    public synchronized boolean remove (Object key, Object value) {
+        Object old = get (key);
+        if (old != null && old.equals (value)) {
+            remove (key);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void putAll (Map<?, ?> t) {
+        for (Map.Entry<?, ?> e : t.entrySet ()) {
+            put (e.getKey (), e.getValue ());
+        }
+    }
+
+    @Override
+    public synchronized Object putIfAbsent (Object key, Object value) {
+        Object old = get (key);
+        return old != null ? old : put (key, value);
+    }
+
+    @Override
+    public synchronized boolean replace (Object key, Object oldValue, Object newValue) {
+        Object old = get (key);
+        if (old != null && old.equals (oldValue)) {
+            put (key, newValue);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized Object replace (Object key, Object value) {
+        return get (key) != null ? put (key, value) : null;
+    }
+
+    @Override
+    public synchronized void replaceAll (BiFunction<? super Object, ? super Object, ?> function) {
+        for (Map.Entry<Object, Object> e : entrySet ()) {
+            put (e.getKey (), function.apply (e.getKey (), e.getValue ()));
+        }
+    }
+
+    @Override
+    public synchronized Object computeIfAbsent (Object key, Function<? super Object, ?> function) {
+        Object value = get (key);
+        if (value == null) {
+            value = function.apply (key);
+            if (value != null) {
+                put (key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized Object computeIfPresent (Object key, BiFunction<? super Object, ? super Object, ?> function) {
+        Object old = get (key);
+        return old == null ? null : update (key, function.apply (key, old));
+    }
+
+    @Override
+    public synchronized Object compute (Object key, BiFunction<? super Object, ? super Object, ?> function) {
+        return update (key, function.apply (key, get (key)));
+    }
+
+    @Override
+    public synchronized Object merge (Object key, Object value, BiFunction<? super Object, ? super Object, ?> function) {
+        Object old = get (key);
+        return update (key, old == null ? value : function.apply (old, value));
+    }
+
+    private Object update (Object key, Object value) {
+        if (value == null) {
+            remove (key);
+        } else {
+            put (key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized void clear () {
+        store = Store.EMPTY;
+        overlay.clear ();
+        modified = false;
+        delta = 0;
+    }
+
+    @Override
+    public void forEach (BiConsumer<? super Object, ? super Object> action) {
+        for (Map.Entry<Object, Object> e : entrySet ()) {
+            action.accept (e.getKey (), e.getValue ());
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet () {
+        Map<Object, Object> map = new HashMap<> (size () * 4 / 3 + 1);
+        Store s = store;
+        for (int n = 0; n < s.size; n ++) {
+            map.put (s.key (n), s.value (n));
+        }
+        if (modified) {
+            for (Map.Entry<Object, Object> e : overlay.entrySet ()) {
+                if (e.getValue () == REMOVED) {
+                    map.remove (e.getKey ());
+                } else {
+                    map.put (e.getKey (), e.getValue ());
+                }
+            }
+        }
+        return Collections.unmodifiableMap (map).entrySet ();
+    }
+
+    @Override
+    public Set<Object> keySet () {
+        Set<Object> set = new HashSet<> ();
+        for (Map.Entry<Object, Object> e : entrySet ()) {
+            set.add (e.getKey ());
+        }
+        return Collections.unmodifiableSet (set);
+    }
+
+    @Override
+    public Collection<Object> values () {
+        List<Object> list = new ArrayList<> ();
+        for (Map.Entry<Object, Object> e : entrySet ()) {
+            list.add (e.getValue ());
+        }
+        return Collections.unmodifiableList (list);
+    }
+
+    @Override
+    public Enumeration<Object> keys () {
+        return Collections.enumeration (keySet ());
+    }
+
+    @Override
+    public Enumeration<Object> elements () {
+        return Collections.enumeration (values ());
+    }
+
+    @Override
+    public Set<String> stringPropertyNames () {
+        Set<String> names = new HashSet<> ();
+        if (defaults != null) {
+            names.addAll (defaults.stringPropertyNames ());
+        }
+        for (Map.Entry<Object, Object> e : entrySet ()) {
+            if (e.getKey () instanceof String && e.getValue () instanceof String) {
+                names.add ((String) e.getKey ());
+            }
+        }
+        return Collections.unmodifiableSet (names);
+    }
+
+    @Override
+    public Enumeration<?> propertyNames () {
+        Set<Object> names = new HashSet<> ();
+        if (defaults != null) {
+            names.addAll (Collections.list (defaults.propertyNames ()));
+        }
+        names.addAll (keySet ());
+        return Collections.enumeration (names);
+    }
+
+    @Override
+    public synchronized Object clone () {
+        return new CompactProperties (this);
+    }
+
+    @Override
+    public synchronized String toString () {
+        return toMap ().toString ();
+    }
+
+    @Override
+    public synchronized boolean equals (Object o) {
+        return o == this || toMap ().equals (o);
+    }
+
+    @Override
+    public synchronized int hashCode () {
+        return toMap ().hashCode ();
+    }
+
+    private Map<Object, Object> toMap () {
+        Map<Object, Object> map = new HashMap<> ();
+        for (Map.Entry<Object, Object> e : entrySet ()) {
+            map.put (e.getKey (), e.getValue ());
+        }
+        return map;
+    }
+
+    /**
+     * 序列化为普通的 {@link Properties}
+     */
+    private Object writeReplace () throws ObjectStreamException {
+        Properties props = new Properties (defaults);
+        for (Map.Entry<Object, Object> e : entrySet ()) {
+            props.put (e.getKey (), e.getValue ());
+        }
+        return props;
+    }
+
+    /**
+     * 只读的压缩存储. 同一个键或前缀的字段交错保存在同一个数组中，一次查找只涉及少数几个缓存行.
+     *
+     * <p>键 <code>n</code> 由前缀 <code>keys[3n]</code> (没有前缀时为 -1)、<code>.</code> 和名称
+     * <code>strings[keys[3n + 1]]</code> 组成，值为 <code>strings[keys[3n + 2]]</code>. 前缀 <code>p</code> 同样由
+     * 上一级前缀 <code>prefixes[2p]</code> 和片段 <code>strings[prefixes[2p + 1]]</code> 组成，所有前缀构成一棵树.
+     * <code>slots</code> 是按键的 hashCode 线性探测的索引，交替保存 hashCode 和键的序号加 1，序号为 0 表示空.</p>
+     */
+    static final class Store {
+        static final Store EMPTY = new Builder (0).build ();
+
+        /** 片段、名称和值的字符串表 */
+        final String[] strings;
+        /** 前缀树: 上一级前缀, 片段 */
+        final int[] prefixes;
+        /** 键: 前缀, 名称, 值 */
+        final int[] keys;
+        final int[] slots;
+        /** 键数 */
+        final int size;
+        private final int shift;
+
+        private Store (Builder b) {
+            this.strings = Arrays.copyOf (b.strings, b.stringCount);
+            this.prefixes = Arrays.copyOf (b.prefixes, b.prefixCount * 2);
+            this.keys = Arrays.copyOf (b.keys, b.size * 3);
+            this.size = b.size;
+
+            int capacity = 16;
+            while (capacity < size * 2) {
+                capacity <<= 1;
+            }
+            this.slots = new int[capacity * 2];
+            this.shift = 32 - Integer.numberOfTrailingZeros (capacity);
+            for (int n = 0; n < size; n ++) {
+                int h = b.hash [n];
+                int i = index (h);
+                while (slots [i * 2 + 1] != 0) {
+                    i = (i + 1) & (capacity - 1);
+                }
+                slots [i * 2] = h;
+                slots [i * 2 + 1] = n + 1;
+            }
+        }
+
+        private int index (int h) {
+            return (h * 0x9E3779B9) >>> shift;
+        }
+
+        String get (String key) {
+            int h = key.hashCode (), mask = slots.length / 2 - 1;
+            for (int i = index (h); ; i = (i + 1) & mask) {
+                int n = slots [i * 2 + 1] - 1;
+                if (n < 0) {
+                    return null;
+                }
+                if (slots [i * 2] == h && matches (n, key)) {
+                    return strings [keys [n * 3 + 2]];
+                }
+            }
+        }
+
+        /**
+         * 先比较名称，再逐段比较前缀，不拼接完整的键
+         */
+        private boolean matches (int n, String key) {
+            String last = strings [keys [n * 3 + 1]];
+            int end = key.length () - last.length ();
+            if (end < 0 || !key.startsWith (last, end)) {
+                return false;
+            }
+            int p = keys [n * 3];
+            if (p < 0) {
+                return end == 0;
+            }
+            return end > 0 && key.charAt (end - 1) == '.' && isPrefix (strings, prefixes, p, key, end - 1);
+        }
+
+        /**
+         * 拼接完整的键
+         */
+        String key (int n) {
+            String last = strings [keys [n * 3 + 1]];
+            int length = last.length ();
+            for (int p = keys [n * 3]; p >= 0; p = prefixes [p * 2]) {
+                length += strings [prefixes [p * 2 + 1]].length () + 1;
+            }
+            char[] chars = new char[length];
+            int end = length - last.length ();
+            last.getChars (0, last.length (), chars, end);
+            for (int p = keys [n * 3]; p >= 0; p = prefixes [p * 2]) {
+                String part = strings [prefixes [p * 2 + 1]];
+                chars [-- end] = '.';
+                end -= part.length ();
+                part.getChars (0, part.length (), chars, end);
+            }
+            return new String (chars);
+        }
+
+        String value (int n) {
+            return strings [keys [n * 3 + 2]];
+        }
+    }
+
+    /**
+     * 前缀 <code>p</code> 是否与 <code>key[0, end)</code> 相同
+     */
+    private static boolean isPrefix (String[] strings, int[] prefixes, int p, String key, int end) {
+        while (true) {
+            String part = strings [prefixes [p * 2 + 1]];
+            int start = end - part.length ();
+            if (start < 0 || !key.startsWith (part, start)) {
+                return false;
+            }
+            p = prefixes [p * 2];
+            if (p < 0) {
+                return start == 0;
+            }
+            if (start == 0 || key.charAt (start - 1) != '.') {
+                return false;
+            }
+            end = start - 1;
+        }
+    }
+
+    /**
+     * 建立 {@link Store}. 字符串表和前缀表都是开放寻址的表，查找时直接在键中逐字符比较，
+     * 只为新出现的片段、名称和值截取子串. 大多数键的前缀都已存在，每个键只需查找一次前缀
+     */
+    private static final class Builder {
+        String[] strings = new String[16];
+        int stringCount;
+        /** 交替保存字符串的 hashCode 和它在字符串表中的位置 + 1，位置为 0 表示空 */
+        private int[] stringLookup = new int[64];
+
+        /** 上一级前缀, 片段 */
+        int[] prefixes = new int[32];
+        int prefixCount;
+        /** 交替保存前缀的 hashCode 和前缀的序号 + 1，序号为 0 表示空 */
+        private int[] prefixLookup = new int[64];
+
+        /** 前缀, 名称, 值 */
+        int[] keys;
+        int[] hash;
+        int size;
+
+        Builder (int keys) {
+            this.keys = new int[keys * 3];
+            this.hash = new int[keys];
+        }
+
+        /**
+         * 添加一个键，调用者保证键不重复
+         */
+        void add (String key, String v) {
+            if (size == hash.length) {
+                int capacity = Math.max (16, size * 2);
+                keys = Arrays.copyOf (keys, capacity * 3);
+                hash = Arrays.copyOf (hash, capacity);
+            }
+            int dot = key.lastIndexOf ('.');
+            keys [size * 3] = dot < 0 ? -1 : prefix (key, dot);
+            keys [size * 3 + 1] = string (key, dot + 1, key.length ());
+            keys [size * 3 + 2] = string (v, 0, v.length ());
+            hash [size ++] = key.hashCode ();
+        }
+
+        /**
+         * @return 前缀 <code>key[0, end)</code> 的序号，不存在时创建
+         */
+        private int prefix (String key, int end) {
+            int h = hash (key, 0, end);
+            int mask = prefixLookup.length / 2 - 1;
+            for (int i = slot (h, mask); ; i = (i + 1) & mask) {
+                int p = prefixLookup [i * 2 + 1] - 1;
+                if (p < 0) {
+                    int dot = key.lastIndexOf ('.', end - 1);
+                    int up = dot < 0 ? -1 : prefix (key, dot);
+                    int part = string (key, dot + 1, end);
+                    if (prefixCount * 2 == prefixes.length) {
+                        prefixes = Arrays.copyOf (prefixes, prefixes.length * 2);
+                    }
+                    prefixes [prefixCount * 2] = up;
+                    prefixes [prefixCount * 2 + 1] = part;
+                    p = prefixCount ++;
+                    // the recursion above may have rehashed the table
+                    prefixLookup = put (prefixLookup, h, p + 1, prefixCount);
+                    return p;
+                }
+                if (prefixLookup [i * 2] == h && isPrefix (strings, prefixes, p, key, end)) {
+                    return p;
+                }
+            }
+        }
+
+        /**
+         * @return <code>s[start, end)</code> 在字符串表中的位置，不存在时加入
+         */
+        private int string (String s, int start, int end) {
+            boolean whole = start == 0 && end == s.length ();
+            int h = whole ? s.hashCode () : hash (s, start, end);
+            int mask = stringLookup.length / 2 - 1;
+            for (int i = slot (h, mask); ; i = (i + 1) & mask) {
+                int id = stringLookup [i * 2 + 1] - 1;
+                if (id < 0) {
+                    if (stringCount == strings.length) {
+                        strings = Arrays.copyOf (strings, stringCount * 2);
+                    }
+                    strings [stringCount ++] = whole ? s : s.substring (start, end);
+                    stringLookup = put (stringLookup, h, stringCount, stringCount);
+                    return stringCount - 1;
+                }
+                if (stringLookup [i * 2] == h) {
+                    String t = strings [id];
+                    if (t.length () == end - start && s.startsWith (t, start)) {
+                        return id;
+                    }
+                }
+            }
+        }
+
+        private static int hash (String s, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i ++) {
+                h = 31 * h + s.charAt (i);
+            }
+            return h;
+        }
+
+        /**
+         * 在查找表中加入一项，表中超过一半的位置被占用时扩容
+         * @return 查找表，可能是扩容后的新表
+         */
+        private static int[] put (int[] table, int h, int id, int count) {
+            if (count > table.length / 4) {
+                int[] old = table;
+                table = new int[old.length * 2];
+                for (int j = 0; j < old.length; j += 2) {
+                    if (old [j + 1] != 0) {
+                        insert (table, old [j], old [j + 1]);
+                    }
+                }
+            }
+            insert (table, h, id);
+            return table;
+        }
+
+        private static void insert (int[] table, int h, int id) {
+            int mask = table.length / 2 - 1;
+            int i = slot (h, mask);
+            while (table [i * 2 + 1] != 0) {
+                i = (i + 1) & mask;
+            }
+            table [i * 2] = h;
+            table [i * 2 + 1] = id;
+        }
+
+        private static int slot (int h, int mask) {
+            int x = h * 0x9E3779B9;
+            return (x ^ (x >>> 16)) & mask;
+        }
+
+        Store build () {
+            return new Store (this);
+        }
+    }
+}
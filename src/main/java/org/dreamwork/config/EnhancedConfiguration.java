@@ -1,48 +1,858 @@
 package org.dreamwork.config;
 
-import org.dreamwork.util.StringUtil;
-
-import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+/**
+ * 支持 <code>${key}</code> 占位符的配置.
+ *
+ * <p>每个配置值只会被解析一次，编译成 {@link Template}，完全替换后的结果会被缓存.
+ * 当某个键通过 <code>setRawProperty</code> 或其他方式被修改时，只有依赖于该键的缓存项会失效.
+ * 保存原始值的 {@link Properties} 的所有写方法 (包括 <code>putIfAbsent</code>, <code>replace</code>,
+ * <code>compute*</code> 和 <code>merge</code>) 都会通知本配置，它的 <code>keySet</code>, <code>values</code>
+ * 和 <code>entrySet</code> 视图是只读的.</p>
+ *
+ * <p>{@link #getInt(String, int)}, {@link #getLong(String, long)}, {@link #getDouble(String, double)} 和
+ * {@link #getBoolean(String, boolean)} 的解析结果按原始类型缓存在 {@link TypedValue} 中，重复读取时不再解析字符串，
+ * 也不会产生装箱对象. 缓存随占位符缓存一起失效.</p>
+ *
+ * <p>所有的键保存在一个有序索引中，{@link #keys(String)}, {@link #children(String)} 和 {@link #subset(String)}
+ * 按前缀查找时无需遍历所有的键. 返回的都是实时的视图，不会复制配置. 索引在第一次按前缀查找时才建立.</p>
+ *
+ * <p>键很多的配置可以用 {@link #EnhancedConfiguration(Properties, boolean)} 把原始值保存在 {@link CompactProperties} 中.
+ * 缓存只包含被读取过的键，常用的键仍然直接从缓存中读取.</p>
+ *
+ * <p>通过 {@link #setProfile(KeyAccessProfiler.Profile)} 开启访问统计后，每次读取、占位符替换和引用都会被计数，
+ * 未开启时读取路径上只多一次 volatile 读.</p>
+ *
+ * <p>未定义或为空的占位符保持原样输出；循环引用（如 <code>a=${b}, b=${a}</code>）将抛出
+ * {@link IllegalStateException}.</p>
+ */
 public class EnhancedConfiguration extends PropertyConfiguration {
-    private static final Pattern P = Pattern.compile ("\\$\\{(.*?)\\}");
+    private static final Object[] NO_ARGS = new Object[0];
+
+    /** 已完全替换的值 */
+    private final ConcurrentMap<String, String> resolved = new ConcurrentHashMap<> ();
+    /** 已编译的模板 */
+    private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<> ();
+    /** 按原始类型缓存的值 */
+    private final ConcurrentMap<String, TypedValue> typed = new ConcurrentHashMap<> ();
+    /** 反向依赖: key -> 引用了 key 的其他键 */
+    private final ConcurrentMap<String, Set<String>> dependents = new ConcurrentHashMap<> ();
+    /** 所有键的有序索引，第一次使用时建立，只在持有 raw 的锁时修改 */
+    private volatile NavigableSet<String> index;
+    private volatile NavigableSet<String> readonlyIndex;
+    private final Properties raw;
+
+    /** 未命中缓存、实际替换占位符的次数 */
+    private final LongAdder resolutions = new LongAdder ();
+    /** 访问统计，未开启时为 null */
+    private volatile KeyAccessProfiler.Profile profile;
+
+    /** 每次修改都会递增，用于防止并发读写时缓存了过期的值 */
+    private volatile long version;
 
     public EnhancedConfiguration (Properties props) {
-        super (props);
+        this (props, false);
+    }
+
+    /**
+     * @param props   原始配置
+     * @param compact 是否把原始值压缩保存在 {@link CompactProperties} 中，适用于键很多且很少修改的配置
+     */
+    public EnhancedConfiguration (Properties props, boolean compact) {
+        this ((Observable) (compact ? new CompactObservableProperties (props) : new ObservableProperties (props)));
+    }
+
+    private EnhancedConfiguration (Observable props) {
+        super ((Properties) props);
+        props.observe (this);
+        this.raw = (Properties) props;
+    }
+
+    /**
+     * @return 所有键的只读有序索引，不存在时建立
+     */
+    private NavigableSet<String> index () {
+        NavigableSet<String> set = readonlyIndex;
+        if (set == null) {
+            synchronized (raw) {
+                if (readonlyIndex == null) {
+                    index = new ConcurrentSkipListSet<> (raw.stringPropertyNames ());
+                    readonlyIndex = Collections.unmodifiableNavigableSet (index);
+                }
+                set = readonlyIndex;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * 以 <code>prefix</code> 开头的所有键，按字典序排列
+     * @param prefix 前缀，为空时返回所有的键
+     * @return 只读的实时视图
+     */
+    public NavigableSet<String> keys (String prefix) {
+        if (prefix == null || prefix.isEmpty ()) {
+            return index ();
+        }
+        return index ().subSet (prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * 前缀下一级的名称. 如存在 <code>route.a.path, route.a.target, route.b.path</code> 时，
+     * <code>children ("route")</code> 返回 <code>[a, b]</code>
+     * @param prefix 前缀，不包括结尾的 <code>.</code>
+     * @return 按字典序排列的名称
+     */
+    public Set<String> children (String prefix) {
+        String p = normalize (prefix);
+        NavigableSet<String> index = index ();
+        Set<String> names = new LinkedHashSet<> ();
+        String key = index.ceiling (p);
+        while (key != null && key.startsWith (p)) {
+            int end = key.indexOf ('.', p.length ());
+            if (end < 0) {
+                names.add (key.substring (p.length ()));
+                key = index.higher (key);
+            } else {
+                String name = key.substring (p.length (), end);
+                names.add (name);
+                // skip the remaining keys of this child
+                key = index.ceiling (p + name + '.' + Character.MAX_VALUE);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 前缀下的子配置. 子配置中的键不包括前缀，如 <code>subset ("pool.db").getString ("url")</code>
+     * 读取的是 <code>pool.db.url</code>. 子配置不复制任何数据，读写和占位符的解析都委托给本配置，
+     * 占位符引用的是完整的键.
+     * @param prefix 前缀，不包括结尾的 <code>.</code>
+     * @return 子配置
+     */
+    public SubsetConfiguration subset (String prefix) {
+        return new SubsetConfiguration (this, normalize (prefix));
+    }
+
+    /**
+     * @param key 键
+     * @return 键的原始值，不替换占位符，不存在时返回 null
+     */
+    public String getRawString (String key) {
+        return raw.getProperty (key);
+    }
+
+    /**
+     * @return 所有键的快照，不建立有序索引
+     */
+    public Set<String> getRawKeys () {
+        return raw.stringPropertyNames ();
+    }
+
+    void removeRawProperty (String key) {
+        raw.remove (key);
+    }
+
+    static String normalize (String prefix) {
+        if (prefix == null || prefix.isEmpty ()) {
+            return "";
+        }
+        return prefix.endsWith (".") ? prefix : prefix + '.';
     }
 
     @Override
     public String getString (String key, Object... params) {
+        KeyAccessProfiler.Profile p = profile;
+        if (p == null) {
+            return stringValue (key, params);
+        }
+        p.enter (key);
+        try {
+            return stringValue (key, params);
+        } finally {
+            p.exit ();
+        }
+    }
+
+    private String stringValue (String key, Object... params) {
+        if (params == null || params.length == 0) {
+            return resolve (key, null);
+        }
         String value = super.getString (key, params);
         if (value != null && value.contains ("${")) {
-            value = replace (value);
+            value = Template.compile (value).render (this, null);
         }
         return value;
     }
 
     @Override
     public String getString (String key, KeyValuePair<?>... params) {
+        KeyAccessProfiler.Profile p = profile;
+        if (p == null) {
+            return stringValue (key, params);
+        }
+        p.enter (key);
+        try {
+            return stringValue (key, params);
+        } finally {
+            p.exit ();
+        }
+    }
+
+    private String stringValue (String key, KeyValuePair<?>... params) {
+        if (params == null || params.length == 0) {
+            return resolve (key, null);
+        }
         String value = super.getString (key, params);
         if (value != null && value.contains ("${")) {
-            value = replace (value);
+            value = Template.compile (value).render (this, null);
+        }
+        return value;
+    }
+
+    @Override
+    public int getInt (String key, int defaultValue) {
+        KeyAccessProfiler.Profile p = profile;
+        if (p == null) {
+            return intValue (key, defaultValue);
+        }
+        p.enter (key);
+        try {
+            return intValue (key, defaultValue);
+        } finally {
+            p.exit ();
+        }
+    }
+
+    private int intValue (String key, int defaultValue) {
+        TypedValue value = typed (key);
+        if (value == null) {
+            return super.getInt (key, defaultValue);
+        }
+        if (value.intState == TypedValue.UNKNOWN) {
+            long stamp = version;
+            int a = super.getInt (key, 0), b = super.getInt (key, 1);
+            if (a == b && stamp == version) {
+                value.intValue = a;
+                value.intState = TypedValue.CACHED;
+            } else {
+                // the result depends on the default value, means the value can't be parsed
+                return super.getInt (key, defaultValue);
+            }
+        }
+        return value.intValue;
+    }
+
+    @Override
+    public long getLong (String key, long defaultValue) {
+        KeyAccessProfiler.Profile p = profile;
+        if (p == null) {
+            return longValue (key, defaultValue);
+        }
+        p.enter (key);
+        try {
+            return longValue (key, defaultValue);
+        } finally {
+            p.exit ();
+        }
+    }
+
+    private long longValue (String key, long defaultValue) {
+        TypedValue value = typed (key);
+        if (value == null) {
+            return super.getLong (key, defaultValue);
+        }
+        if (value.longState == TypedValue.UNKNOWN) {
+            long stamp = version;
+            long a = super.getLong (key, 0L), b = super.getLong (key, 1L);
+            if (a == b && stamp == version) {
+                value.longValue = a;
+                value.longState = TypedValue.CACHED;
+            } else {
+                return super.getLong (key, defaultValue);
+            }
+        }
+        return value.longValue;
+    }
+
+    @Override
+    public double getDouble (String key, double defaultValue) {
+        KeyAccessProfiler.Profile p = profile;
+        if (p == null) {
+            return doubleValue (key, defaultValue);
+        }
+        p.enter (key);
+        try {
+            return doubleValue (key, defaultValue);
+        } finally {
+            p.exit ();
+        }
+    }
+
+    private double doubleValue (String key, double defaultValue) {
+        TypedValue value = typed (key);
+        if (value == null) {
+            return super.getDouble (key, defaultValue);
+        }
+        if (value.doubleState == TypedValue.UNKNOWN) {
+            long stamp = version;
+            double a = super.getDouble (key, 0D), b = super.getDouble (key, 1D);
+            if (Double.compare (a, b) == 0 && stamp == version) {
+                value.doubleValue = a;
+                value.doubleState = TypedValue.CACHED;
+            } else {
+                return super.getDouble (key, defaultValue);
+            }
+        }
+        return value.doubleValue;
+    }
+
+    @Override
+    public boolean getBoolean (String key, boolean defaultValue) {
+        KeyAccessProfiler.Profile p = profile;
+        if (p == null) {
+            return booleanValue (key, defaultValue);
+        }
+        p.enter (key);
+        try {
+            return booleanValue (key, defaultValue);
+        } finally {
+            p.exit ();
+        }
+    }
+
+    private boolean booleanValue (String key, boolean defaultValue) {
+        TypedValue value = typed (key);
+        if (value == null) {
+            return super.getBoolean (key, defaultValue);
+        }
+        if (value.booleanState == TypedValue.UNKNOWN) {
+            long stamp = version;
+            boolean a = super.getBoolean (key, false), b = super.getBoolean (key, true);
+            if (a == b && stamp == version) {
+                value.booleanValue = a;
+                value.booleanState = TypedValue.CACHED;
+            } else {
+                return super.getBoolean (key, defaultValue);
+            }
+        }
+        return value.booleanValue;
+    }
+
+    /**
+     * 获取 key 对应的类型缓存项，若 key 不存在返回 null
+     */
+    private TypedValue typed (String key) {
+        TypedValue value = typed.get (key);
+        if (value == null) {
+            long stamp = version;
+            if (resolve (key, null) == null) {
+                return null;
+            }
+            value = new TypedValue ();
+            TypedValue prev = typed.putIfAbsent (key, value);
+            if (prev != null) {
+                value = prev;
+            } else if (stamp != version) {
+                typed.remove (key, value);
+            }
         }
         return value;
     }
 
-    private String replace (String value) {
-        Matcher m = P.matcher (value);
-        Object[] args = new Object[0];
-        StringBuffer buffer = new StringBuffer ();
-        while (m.find ()) {
-            String part = m.group (1);
-            String replacement = getString (part, args);
-            if (!StringUtil.isEmpty (replacement)) {
-                m.appendReplacement (buffer, replacement);
+    /**
+     * 获取 key 完全替换后的值
+     * @param key  键
+     * @param path 当前的解析路径，用于检测循环引用
+     * @return 替换后的值
+     */
+    String resolve (String key, Deque<String> path) {
+        String value = resolved.get (key);
+        if (value != null) {
+            return value;
+        }
+
+        // the stamp must be taken before the raw value is read, otherwise a write landing between
+        // the two reads would let us cache the old value under the new stamp
+        long stamp = version;
+        String raw = super.getString (key, NO_ARGS);
+        if (raw == null) {
+            return null;
+        }
+
+        Template template = templates.get (key);
+        if (template == null || !template.source.equals (raw)) {
+            template = Template.compile (raw);
+            for (String ref : template.references) {
+                dependents.computeIfAbsent (ref, k -> ConcurrentHashMap.newKeySet ()).add (key);
+            }
+            templates.put (key, template);
+        }
+
+        if (template.isPlain ()) {
+            value = raw;
+        } else {
+            if (path == null) {
+                path = new ArrayDeque<> ();
+            }
+            if (path.contains (key)) {
+                StringBuilder builder = new StringBuilder ();
+                for (Iterator<String> it = path.descendingIterator (); it.hasNext (); ) {
+                    builder.append (it.next ()).append (" -> ");
+                }
+                builder.append (key);
+                throw new IllegalStateException ("circular placeholder reference: " + builder);
+            }
+            path.push (key);
+            resolutions.increment ();
+            KeyAccessProfiler.Profile p = profile;
+            if (p != null) {
+                p.rendered (key);
+            }
+            try {
+                value = template.render (this, path);
+            } finally {
+                path.pop ();
+            }
+        }
+
+        resolved.put (key, value);
+        if (stamp != version) {
+            // the configuration was modified while we were resolving, don't trust the result
+            resolved.remove (key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 开启或关闭访问统计
+     * @param profile 统计，为 null 时关闭
+     */
+    public void setProfile (KeyAccessProfiler.Profile profile) {
+        if (profile != null) {
+            profile.attach (this::index);
+        }
+        this.profile = profile;
+    }
+
+    /**
+     * @return 修改版本号，配置的每次修改都会使它增大. 可用来判断基于该配置计算的结果是否已经过期
+     */
+    public long getVersion () {
+        return version;
+    }
+
+    /**
+     * @return 未命中缓存、实际替换占位符的次数，不包括没有占位符的值
+     */
+    public long getResolutionCount () {
+        return resolutions.sum ();
+    }
+
+    /**
+     * 用预先替换好的值填充缓存，如从上次启动的快照中恢复. 值必须是用当前的原始值替换得到的，
+     * 依赖关系照常登记，之后对被引用键的修改同样会使这些值失效
+     * @param values 键 -&gt; 替换后的值
+     */
+    public void prime (Map<String, String> values) {
+        prime (values, Collections.<String>emptySet ());
+    }
+
+    /**
+     * 用预先替换好的值填充缓存，之后使 <code>changed</code> 中的键及依赖于它们的值失效.
+     * 用于替换结果所基于的原始值中有一部分已被覆盖的情况
+     * @param values  键 -&gt; 替换后的值
+     * @param changed 原始值与替换时不同的键
+     */
+    public void prime (Map<String, String> values, Collection<String> changed) {
+        // taken before any raw value is read, see resolve ()
+        long stamp = version;
+        for (Map.Entry<String, String> e : values.entrySet ()) {
+            String key = e.getKey ();
+            String raw = super.getString (key, NO_ARGS);
+            if (raw == null || e.getValue () == null || !raw.contains ("${")) {
+                continue;
+            }
+            Template template = Template.compile (raw);
+            for (String ref : template.references) {
+                dependents.computeIfAbsent (ref, k -> ConcurrentHashMap.newKeySet ()).add (key);
+            }
+            templates.put (key, template);
+            resolved.put (key, e.getValue ());
+        }
+        if (stamp != version) {
+            // modified while priming, the values can't be trusted
+            invalidateAll ();
+            return;
+        }
+        for (String key : changed) {
+            invalidate (key);
+        }
+    }
+
+    /**
+     * 键 <code>key</code> 被修改，清除它及所有直接或间接依赖于它的缓存项
+     * @param key 被修改的键
+     */
+    protected void invalidate (String key) {
+        version ++;
+        invalidate (key, new HashSet<> ());
+    }
+
+    private void invalidate (String key, Set<String> visited) {
+        if (!visited.add (key)) {
+            return;
+        }
+        resolved.remove (key);
+        templates.remove (key);
+        typed.remove (key);
+        Set<String> set = dependents.get (key);
+        if (set != null) {
+            for (String dependent : set) {
+                invalidate (dependent, visited);
+            }
+        }
+    }
+
+    /**
+     * 清除所有缓存
+     */
+    protected void invalidateAll () {
+        version ++;
+        resolved.clear ();
+        templates.clear ();
+        typed.clear ();
+        dependents.clear ();
+    }
+
+    /**
+     * 编译后的配置值: 字面量和占位符交替出现的片段
+     */
+    static final class Template {
+        final String source;
+        /** 字面量片段，长度比 references 多 1 */
+        final String[] literals;
+        /** 占位符引用的键 */
+        final String[] references;
+
+        private Template (String source, String[] literals, String[] references) {
+            this.source = source;
+            this.literals = literals;
+            this.references = references;
+        }
+
+        boolean isPlain () {
+            return references.length == 0;
+        }
+
+        static Template compile (String value) {
+            int start = value.indexOf ("${");
+            if (start < 0) {
+                return new Template (value, new String[] {value}, new String[0]);
+            }
+
+            List<String> literals = new ArrayList<> ();
+            List<String> references = new ArrayList<> ();
+            int pos = 0;
+            while (start >= 0) {
+                int end = value.indexOf ('}', start + 2);
+                if (end < 0) {
+                    break;
+                }
+                literals.add (value.substring (pos, start));
+                references.add (value.substring (start + 2, end));
+                pos = end + 1;
+                start = value.indexOf ("${", pos);
+            }
+            literals.add (value.substring (pos));
+            return new Template (
+                    value,
+                    literals.toArray (new String[0]),
+                    references.toArray (new String[0])
+            );
+        }
+
+        String render (EnhancedConfiguration conf, Deque<String> path) {
+            if (references.length == 0) {
+                return source;
+            }
+            StringBuilder builder = new StringBuilder (source.length () + 16);
+            for (int i = 0; i < references.length; i ++) {
+                builder.append (literals [i]);
+                String ref = references [i];
+                KeyAccessProfiler.Profile p = conf.profile;
+                if (p != null) {
+                    p.referenced (ref);
+                }
+                String replacement = conf.resolve (ref, path);
+                if (replacement == null || replacement.trim ().isEmpty ()) {
+                    // keep the unresolved placeholder as is
+                    builder.append ("${").append (ref).append ('}');
+                } else {
+                    builder.append (replacement);
+                }
+            }
+            builder.append (literals [references.length]);
+            return builder.toString ();
+        }
+    }
+
+    /**
+     * 按原始类型缓存的解析结果. 每种类型各自独立地按需解析，
+     * 值字段先于 volatile 的状态字段写入，读到 {@link #CACHED} 状态时值字段一定可见.
+     */
+    static final class TypedValue {
+        static final byte UNKNOWN = 0, CACHED = 1;
+
+        int intValue;
+        long longValue;
+        double doubleValue;
+        boolean booleanValue;
+
+        volatile byte intState, longState, doubleState, booleanState;
+    }
+
+    /**
+     * 原始值被写入或删除，在持有 raw 的锁时调用
+     * @param key   键
+     * @param value 新的值，删除时为 null
+     */
+    private void changed (Object key, Object value) {
+        if (key instanceof String) {
+            NavigableSet<String> set = index;
+            if (set != null) {
+                if (value instanceof String) {
+                    set.add ((String) key);
+                } else {
+                    set.remove (key);
+                }
+            }
+            invalidate ((String) key);
+        }
+    }
+
+    /**
+     * 原始值被清空，在持有 raw 的锁时调用
+     */
+    private void cleared () {
+        NavigableSet<String> set = index;
+        if (set != null) {
+            set.clear ();
+        }
+        invalidateAll ();
+    }
+
+    /**
+     * 保存原始值的 Properties，任何写操作都会通知所属的配置清除相关的缓存.
+     * 复合的写操作都通过 put 和 remove 完成，集合视图是只读的，不存在绕过通知的写入途径
+     */
+    private interface Observable {
+        void observe (EnhancedConfiguration owner);
+    }
+
+    private static final class ObservableProperties extends Properties implements Observable {
+        private transient EnhancedConfiguration owner;
+
+        ObservableProperties (Properties props) {
+            if (props != null) {
+                for (String name : props.stringPropertyNames ()) {
+                    super.put (name, props.getProperty (name));
+                }
+                // keep non-string values as they are
+                for (Map.Entry<Object, Object> e : props.entrySet ()) {
+                    super.putIfAbsent (e.getKey (), e.getValue ());
+                }
+            }
+        }
+
+        @Override
+        public void observe (EnhancedConfiguration owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public synchronized Object put (Object key, Object value) {
+            Object old = super.put (key, value);
+            if (owner != null) {
+                owner.changed (key, value);
+            }
+            return old;
+        }
+
+        @Override
+        public synchronized Object remove (Object key) {
+            Object old = super.remove (key);
+            if (owner != null) {
+                owner.changed (key, null);
+            }
+            return old;
+        }
+
+        @Override
+        public synchronized void putAll (Map<?, ?> t) {
+            for (Map.Entry<?, ?> e : t.entrySet ()) {
+                put (e.getKey (), e.getValue ());
+            }
+        }
+
+        // since java 9 Properties implements the following on its internal map, bypassing put and remove
+
+        @Override
+        public synchronized boolean remove (Object key, Object value) {
+            Object old = get (key);
+            if (old != null && old.equals (value)) {
+                remove (key);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public synchronized Object putIfAbsent (Object key, Object value) {
+            Object old = get (key);
+            return old != null ? old : put (key, value);
+        }
+
+        @Override
+        public synchronized boolean replace (Object key, Object oldValue, Object newValue) {
+            Object old = get (key);
+            if (old != null && old.equals (oldValue)) {
+                put (key, newValue);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public synchronized Object replace (Object key, Object value) {
+            return get (key) != null ? put (key, value) : null;
+        }
+
+        @Override
+        public synchronized void replaceAll (BiFunction<? super Object, ? super Object, ?> function) {
+            for (Object key : new ArrayList<> (keySet ())) {
+                put (key, function.apply (key, get (key)));
+            }
+        }
+
+        @Override
+        public synchronized Object computeIfAbsent (Object key, Function<? super Object, ?> function) {
+            Object value = get (key);
+            if (value == null) {
+                value = function.apply (key);
+                if (value != null) {
+                    put (key, value);
+                }
+            }
+            return value;
+        }
+
+        @Override
+        public synchronized Object computeIfPresent (Object key, BiFunction<? super Object, ? super Object, ?> function) {
+            Object old = get (key);
+            return old == null ? null : update (key, function.apply (key, old));
+        }
+
+        @Override
+        public synchronized Object compute (Object key, BiFunction<? super Object, ? super Object, ?> function) {
+            return update (key, function.apply (key, get (key)));
+        }
+
+        @Override
+        public synchronized Object merge (Object key, Object value, BiFunction<? super Object, ? super Object, ?> function) {
+            Object old = get (key);
+            return update (key, old == null ? value : function.apply (old, value));
+        }
+
+        private Object update (Object key, Object value) {
+            if (value == null) {
+                remove (key);
+            } else {
+                put (key, value);
+            }
+            return value;
+        }
+
+        @Override
+        public synchronized void clear () {
+            super.clear ();
+            if (owner != null) {
+                owner.cleared ();
+            }
+        }
+
+        @Override
+        public Set<Object> keySet () {
+            return Collections.unmodifiableSet (super.keySet ());
+        }
+
+        @Override
+        public Collection<Object> values () {
+            return Collections.unmodifiableCollection (super.values ());
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet () {
+            // an unmodifiable map also wraps the entries, so setValue is rejected too
+            return Collections.unmodifiableMap (new AbstractMap<Object, Object> () {
+                @Override
+                public Set<Map.Entry<Object, Object>> entrySet () {
+                    return entries ();
+                }
+            }).entrySet ();
+        }
+
+        private Set<Map.Entry<Object, Object>> entries () {
+            return super.entrySet ();
+        }
+    }
+
+    /**
+     * {@link CompactProperties} 的复合写操作本身就通过 put 和 remove 完成，集合视图也是只读的快照
+     */
+    private static final class CompactObservableProperties extends CompactProperties implements Observable {
+        private transient EnhancedConfiguration owner;
+
+        CompactObservableProperties (Properties props) {
+            super (props);
+        }
+
+        @Override
+        public void observe (EnhancedConfiguration owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public synchronized Object put (Object key, Object value) {
+            Object old = super.put (key, value);
+            if (owner != null) {
+                owner.changed (key, value);
+            }
+            return old;
+        }
+
+        @Override
+        public synchronized Object remove (Object key) {
+            Object old = super.remove (key);
+            if (owner != null) {
+                owner.changed (key, null);
+            }
+            return old;
+        }
+
+        @Override
+        public synchronized void clear () {
+            super.clear ();
+            if (owner != null) {
+                owner.cleared ();
             }
         }
-        m.appendTail (buffer);
-        return buffer.toString ();
     }
-}
\ No newline at end of file
+}
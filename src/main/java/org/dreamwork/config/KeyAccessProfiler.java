@@ -0,0 +1,147 @@
+package org.dreamwork.config;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 配置键的访问统计.
+ *
+ * <p>每个配置 (按名称) 对应一个 {@link Profile}，记录每个键:</p>
+ * <ul>
+ *     <li>reads: 通过 <code>getString/getInt/getLong/getDouble/getBoolean</code> 读取的次数</li>
+ *     <li>renders: 未命中缓存、实际替换占位符的次数</li>
+ *     <li>refs: 作为占位符被其他值引用的次数</li>
+ * </ul>
+ * 计数器是 {@link LongAdder}，多线程并发读取同一个键时不会在同一个缓存行上竞争.
+ *
+ * <p>报告按读取次数降序排列，并列出从未被读取或引用的键.</p>
+ */
+public final class KeyAccessProfiler {
+    private final ConcurrentMap<String, Profile> profiles = new ConcurrentHashMap<> ();
+
+    /**
+     * @param name 配置名称
+     * @return 配置的访问统计，不存在时创建
+     */
+    public Profile profile (String name) {
+        return profiles.computeIfAbsent (name, Profile::new);
+    }
+
+    /**
+     * 按配置名称排序输出报告
+     * @param writer 输出
+     */
+    public void report (Writer writer) {
+        PrintWriter out = writer instanceof PrintWriter ? (PrintWriter) writer : new PrintWriter (writer);
+        for (Profile profile : new TreeMap<> (profiles).values ()) {
+            profile.report (out);
+        }
+        out.flush ();
+    }
+
+    public String report () {
+        StringWriter writer = new StringWriter ();
+        report (writer);
+        return writer.toString ();
+    }
+
+    /** 一个键的计数器 */
+    private static final class Counter {
+        final LongAdder reads = new LongAdder ();
+        final LongAdder renders = new LongAdder ();
+        final LongAdder refs = new LongAdder ();
+    }
+
+    /**
+     * 一个配置的访问统计
+     */
+    public static final class Profile {
+        private final String name;
+        private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<> ();
+        /** 公共读取方法的嵌套深度，基类的 getInt 等方法会再调用 getString，只统计最外层的一次 */
+        private final ThreadLocal<int[]> depth = ThreadLocal.withInitial (() -> new int[1]);
+        /** 配置中所有的键，用于找出未被使用的键 */
+        private volatile Supplier<? extends Collection<String>> keys;
+
+        private Profile (String name) {
+            this.name = name;
+        }
+
+        public String getName () {
+            return name;
+        }
+
+        /**
+         * 关联配置中所有的键. 配置被重新加载时，新的配置重新关联，计数保留
+         */
+        public void attach (Supplier<? extends Collection<String>> keys) {
+            this.keys = keys;
+        }
+
+        /**
+         * 进入一次公共读取，必须与 {@link #exit()} 成对调用
+         */
+        public void enter (String key) {
+            int[] d = depth.get ();
+            if (d [0] ++ == 0) {
+                counter (key).reads.increment ();
+            }
+        }
+
+        public void exit () {
+            depth.get () [0] --;
+        }
+
+        void rendered (String key) {
+            counter (key).renders.increment ();
+        }
+
+        void referenced (String key) {
+            counter (key).refs.increment ();
+        }
+
+        private Counter counter (String key) {
+            Counter c = counters.get (key);
+            return c != null ? c : counters.computeIfAbsent (key, k -> new Counter ());
+        }
+
+        void report (PrintWriter out) {
+            List<Map.Entry<String, long[]>> rows = new ArrayList<> (counters.size ());
+            for (Map.Entry<String, Counter> e : counters.entrySet ()) {
+                Counter c = e.getValue ();
+                rows.add (new AbstractMap.SimpleImmutableEntry<> (e.getKey (), new long[] {c.reads.sum (), c.renders.sum (), c.refs.sum ()}));
+            }
+            rows.sort ((a, b) -> {
+                int n = Long.compare (b.getValue () [0], a.getValue () [0]);
+                return n != 0 ? n : a.getKey ().compareTo (b.getKey ());
+            });
+
+            Set<String> unused = new TreeSet<> ();
+            Supplier<? extends Collection<String>> supplier = keys;
+            if (supplier != null) {
+                unused.addAll (supplier.get ());
+                unused.removeAll (counters.keySet ());
+            }
+
+            out.printf ("### configuration profile: %s (%d key(s) accessed, %d unused) ###%n", name, rows.size (), unused.size ());
+            out.printf ("%12s %10s %10s  %s%n", "reads", "renders", "refs", "key");
+            for (Map.Entry<String, long[]> row : rows) {
+                long[] v = row.getValue ();
+                out.printf ("%12d %10d %10d  %s%n", v [0], v [1], v [2], row.getKey ());
+            }
+            if (!unused.isEmpty ()) {
+                out.println ("unused keys:");
+                for (String key : unused) {
+                    out.println ("    " + key);
+                }
+            }
+            out.println ();
+        }
+    }
+}
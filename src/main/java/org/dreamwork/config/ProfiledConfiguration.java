@@ -0,0 +1,78 @@
+package org.dreamwork.config;
+
+import java.util.Properties;
+
+/**
+ * 统计键访问次数的 {@link PropertyConfiguration}，用于 <code>getConfiguration</code> 返回的扩展配置.
+ *
+ * @see KeyAccessProfiler
+ */
+public class ProfiledConfiguration extends PropertyConfiguration {
+    private final KeyAccessProfiler.Profile profile;
+
+    public ProfiledConfiguration (Properties props, KeyAccessProfiler.Profile profile) {
+        super (props);
+        this.profile = profile;
+        profile.attach (props::stringPropertyNames);
+    }
+
+    @Override
+    public String getString (String key, Object... params) {
+        profile.enter (key);
+        try {
+            return super.getString (key, params);
+        } finally {
+            profile.exit ();
+        }
+    }
+
+    @Override
+    public String getString (String key, KeyValuePair<?>... params) {
+        profile.enter (key);
+        try {
+            return super.getString (key, params);
+        } finally {
+            profile.exit ();
+        }
+    }
+
+    @Override
+    public int getInt (String key, int defaultValue) {
+        profile.enter (key);
+        try {
+            return super.getInt (key, defaultValue);
+        } finally {
+            profile.exit ();
+        }
+    }
+
+    @Override
+    public long getLong (String key, long defaultValue) {
+        profile.enter (key);
+        try {
+            return super.getLong (key, defaultValue);
+        } finally {
+            profile.exit ();
+        }
+    }
+
+    @Override
+    public double getDouble (String key, double defaultValue) {
+        profile.enter (key);
+        try {
+            return super.getDouble (key, defaultValue);
+        } finally {
+            profile.exit ();
+        }
+    }
+
+    @Override
+    public boolean getBoolean (String key, boolean defaultValue) {
+        profile.enter (key);
+        try {
+            return super.getBoolean (key, defaultValue);
+        } finally {
+            profile.exit ();
+        }
+    }
+}
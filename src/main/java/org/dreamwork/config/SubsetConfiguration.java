@@ -0,0 +1,226 @@
+package org.dreamwork.config;
+
+import java.util.*;
+
+/**
+ * {@link EnhancedConfiguration} 中某个前缀下的子配置.
+ *
+ * <p>子配置不保存任何数据，所有的读写都加上前缀后委托给所属的配置，因此占位符解析、类型缓存和缓存失效
+ * 与直接读取所属的配置完全一致，所属配置的修改也立即可见.</p>
+ *
+ * @see EnhancedConfiguration#subset(String)
+ */
+public class SubsetConfiguration extends PropertyConfiguration {
+    private final EnhancedConfiguration parent;
+    /** 以 <code>.</code> 结尾的前缀 */
+    private final String prefix;
+
+    SubsetConfiguration (EnhancedConfiguration parent, String prefix) {
+        this (parent, prefix, new View ());
+    }
+
+    private SubsetConfiguration (EnhancedConfiguration parent, String prefix, View view) {
+        super (view);
+        view.owner = this;
+        this.parent = parent;
+        this.prefix = prefix;
+    }
+
+    public String getPrefix () {
+        return prefix;
+    }
+
+    public EnhancedConfiguration getParent () {
+        return parent;
+    }
+
+    @Override
+    public String getString (String key, Object... params) {
+        return parent.getString (prefix + key, params);
+    }
+
+    @Override
+    public String getString (String key, KeyValuePair<?>... params) {
+        return parent.getString (prefix + key, params);
+    }
+
+    @Override
+    public int getInt (String key, int defaultValue) {
+        return parent.getInt (prefix + key, defaultValue);
+    }
+
+    @Override
+    public long getLong (String key, long defaultValue) {
+        return parent.getLong (prefix + key, defaultValue);
+    }
+
+    @Override
+    public double getDouble (String key, double defaultValue) {
+        return parent.getDouble (prefix + key, defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean (String key, boolean defaultValue) {
+        return parent.getBoolean (prefix + key, defaultValue);
+    }
+
+    @Override
+    public void setRawProperty (String key, Object value) {
+        parent.setRawProperty (prefix + key, value);
+    }
+
+    @Override
+    public boolean contains (String key) {
+        return parent.contains (prefix + key);
+    }
+
+    /**
+     * @return 子配置中所有的键（不包括前缀），按字典序排列的实时视图
+     */
+    public Set<String> keys () {
+        return keys ("");
+    }
+
+    /**
+     * @param prefix 子配置中的前缀
+     * @return 子配置中以 <code>prefix</code> 开头的键（不包括子配置的前缀）
+     */
+    public Set<String> keys (String prefix) {
+        NavigableSet<String> keys = parent.keys (this.prefix + (prefix == null ? "" : prefix));
+        int offset = this.prefix.length ();
+        return new AbstractSet<String> () {
+            @Override
+            public Iterator<String> iterator () {
+                Iterator<String> it = keys.iterator ();
+                return new Iterator<String> () {
+                    @Override
+                    public boolean hasNext () {
+                        return it.hasNext ();
+                    }
+
+                    @Override
+                    public String next () {
+                        return it.next ().substring (offset);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains (Object o) {
+                return o instanceof String && keys.contains (SubsetConfiguration.this.prefix + o);
+            }
+
+            @Override
+            public int size () {
+                return keys.size ();
+            }
+        };
+    }
+
+    /**
+     * @see EnhancedConfiguration#children(String)
+     */
+    public Set<String> children (String prefix) {
+        return parent.children (this.prefix + (prefix == null ? "" : prefix));
+    }
+
+    /**
+     * @see EnhancedConfiguration#subset(String)
+     */
+    public SubsetConfiguration subset (String prefix) {
+        return parent.subset (this.prefix + EnhancedConfiguration.normalize (prefix));
+    }
+
+    @Override
+    public String toString () {
+        return "SubsetConfiguration{" + prefix + "*}";
+    }
+
+    /**
+     * 供基类使用的 Properties 视图，不保存数据，读写都委托给所属配置
+     */
+    private static final class View extends Properties {
+        private transient SubsetConfiguration owner;
+
+        /** 基类的构造器中 owner 尚未设置 */
+        private Set<String> names () {
+            return owner == null ? Collections.<String>emptySet () : owner.keys ();
+        }
+
+        @Override
+        public String getProperty (String key) {
+            return owner == null ? null : owner.getString (key);
+        }
+
+        @Override
+        public String getProperty (String key, String defaultValue) {
+            String value = getProperty (key);
+            return value == null ? defaultValue : value;
+        }
+
+        @Override
+        public synchronized Object get (Object key) {
+            return key instanceof String ? getProperty ((String) key) : null;
+        }
+
+        @Override
+        public synchronized boolean containsKey (Object key) {
+            return owner != null && key instanceof String && owner.contains ((String) key);
+        }
+
+        @Override
+        public synchronized Object put (Object key, Object value) {
+            Object old = get (key);
+            owner.setRawProperty ((String) key, value);
+            return old;
+        }
+
+        @Override
+        public synchronized Object remove (Object key) {
+            Object old = get (key);
+            if (key instanceof String) {
+                owner.parent.removeRawProperty (owner.prefix + key);
+            }
+            return old;
+        }
+
+        @Override
+        public Set<String> stringPropertyNames () {
+            return new TreeSet<> (names ());
+        }
+
+        @Override
+        public Enumeration<?> propertyNames () {
+            return Collections.enumeration (names ());
+        }
+
+        @Override
+        public synchronized Enumeration<Object> keys () {
+            return Collections.enumeration (new ArrayList<> (names ()));
+        }
+
+        @Override
+        public Set<Object> keySet () {
+            return Collections.unmodifiableSet (new LinkedHashSet<> (names ()));
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet () {
+            Set<Map.Entry<Object, Object>> set = new LinkedHashSet<> ();
+            for (String key : names ()) {
+                set.add (new AbstractMap.SimpleImmutableEntry<> (key, getProperty (key)));
+            }
+            return Collections.unmodifiableSet (set);
+        }
+
+        @Override
+        public synchronized int size () {
+            return names ().size ();
+        }
+
+        @Override
+        public synchronized boolean isEmpty () {
+            return names ().isEmpty ();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.dreamwork.app.bootloader;
+
+import org.dreamwork.app.bootloader.ConfigurationLayers.Layer;
+import org.dreamwork.config.EnhancedConfiguration;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ConfigurationLayersTest {
+    private static Map<String, String> map (String... pairs) {
+        Map<String, String> map = new HashMap<> ();
+        for (int i = 0; i < pairs.length; i += 2) {
+            map.put (pairs [i], pairs [i + 1]);
+        }
+        return map;
+    }
+
+    private static Properties props (String... pairs) {
+        Properties props = new Properties ();
+        props.putAll (map (pairs));
+        return props;
+    }
+
+    private static ConfigurationLayers sample () {
+        return ConfigurationLayers.flatten (
+                map ("server.port", "80", "log.level", "INFO", "app.name", "demo", "ext.dir", "ext", "cache-size", "16"),
+                props ("server.port", "8080", "log.level", "DEBUG", "db.url", "jdbc:h2:mem"),
+                map ("SERVER_PORT", "9090", "CACHE_SIZE", "32", "DB_URL", "jdbc:h2:file", "PATH", "/usr/bin"),
+                props ("server.port", "9091", "db.url", "jdbc:mysql", "java.version", "1.8"),
+                map ("server.port", "9092", "app.name", "cli")
+        );
+    }
+
+    @Test
+    public void higherLayersWin () {
+        ConfigurationLayers layers = sample ();
+        assertEquals ("9092", layers.get ("server.port"));
+        assertEquals ("DEBUG", layers.get ("log.level"));
+        assertEquals ("cli", layers.get ("app.name"));
+        assertEquals ("ext", layers.get ("ext.dir"));
+        assertEquals ("32", layers.get ("cache-size"));
+        assertEquals ("jdbc:mysql", layers.get ("db.url"));
+    }
+
+    @Test
+    public void recordsTheSourceAndTheShadowedLayers () {
+        ConfigurationLayers layers = sample ();
+        ConfigurationLayers.Entry port = layers.getEntry ("server.port");
+        assertEquals (Layer.COMMAND_LINE, port.getLayer ());
+        assertEquals (Arrays.asList (Layer.DEFAULT, Layer.FILE, Layer.ENVIRONMENT, Layer.SYSTEM), port.getShadowed ());
+
+        assertEquals (Layer.FILE, layers.getEntry ("log.level").getLayer ());
+        assertEquals (Collections.singletonList (Layer.DEFAULT), layers.getEntry ("log.level").getShadowed ());
+
+        assertEquals (Layer.DEFAULT, layers.getEntry ("ext.dir").getLayer ());
+        assertTrue (layers.getEntry ("ext.dir").getShadowed ().isEmpty ());
+
+        assertEquals (Layer.ENVIRONMENT, layers.getEntry ("cache-size").getLayer ());
+        assertEquals (Layer.SYSTEM, layers.getEntry ("db.url").getLayer ());
+        assertEquals (Arrays.asList (Layer.FILE, Layer.ENVIRONMENT), layers.getEntry ("db.url").getShadowed ());
+
+        assertEquals (Collections.singleton ("cache-size"), layers.keysFrom (Layer.ENVIRONMENT));
+        assertEquals (new HashSet<> (Arrays.asList ("server.port", "app.name")), layers.keysFrom (Layer.COMMAND_LINE));
+    }
+
+    @Test
+    public void environmentAndSystemOnlyOverrideKnownKeys () {
+        ConfigurationLayers layers = sample ();
+        assertNull (layers.get ("PATH"));
+        assertNull (layers.get ("path"));
+        assertNull (layers.get ("java.version"));
+        assertEquals (6, layers.getEntries ().size ());
+    }
+
+    @Test
+    public void commandLineAddsNewKeys () {
+        ConfigurationLayers layers = ConfigurationLayers.flatten (
+                map (), props (), map ("NEW_KEY", "env"), props ("new.key", "sys"), map ("new.key", "cli"));
+        assertEquals ("cli", layers.get ("new.key"));
+        assertEquals (Layer.COMMAND_LINE, layers.getEntry ("new.key").getLayer ());
+        // the key is unknown to the lower layers, the environment and the system properties don't apply
+        assertTrue (layers.getEntry ("new.key").getShadowed ().isEmpty ());
+    }
+
+    @Test
+    public void nullValuesDoNotOverride () {
+        ConfigurationLayers layers = ConfigurationLayers.flatten (
+                map ("a", "1"), props (), map (), props (), map ("a", null));
+        assertEquals ("1", layers.get ("a"));
+        assertEquals (Layer.DEFAULT, layers.getEntry ("a").getLayer ());
+    }
+
+    @Test
+    public void environmentNames () {
+        assertEquals ("SERVER_PORT", ConfigurationLayers.environmentName ("server.port"));
+        assertEquals ("CACHE_SIZE", ConfigurationLayers.environmentName ("cache-size"));
+        assertEquals ("A_B_C", ConfigurationLayers.environmentName ("a.b-c"));
+    }
+
+    @Test
+    public void provenanceKeepsTheSourcesButReadsTheRoot () {
+        ConfigurationLayers layers = sample ();
+        EnhancedConfiguration root = new EnhancedConfiguration (layers.toProperties ());
+        ConfigurationLayers compact = layers.provenance (root);
+
+        assertEquals (layers.getEntries ().keySet (), compact.getEntries ().keySet ());
+        for (Map.Entry<String, ConfigurationLayers.Entry> e : layers.getEntries ().entrySet ()) {
+            ConfigurationLayers.Entry entry = compact.getEntry (e.getKey ());
+            assertEquals (e.getKey (), e.getValue ().getValue (), entry.getValue ());
+            assertEquals (e.getKey (), e.getValue ().getLayer (), entry.getLayer ());
+            assertEquals (e.getKey (), e.getValue ().getShadowed (), entry.getShadowed ());
+        }
+        assertSame (compact, compact.provenance (root));
+
+        // the values follow the root, keys added later count as coming from the file
+        root.setRawProperty ("server.port", "1");
+        root.setRawProperty ("added", "x");
+        assertEquals ("1", compact.get ("server.port"));
+        assertEquals (Layer.COMMAND_LINE, compact.getEntry ("server.port").getLayer ());
+        assertEquals (Layer.FILE, compact.getEntry ("added").getLayer ());
+        assertTrue (compact.keysFrom (Layer.FILE).contains ("added"));
+    }
+}
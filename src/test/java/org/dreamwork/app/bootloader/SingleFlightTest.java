@@ -0,0 +1,169 @@
+package org.dreamwork.app.bootloader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightTest {
+    private static final int CALLERS = 8;
+
+    @Test
+    public void concurrentCallersShareOneLoad () throws Exception {
+        SingleFlight<String> flight = new SingleFlight<> ();
+        AtomicInteger loads = new AtomicInteger ();
+        CountDownLatch registered = new CountDownLatch (CALLERS);
+        CountDownLatch release = new CountDownLatch (1);
+
+        List<Future<String>> results = call (flight, "db", registered, () -> {
+            loads.incrementAndGet ();
+            await (release);
+            return "loaded";
+        });
+        // every caller is either running the load or waiting for it before the load may finish
+        assertTrue (registered.await (5, TimeUnit.SECONDS));
+        release.countDown ();
+
+        for (Future<String> f : results) {
+            assertEquals ("loaded", f.get (5, TimeUnit.SECONDS));
+        }
+        assertEquals (1, loads.get ());
+        assertEquals (0, flight.size ());
+    }
+
+    @Test
+    public void errorIsDeliveredToAllCallers () throws Exception {
+        SingleFlight<String> flight = new SingleFlight<> ();
+        CountDownLatch registered = new CountDownLatch (CALLERS);
+        CountDownLatch release = new CountDownLatch (1);
+        StackOverflowError error = new StackOverflowError ("deep");
+
+        List<Future<String>> results = call (flight, "db", registered, () -> {
+            await (release);
+            throw error;
+        });
+        assertTrue (registered.await (5, TimeUnit.SECONDS));
+        release.countDown ();
+
+        for (Future<String> f : results) {
+            try {
+                f.get (5, TimeUnit.SECONDS);
+                fail ("the error must reach every caller");
+            } catch (ExecutionException ex) {
+                assertSame (error, ex.getCause ());
+            }
+        }
+        // a failed load is not cached, the next caller loads again
+        assertEquals (0, flight.size ());
+        assertEquals ("again", load (flight, "db", () -> "again"));
+    }
+
+    @Test
+    public void runtimeExceptionIsThrownAsIs () {
+        SingleFlight<String> flight = new SingleFlight<> ();
+        IllegalArgumentException cause = new IllegalArgumentException ("bad");
+        CompletableFuture<String> future = new CompletableFuture<> ();
+        assertNull (flight.register ("db", future));
+        try {
+            flight.run ("db", future, () -> {
+                throw cause;
+            });
+            fail ();
+        } catch (IllegalArgumentException ex) {
+            assertSame (cause, ex);
+        }
+        try {
+            SingleFlight.result (future, "db");
+            fail ();
+        } catch (IllegalArgumentException ex) {
+            assertSame (cause, ex);
+        }
+    }
+
+    @Test
+    public void abortCompletesAndUnregisters () {
+        SingleFlight<String> flight = new SingleFlight<> ();
+        CompletableFuture<String> future = new CompletableFuture<> ();
+        assertNull (flight.register ("db", future));
+        assertSame (future, flight.register ("db", new CompletableFuture<> ()));
+
+        IOException cause = new IOException ("rejected");
+        flight.abort ("db", future, cause);
+        assertEquals (0, flight.size ());
+        try {
+            SingleFlight.result (future, "db");
+            fail ();
+        } catch (CompletionException ex) {
+            assertSame (cause, ex.getCause ());
+            assertTrue (ex.getMessage ().contains ("[db]"));
+        }
+    }
+
+    @Test
+    public void differentNamesDoNotShare () {
+        SingleFlight<String> flight = new SingleFlight<> ();
+        CompletableFuture<String> a = new CompletableFuture<> (), b = new CompletableFuture<> ();
+        assertNull (flight.register ("a", a));
+        assertNull (flight.register ("b", b));
+        assertEquals (2, flight.size ());
+        assertEquals ("b", flight.run ("b", b, () -> "b"));
+        assertEquals ("a", flight.run ("a", a, () -> "a"));
+        assertEquals (0, flight.size ());
+    }
+
+    /**
+     * 与 BootloaderContext 中的用法相同: 登记成功的调用者执行加载，其他调用者等待
+     */
+    private static String load (SingleFlight<String> flight, String name, Callable<String> loader) {
+        return load (flight, name, loader, null);
+    }
+
+    private static String load (SingleFlight<String> flight, String name, Callable<String> loader, CountDownLatch registered) {
+        CompletableFuture<String> future = new CompletableFuture<> ();
+        CompletableFuture<String> running = flight.register (name, future);
+        if (registered != null) {
+            registered.countDown ();
+        }
+        if (running != null) {
+            return SingleFlight.result (running, name);
+        }
+        return flight.run (name, future, () -> {
+            try {
+                return loader.call ();
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new CompletionException (ex);
+            }
+        });
+    }
+
+    private static List<Future<String>> call (SingleFlight<String> flight, String name, CountDownLatch registered,
+                                              Callable<String> loader) {
+        ExecutorService executor = Executors.newFixedThreadPool (CALLERS);
+        try {
+            List<Future<String>> results = new ArrayList<> ();
+            for (int i = 0; i < CALLERS; i ++) {
+                results.add (executor.submit (() -> load (flight, name, loader, registered)));
+            }
+            return results;
+        } finally {
+            executor.shutdown ();
+        }
+    }
+
+    private static void await (CountDownLatch latch) {
+        try {
+            if (!latch.await (5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException ("timed out");
+            }
+        } catch (InterruptedException ex) {
+            throw new IllegalStateException (ex);
+        }
+    }
+}
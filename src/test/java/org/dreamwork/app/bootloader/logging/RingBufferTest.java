@@ -0,0 +1,129 @@
+package org.dreamwork.app.bootloader.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RingBufferTest {
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo () {
+        assertEquals (1, new RingBuffer<String> (1).capacity ());
+        assertEquals (8, new RingBuffer<String> (5).capacity ());
+        assertEquals (8, new RingBuffer<String> (8).capacity ());
+        assertEquals (16, new RingBuffer<String> (9).capacity ());
+    }
+
+    @Test
+    public void fullAndEmpty () {
+        RingBuffer<Integer> buffer = new RingBuffer<> (4);
+        assertTrue (buffer.isEmpty ());
+        assertNull (buffer.poll ());
+        for (int i = 0; i < 4; i ++) {
+            assertTrue (buffer.offer (i));
+        }
+        assertTrue (buffer.isFull ());
+        assertEquals (4, buffer.size ());
+        assertFalse (buffer.offer (4));
+
+        assertEquals (Integer.valueOf (0), buffer.poll ());
+        assertFalse (buffer.isFull ());
+        assertTrue (buffer.offer (4));
+        for (int i = 1; i <= 4; i ++) {
+            assertEquals (Integer.valueOf (i), buffer.poll ());
+        }
+        assertTrue (buffer.isEmpty ());
+        assertEquals (0, buffer.size ());
+        assertNull (buffer.poll ());
+    }
+
+    @Test
+    public void wrapsAroundInOrder () {
+        RingBuffer<Integer> buffer = new RingBuffer<> (4);
+        int next = 0, expected = 0;
+        // many more elements than slots, with a varying fill level
+        for (int round = 0; round < 1000; round ++) {
+            int n = round % 5;
+            for (int i = 0; i < n && buffer.offer (next); i ++) {
+                next ++;
+            }
+            for (int i = 0; i < (round + 1) % 4; i ++) {
+                Integer e = buffer.poll ();
+                if (e == null) {
+                    break;
+                }
+                assertEquals (Integer.valueOf (expected ++), e);
+            }
+        }
+        Integer e;
+        while ((e = buffer.poll ()) != null) {
+            assertEquals (Integer.valueOf (expected ++), e);
+        }
+        assertEquals (next, expected);
+        assertTrue (next > 1000);
+    }
+
+    @Test
+    public void multipleProducersWrapAroundWithoutLossOrDuplication () throws Exception {
+        final int producers = 4, perProducer = 100_000;
+        // a small buffer, so every slot is reused many thousand times
+        RingBuffer<long[]> buffer = new RingBuffer<> (8);
+        CountDownLatch start = new CountDownLatch (1);
+        AtomicReference<Throwable> failure = new AtomicReference<> ();
+
+        List<Thread> threads = new ArrayList<> ();
+        for (int p = 0; p < producers; p ++) {
+            final int id = p;
+            Thread t = new Thread (() -> {
+                try {
+                    start.await ();
+                    for (int i = 0; i < perProducer; i ++) {
+                        long[] e = {id, i};
+                        while (!buffer.offer (e)) {
+                            Thread.yield ();
+                        }
+                    }
+                } catch (Throwable ex) {
+                    failure.compareAndSet (null, ex);
+                }
+            }, "producer-" + p);
+            threads.add (t);
+            t.start ();
+        }
+
+        // the calling thread is the single consumer
+        int[] next = new int[producers];
+        long received = 0, total = (long) producers * perProducer;
+        long deadline = System.nanoTime () + TimeUnit.SECONDS.toNanos (30);
+        start.countDown ();
+        while (received < total) {
+            long[] e = buffer.poll ();
+            if (e == null) {
+                assertTrue ("timed out after " + received + " elements", System.nanoTime () < deadline);
+                assertNull (failure.get ());
+                Thread.yield ();
+                continue;
+            }
+            int id = (int) e [0];
+            // each producer's elements arrive in the order they were offered, none lost or repeated
+            assertEquals ("producer " + id, next [id], e [1]);
+            next [id] ++;
+            received ++;
+        }
+        for (Thread t : threads) {
+            t.join (5000);
+        }
+        assertNull (failure.get ());
+        for (int p = 0; p < producers; p ++) {
+            assertEquals (perProducer, next [p]);
+        }
+        assertNull (buffer.poll ());
+        assertTrue (buffer.isEmpty ());
+        assertEquals (0, buffer.size ());
+    }
+}
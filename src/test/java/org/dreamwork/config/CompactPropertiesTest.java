@@ -0,0 +1,217 @@
+package org.dreamwork.config;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CompactPropertiesTest {
+    private static Properties source () {
+        Properties props = new Properties ();
+        props.setProperty ("pool.db.url", "jdbc:h2:mem");
+        props.setProperty ("pool.db.user", "sa");
+        props.setProperty ("pool.cache.user", "sa");
+        props.setProperty ("pool.size", "8");
+        props.setProperty ("name", "app");
+        // "Aa" and "BB" have the same hashCode, so do the keys below
+        props.setProperty ("x.Aa", "1");
+        props.setProperty ("x.BB", "2");
+        props.setProperty ("Aa", "3");
+        props.setProperty ("BB", "4");
+        return props;
+    }
+
+    @Test
+    public void readsEveryKeyOfTheStore () {
+        Properties props = source ();
+        CompactProperties compact = new CompactProperties (props);
+        assertEquals (props.size (), compact.size ());
+        for (String key : props.stringPropertyNames ()) {
+            assertEquals (key, props.getProperty (key), compact.getProperty (key));
+            assertTrue (compact.containsKey (key));
+        }
+        assertEquals (props.stringPropertyNames (), compact.stringPropertyNames ());
+        assertNull (compact.get ("pool.db"));
+        assertNull (compact.get ("pool.db.url.x"));
+        assertNull (compact.get ("db.url"));
+        assertNull (compact.get ("x.Ab"));
+        assertNull (compact.get (1));
+    }
+
+    @Test
+    public void readsManyKeysWithSharedPrefixes () {
+        Properties props = new Properties ();
+        for (int i = 0; i < 5000; i ++) {
+            props.setProperty ("node." + (i % 17) + ".item." + i, "value-" + (i % 31));
+        }
+        CompactProperties compact = new CompactProperties (props);
+        assertEquals (5000, compact.size ());
+        for (int i = 0; i < 5000; i ++) {
+            assertEquals ("value-" + (i % 31), compact.getProperty ("node." + (i % 17) + ".item." + i));
+        }
+        assertNull (compact.getProperty ("node.1.item.2"));
+    }
+
+    @Test
+    public void putOverlaysTheStore () {
+        CompactProperties compact = new CompactProperties (source ());
+        int size = compact.size ();
+
+        // overriding a stored key doesn't change the size
+        assertEquals ("sa", compact.put ("pool.db.user", "root"));
+        assertEquals ("root", compact.getProperty ("pool.db.user"));
+        assertEquals ("sa", compact.getProperty ("pool.cache.user"));
+        assertEquals (size, compact.size ());
+
+        // a new key does
+        assertNull (compact.setProperty ("pool.db.password", "secret"));
+        assertEquals ("secret", compact.getProperty ("pool.db.password"));
+        assertEquals (size + 1, compact.size ());
+        assertTrue (compact.stringPropertyNames ().contains ("pool.db.password"));
+
+        // non-string values are kept, but are not string properties
+        compact.put ("pool.timeout", 30);
+        assertEquals (30, compact.get ("pool.timeout"));
+        assertNull (compact.getProperty ("pool.timeout"));
+        assertFalse (compact.stringPropertyNames ().contains ("pool.timeout"));
+        assertEquals (size + 2, compact.size ());
+    }
+
+    @Test
+    public void removeMasksTheStore () {
+        CompactProperties compact = new CompactProperties (source ());
+        int size = compact.size ();
+
+        assertEquals ("jdbc:h2:mem", compact.remove ("pool.db.url"));
+        assertNull (compact.get ("pool.db.url"));
+        assertFalse (compact.containsKey ("pool.db.url"));
+        assertFalse (compact.stringPropertyNames ().contains ("pool.db.url"));
+        assertFalse (compact.keySet ().contains ("pool.db.url"));
+        assertEquals (size - 1, compact.size ());
+
+        // removing again changes nothing
+        assertNull (compact.remove ("pool.db.url"));
+        assertEquals (size - 1, compact.size ());
+
+        // a removed key can be put back
+        assertNull (compact.put ("pool.db.url", "jdbc:h2:file"));
+        assertEquals ("jdbc:h2:file", compact.getProperty ("pool.db.url"));
+        assertEquals (size, compact.size ());
+
+        // an overridden key is removed, not restored to the stored value
+        compact.put ("name", "other");
+        assertEquals ("other", compact.remove ("name"));
+        assertNull (compact.get ("name"));
+        assertEquals (size - 1, compact.size ());
+
+        // a key only in the overlay
+        compact.put ("extra", "1");
+        assertEquals ("1", compact.remove ("extra"));
+        assertNull (compact.get ("extra"));
+        assertEquals (size - 1, compact.size ());
+    }
+
+    @Test
+    public void compoundOperations () {
+        CompactProperties compact = new CompactProperties (source ());
+        int size = compact.size ();
+
+        assertEquals ("app", compact.putIfAbsent ("name", "other"));
+        assertEquals ("app", compact.getProperty ("name"));
+        assertNull (compact.putIfAbsent ("extra", "1"));
+        assertEquals ("1", compact.getProperty ("extra"));
+
+        assertFalse (compact.remove ("name", "other"));
+        assertTrue (compact.remove ("name", "app"));
+        assertNull (compact.get ("name"));
+
+        assertFalse (compact.replace ("pool.size", "9", "10"));
+        assertTrue (compact.replace ("pool.size", "8", "16"));
+        assertEquals ("16", compact.getProperty ("pool.size"));
+        assertNull (compact.replace ("missing", "1"));
+        assertNull (compact.get ("missing"));
+
+        assertEquals ("8-x", compact.merge ("x.Aa", "8", (a, b) -> b + "-x"));
+        assertEquals ("8-x", compact.getProperty ("x.Aa"));
+        assertEquals ("2", compact.getProperty ("x.BB"));
+        assertNull (compact.compute ("x.BB", (k, v) -> null));
+        assertNull (compact.get ("x.BB"));
+        assertEquals ("3!", compact.computeIfPresent ("Aa", (k, v) -> v + "!"));
+        assertEquals ("4", compact.getProperty ("BB"));
+        assertEquals ("new", compact.computeIfAbsent ("BB.c", k -> "new"));
+
+        // + extra + BB.c - name - x.BB
+        assertEquals (size, compact.size ());
+        assertEquals (compact.size (), compact.entrySet ().size ());
+    }
+
+    @Test
+    public void viewsAreReadOnlySnapshots () {
+        CompactProperties compact = new CompactProperties (source ());
+        Set<Map.Entry<Object, Object>> entries = compact.entrySet ();
+        Set<Object> keys = compact.keySet ();
+        try {
+            keys.remove ("name");
+            fail ();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            entries.iterator ().next ().setValue ("x");
+            fail ();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        try {
+            compact.values ().clear ();
+            fail ();
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+
+        compact.remove ("name");
+        assertTrue (keys.contains ("name"));
+        assertFalse (compact.keySet ().contains ("name"));
+    }
+
+    @Test
+    public void cloneIsIndependent () {
+        CompactProperties compact = new CompactProperties (source ());
+        compact.put ("extra", "1");
+        CompactProperties copy = (CompactProperties) compact.clone ();
+        copy.remove ("name");
+        copy.put ("extra", "2");
+
+        assertEquals ("app", compact.getProperty ("name"));
+        assertEquals ("1", compact.getProperty ("extra"));
+        assertNull (copy.getProperty ("name"));
+        assertEquals ("2", copy.getProperty ("extra"));
+        assertEquals (compact.size () - 1, copy.size ());
+    }
+
+    @Test
+    public void clearDropsEverything () {
+        CompactProperties compact = new CompactProperties (source ());
+        compact.put ("extra", "1");
+        compact.clear ();
+        assertEquals (0, compact.size ());
+        assertTrue (compact.isEmpty ());
+        assertNull (compact.get ("name"));
+        assertNull (compact.get ("extra"));
+        compact.setProperty ("name", "again");
+        assertEquals (1, compact.size ());
+    }
+
+    @Test
+    public void equalsPlainProperties () {
+        Properties props = source ();
+        CompactProperties compact = new CompactProperties (props);
+        assertEquals (props, compact);
+        compact.remove ("name");
+        props.remove ("name");
+        compact.put ("extra", "1");
+        props.put ("extra", "1");
+        assertEquals (props, compact);
+    }
+}
@@ -0,0 +1,133 @@
+package org.dreamwork.config;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class EnhancedConfigurationTest {
+    private static EnhancedConfiguration create (boolean compact, String... pairs) {
+        Properties props = new Properties ();
+        for (int i = 0; i < pairs.length; i += 2) {
+            props.setProperty (pairs [i], pairs [i + 1]);
+        }
+        return new EnhancedConfiguration (props, compact);
+    }
+
+    @Test
+    public void resolvesNestedPlaceholders () {
+        for (boolean compact : new boolean[] {false, true}) {
+            EnhancedConfiguration conf = create (compact,
+                    "host", "localhost", "port", "8080", "url", "http://${host}:${port}/", "api", "${url}api");
+            assertEquals ("http://localhost:8080/api", conf.getString ("api"));
+            // unresolved placeholders are kept as they are
+            assertEquals ("${missing}", create (compact, "a", "${missing}").getString ("a"));
+        }
+    }
+
+    @Test
+    public void detectsCycles () {
+        for (boolean compact : new boolean[] {false, true}) {
+            EnhancedConfiguration conf = create (compact, "a", "${b}", "b", "x${c}", "c", "${a}");
+            try {
+                conf.getString ("a");
+                fail ("a cycle must not resolve");
+            } catch (IllegalStateException ex) {
+                assertTrue (ex.getMessage (), ex.getMessage ().contains ("a -> b -> c -> a"));
+            }
+
+            EnhancedConfiguration self = create (compact, "a", "${a}");
+            try {
+                self.getString ("a");
+                fail ("a self reference must not resolve");
+            } catch (IllegalStateException ex) {
+                assertTrue (ex.getMessage (), ex.getMessage ().contains ("a -> a"));
+            }
+        }
+    }
+
+    @Test
+    public void cycleIsDetectedAgainAfterFailure () {
+        EnhancedConfiguration conf = create (false, "a", "${b}", "b", "${a}");
+        for (int i = 0; i < 2; i ++) {
+            try {
+                conf.getString ("b");
+                fail ();
+            } catch (IllegalStateException ex) {
+                assertTrue (ex.getMessage (), ex.getMessage ().contains ("b -> a -> b"));
+            }
+        }
+        // breaking the cycle makes both keys resolvable
+        conf.setRawProperty ("a", "done");
+        assertEquals ("done", conf.getString ("b"));
+    }
+
+    @Test
+    public void invalidatesDependents () {
+        for (boolean compact : new boolean[] {false, true}) {
+            EnhancedConfiguration conf = create (compact,
+                    "host", "localhost", "url", "http://${host}/", "api", "${url}api", "other", "${port}", "port", "1");
+            assertEquals ("http://localhost/api", conf.getString ("api"));
+            assertEquals ("1", conf.getString ("other"));
+
+            long version = conf.getVersion ();
+            long count = conf.getResolutionCount ();
+            conf.setRawProperty ("host", "example.com");
+            assertTrue (conf.getVersion () > version);
+
+            // the transitive dependent is re-resolved
+            assertEquals ("http://example.com/api", conf.getString ("api"));
+            assertEquals ("http://example.com/", conf.getString ("url"));
+            assertEquals (count + 2, conf.getResolutionCount ());
+
+            // an unrelated key stays cached
+            assertEquals ("1", conf.getString ("other"));
+            assertEquals (count + 2, conf.getResolutionCount ());
+
+            conf.removeRawProperty ("host");
+            assertEquals ("http://${host}/api", conf.getString ("api"));
+        }
+    }
+
+    @Test
+    public void invalidatesTypedValues () {
+        for (boolean compact : new boolean[] {false, true}) {
+            EnhancedConfiguration conf = create (compact, "size", "10", "flag", "true");
+            assertEquals (10, conf.getInt ("size", -1));
+            assertTrue (conf.getBoolean ("flag", false));
+
+            conf.setRawProperty ("size", "20");
+            assertEquals (20, conf.getInt ("size", -1));
+            assertEquals (20L, conf.getLong ("size", -1L));
+
+            // an unparsable value falls back to the caller's default, which is never cached
+            conf.setRawProperty ("size", "x");
+            assertEquals (-1, conf.getInt ("size", -1));
+            assertEquals (7, conf.getInt ("size", 7));
+
+            conf.setRawProperty ("flag", "false");
+            assertFalse (conf.getBoolean ("flag", true));
+
+            conf.removeRawProperty ("size");
+            assertEquals (5, conf.getInt ("size", 5));
+        }
+    }
+
+    @Test
+    public void primedValuesAreInvalidatedByChanges () {
+        EnhancedConfiguration conf = create (false, "host", "localhost", "url", "http://${host}/");
+        Map<String, String> values = new HashMap<> ();
+        values.put ("url", "http://localhost/");
+        conf.prime (values);
+
+        long count = conf.getResolutionCount ();
+        assertEquals ("http://localhost/", conf.getString ("url"));
+        assertEquals (count, conf.getResolutionCount ());
+
+        conf.setRawProperty ("host", "example.com");
+        assertEquals ("http://example.com/", conf.getString ("url"));
+    }
+}